@@ -3,8 +3,14 @@ package com.shopbilling;
 import com.shopbilling.controller.CustomerDashboardController;
 import com.shopbilling.controller.MainController;
 import com.shopbilling.controller.UnifiedLoginController;
+import com.shopbilling.dao.BillGroupCommitter;
+import com.shopbilling.dao.ProductCache;
+import com.shopbilling.dao.PromotionDAO;
+import com.shopbilling.dao.TaxRuleDAO;
 import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.journal.CheckoutWriteBehind;
 import com.shopbilling.model.Customer;
+import com.shopbilling.offline.OfflineTill;
 import com.shopbilling.model.User;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -20,12 +26,32 @@ public class ShopBillingApplication extends Application {
     private static Customer currentCustomer;
     private static String css;
 
+    private static final long GROUP_COMMIT_MAX_DELAY_MS = 5;
+    private static final int GROUP_COMMIT_MAX_BILLS = 64;
+
     @Override
     public void start(Stage stage) throws IOException {
         primaryStage = stage;
         css = this.getClass().getResource("/css/styles.css").toExternalForm();
         // Initialize database
         DatabaseManager.getInstance().initializeDatabase();
+        // Warm the product catalog (and barcode index) before the first scan
+        ProductCache.getInstance().ensureLoaded();
+        new TaxRuleDAO().reloadTaxEngine();
+        new PromotionDAO().reloadPromotionEngine();
+        // Opt-in: checkouts that land together share one commit
+        if (Boolean.getBoolean("shopbilling.groupCommit")) {
+            BillGroupCommitter.getInstance().start(GROUP_COMMIT_MAX_DELAY_MS, GROUP_COMMIT_MAX_BILLS);
+        }
+        // Opt-in: keeps selling from a local catalog snapshot and bill store if MySQL is
+        // unreachable; sales go through it via BillService.saveBill
+        if (Boolean.getBoolean("shopbilling.offline")) {
+            OfflineTill.getInstance().start();
+        }
+        // Opt-in: customer checkouts are journaled locally and saved in the background
+        if (Boolean.getBoolean("shopbilling.writeBehind")) {
+            CheckoutWriteBehind.getInstance().start();
+        }
 
         // Load Unified Login Screen
         showUnifiedLogin();
@@ -109,6 +135,15 @@ public class ShopBillingApplication extends Application {
         showUnifiedLogin();
     }
 
+    @Override
+    public void stop() {
+        OfflineTill.getInstance().stop();
+        // Journaled checkouts not saved yet are picked up again on the next start
+        CheckoutWriteBehind.getInstance().stop();
+        // Flush bills still waiting for a group commit
+        BillGroupCommitter.getInstance().stop();
+    }
+
     public static void main(String[] args) {
         launch();
     }
@@ -3,167 +3,422 @@ package com.shopbilling.dao;
 import com.shopbilling.database.DatabaseManager;
 import com.shopbilling.model.Bill;
 import com.shopbilling.model.BillItem;
+import com.shopbilling.model.BillPage;
+import com.shopbilling.model.BulkConfirmResult;
 import com.shopbilling.model.Customer;
 import com.shopbilling.model.Product;
+import com.shopbilling.model.RevenueSummary;
+import com.shopbilling.model.SalesRanking;
+import com.shopbilling.model.StockShortfall;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class BillDAO {
-  private final Connection connection;
+  // Maximum number of bill ids per IN-list when loading bill items
+  private static final int DEFAULT_ITEM_BATCH_SIZE = 8192;
+  // Item loading reads a run of bill ids this long or longer as one range
+  private static final int MIN_RANGE_BILLS = 32;
+  private static final int ID_PARAM_BYTES = 16;
+  // Multi-row INSERT sizing: at most this many rows per statement, and never more
+  // than fits in half of max_allowed_packet at a generous per-row size estimate
+  private static final int MAX_ROWS_PER_INSERT = 1000;
+  private static final int MAX_PLACEHOLDERS = 65_535;
+  private static final int BILL_ROW_BYTES = 160;
+  private static final int ITEM_ROW_BYTES = 64;
+  
   private final CustomerDAO customerDAO;
   private final ProductDAO productDAO;
+  private final RevenueStatsDAO revenueStatsDAO;
+  private final ProductSalesDAO productSalesDAO;
+  private int itemBatchSize = DEFAULT_ITEM_BATCH_SIZE;
   
   public BillDAO() {
-    this.connection = DatabaseManager.getInstance().getConnection();
     this.customerDAO = new CustomerDAO();
     this.productDAO = new ProductDAO();
+    this.revenueStatsDAO = new RevenueStatsDAO();
+    this.productSalesDAO = new ProductSalesDAO();
   }
   
-  public BigDecimal getTotalRevenue() {
-    String query = "SELECT SUM(final_amount) FROM bills WHERE status = 'COMPLETED'";
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      if (rs.next()) {
-        return rs.getBigDecimal(1);
-      }
-    } catch (SQLException e) {
-      System.err.println("Error getting total revenue: " + e.getMessage());
+  public int getItemBatchSize() { return itemBatchSize; }
+  public void setItemBatchSize(int itemBatchSize) {
+    if (itemBatchSize <= 0) {
+      throw new IllegalArgumentException("Batch size must be positive");
     }
-    return BigDecimal.ZERO;
+    this.itemBatchSize = itemBatchSize;
+  }
+  
+  // Dashboard figures come from the incrementally maintained bill_stats summary
+  public BigDecimal getTotalRevenue() {
+    return revenueStatsDAO.getSummary().getTotalRevenue();
   }
 
   public BigDecimal getHighestBillAmount() {
-    String query = "SELECT MAX(final_amount) FROM bills WHERE status = 'COMPLETED'";
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      if (rs.next()) {
-        return rs.getBigDecimal(1);
-      }
-    } catch (SQLException e) {
-      System.err.println("Error getting highest bill amount: " + e.getMessage());
-    }
-    return BigDecimal.ZERO;
+    BigDecimal highest = revenueStatsDAO.getSummary().getHighestBillAmount();
+    return highest != null ? highest : BigDecimal.ZERO;
   }
 
   public BigDecimal getLowestBillAmount() {
-    String query = "SELECT MIN(final_amount) FROM bills WHERE status = 'COMPLETED'";
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      if (rs.next()) {
-        return rs.getBigDecimal(1);
+    BigDecimal lowest = revenueStatsDAO.getSummary().getLowestBillAmount();
+    return lowest != null ? lowest : BigDecimal.ZERO;
+  }
+
+  public boolean saveBill(Bill bill) {
+    bill.assignOrderKey();
+    BillGroupCommitter committer = BillGroupCommitter.getInstance();
+    if (committer.isRunning()) {
+      try {
+        committer.submit(bill).join();
+        return true;
+      } catch (CompletionException e) {
+        // The committer has already logged the failure
+        return false;
       }
+    }
+
+    try {
+      saveBills(List.of(bill));
+      return true;
     } catch (SQLException e) {
-      System.err.println("Error getting lowest bill amount: " + e.getMessage());
+      System.err.println("Error saving bill: " + e.getMessage());
+      return false;
     }
-    return BigDecimal.ZERO;
   }
 
-  public boolean saveBill(Bill bill) {
-    // Check if created_by_user_id column exists
-    boolean hasCreatedByColumn = checkColumnExists("bills", "created_by_user_id");
-    
-    String billQuery;
-    if (hasCreatedByColumn) {
-        billQuery = "INSERT INTO bills (customer_id, created_by_user_id, total_amount, discount_amount, tax_amount, final_amount, payment_method, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-    } else {
-        billQuery = "INSERT INTO bills (customer_id, total_amount, discount_amount, tax_amount, final_amount, payment_method, status) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  /**
+   * saveBill for callers that need to know why a save failed, e.g. to retry a
+   * lost connection but not a bill MySQL will never accept (see {@link SqlErrors}).
+   */
+  public void saveBillOrThrow(Bill bill) throws SQLException {
+    bill.assignOrderKey();
+    BillGroupCommitter committer = BillGroupCommitter.getInstance();
+    if (!committer.isRunning()) {
+      saveBills(List.of(bill));
+      return;
     }
-    
-    String itemQuery = "INSERT INTO bill_items (bill_id, product_id, quantity, unit_price, total_price) VALUES (?, ?, ?, ?, ?)";
-    
     try {
+      committer.submit(bill).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof SQLException) {
+        throw (SQLException) e.getCause();
+      }
+      throw new SQLException("Error saving bill", e.getCause());
+    }
+  }
+
+  /**
+   * Saves the bill and completes with its generated id. In group-commit mode the
+   * bill is committed together with other checkouts that arrive at the same time.
+   */
+  public CompletableFuture<Integer> saveBillAsync(Bill bill) {
+    bill.assignOrderKey();
+    return BillGroupCommitter.getInstance().submit(bill);
+  }
+
+  /**
+   * Saves the bills and their items in one transaction: either all of them get
+   * their ids or none are saved. Saving a bill whose order key is already in the
+   * table returns the existing bill's id instead of inserting a duplicate.
+   */
+  void saveBills(List<Bill> bills) throws SQLException {
+    Connection connection = null;
+    try {
+      connection = DatabaseManager.getInstance().getConnection();
       connection.setAutoCommit(false);
-      
-      // Insert bill
+      insertBills(connection, bills);
+      connection.commit();
+    } catch (SQLException e) {
+      rollbackQuietly(connection);
+      bills.forEach(bill -> bill.setId(0));
+      throw e;
+    } finally {
+      releaseConnection(connection);
+    }
+
+    if (bills.stream().anyMatch(bill -> "COMPLETED".equals(bill.getStatus()))) {
+      revenueStatsDAO.invalidate();
+      productSalesDAO.invalidate();
+    }
+  }
+
+  /**
+   * Inserts the bills not saved yet and then all of their items. Runs inside the
+   * caller's transaction. A bill whose order key is already in the table is a
+   * retried checkout: it just gets the existing id back and nothing is inserted.
+   */
+  private void insertBills(Connection connection, List<Bill> bills) throws SQLException {
+    for (Bill bill : bills) {
+      bill.assignOrderKey();
+    }
+
+    // Resolved once at startup by DatabaseManager, no metadata round trip per checkout
+    boolean hasCreatedByColumn = DatabaseManager.getInstance().getSchema().hasColumn("bills", "created_by_user_id");
+
+    String columns = hasCreatedByColumn
+        ? "customer_id, created_by_user_id, total_amount, discount_amount, tax_amount, final_amount, payment_method, status, order_key, bill_date"
+        : "customer_id, total_amount, discount_amount, tax_amount, final_amount, payment_method, status, order_key, bill_date";
+    // Bills captured earlier (e.g. replayed from the checkout journal) keep their own date
+    String row = "(" + SqlFragments.placeholders(hasCreatedByColumn ? 9 : 8) + ", COALESCE(?, CURRENT_TIMESTAMP))";
+
+    List<Bill> inserted;
+    if (bills.size() == 1) {
+      // Insert-or-return-existing in one statement: on a repeated order key LAST_INSERT_ID(id)
+      // hands back the existing id, and bumping submit_count reports 2 affected rows instead of 1
+      Bill bill = bills.get(0);
+      String billQuery = "INSERT INTO bills (" + columns + ") VALUES " + row
+          + " ON DUPLICATE KEY UPDATE id = LAST_INSERT_ID(id), submit_count = submit_count + 1";
       try (PreparedStatement billStmt = connection.prepareStatement(billQuery, Statement.RETURN_GENERATED_KEYS)) {
-        int paramIndex = 1;
-        billStmt.setInt(paramIndex++, bill.getCustomerId());
-        
-        if (hasCreatedByColumn) {
-            // Handle created_by_user_id (can be 0 or null if not set)
-            if (bill.getCreatedByUserId() > 0) {
-                billStmt.setInt(paramIndex++, bill.getCreatedByUserId());
-            } else {
-                billStmt.setNull(paramIndex++, Types.INTEGER);
-            }
-        }
-        
-        billStmt.setBigDecimal(paramIndex++, bill.getTotalAmount());
-        billStmt.setBigDecimal(paramIndex++, bill.getDiscountAmount());
-        billStmt.setBigDecimal(paramIndex++, bill.getTaxAmount());
-        billStmt.setBigDecimal(paramIndex++, bill.getFinalAmount());
-        billStmt.setString(paramIndex++, bill.getPaymentMethod());
-        billStmt.setString(paramIndex++, bill.getStatus());
-        
+        bindBill(billStmt, 1, bill, hasCreatedByColumn);
         int affectedRows = billStmt.executeUpdate();
-        
-        if (affectedRows > 0) {
+        try (ResultSet generatedKeys = billStmt.getGeneratedKeys()) {
+          if (!generatedKeys.next()) {
+            throw new SQLException("No bill id returned");
+          }
+          bill.setId(generatedKeys.getInt(1));
+        }
+        inserted = affectedRows == 1 ? bills : List.of();
+      }
+      if (inserted.isEmpty()) {
+        checkSameOrder(connection, bills);
+      }
+    } else {
+      inserted = withoutSavedOrders(connection, bills);
+      if (inserted.size() < bills.size()) {
+        List<Bill> alreadySaved = new ArrayList<>(bills);
+        alreadySaved.removeAll(inserted);
+        checkSameOrder(connection, alreadySaved);
+      }
+      int billColumns = hasCreatedByColumn ? 10 : 9;
+      int billRows = rowsPerInsert(billColumns, BILL_ROW_BYTES);
+      for (int from = 0; from < inserted.size(); ) {
+        int chunkRows = SqlFragments.insertChunk(inserted.size() - from, billRows);
+        List<Bill> chunk = inserted.subList(from, from + chunkRows);
+        from += chunkRows;
+        String billQuery = "INSERT INTO bills (" + columns + ") VALUES " + String.join(", ", Collections.nCopies(chunk.size(), row));
+        try (PreparedStatement billStmt = connection.prepareStatement(billQuery, Statement.RETURN_GENERATED_KEYS)) {
+          int paramIndex = 1;
+          for (Bill bill : chunk) {
+            paramIndex = bindBill(billStmt, paramIndex, bill, hasCreatedByColumn);
+          }
+          billStmt.executeUpdate();
+
+          // A multi-row insert gets a consecutive block of ids, reported in row order
+          int assigned = 0;
           try (ResultSet generatedKeys = billStmt.getGeneratedKeys()) {
-            if (generatedKeys.next()) {
-              int billId = generatedKeys.getInt(1);
-              bill.setId(billId);
-              
-              // Insert bill items
-              try (PreparedStatement itemStmt = connection.prepareStatement(itemQuery)) {
-                for (BillItem item : bill.getBillItems()) {
-                  itemStmt.setInt(1, billId);
-                  itemStmt.setInt(2, item.getProductId());
-                  itemStmt.setInt(3, item.getQuantity());
-                  itemStmt.setBigDecimal(4, item.getUnitPrice());
-                  itemStmt.setBigDecimal(5, item.getTotalPrice());
-                  itemStmt.addBatch();
-                  
-                  // NOTE: Stock is NOT deducted here for PENDING bills.
-                  // It will be deducted when the admin confirms the bill.
-                }
-                itemStmt.executeBatch();
-              }
-              
-              connection.commit();
-              return true;
+            while (generatedKeys.next() && assigned < chunk.size()) {
+              chunk.get(assigned++).setId(generatedKeys.getInt(1));
             }
           }
+          if (assigned != chunk.size()) {
+            throw new SQLException("Expected " + chunk.size() + " generated bill ids, got " + assigned);
+          }
         }
       }
-      
-      connection.rollback();
-      return false;
-      
-    } catch (SQLException e) {
-      try {
-        connection.rollback();
-      } catch (SQLException rollbackEx) {
-        System.err.println("Error rolling back transaction: " + rollbackEx.getMessage());
+    }
+
+    // NOTE: Stock is NOT deducted here for PENDING bills.
+    // It will be deducted when the admin confirms the bill.
+    List<BillItem> items = new ArrayList<>();
+    List<Integer> itemBillIds = new ArrayList<>();
+    List<Integer> completedIds = new ArrayList<>();
+    for (Bill bill : inserted) {
+      for (BillItem item : bill.getBillItems()) {
+        items.add(item);
+        itemBillIds.add(bill.getId());
       }
-      System.err.println("Error saving bill: " + e.getMessage());
-      return false;
-    } finally {
-      try {
-        connection.setAutoCommit(true);
-      } catch (SQLException e) {
-        System.err.println("Error resetting auto-commit: " + e.getMessage());
+      if ("COMPLETED".equals(bill.getStatus())) {
+        completedIds.add(bill.getId());
+      }
+    }
+    int itemRows = rowsPerInsert(5, ITEM_ROW_BYTES);
+    for (int from = 0; from < items.size(); ) {
+      int to = from + SqlFragments.insertChunk(items.size() - from, itemRows);
+      String itemQuery = "INSERT INTO bill_items (bill_id, product_id, quantity, unit_price, total_price) VALUES "
+          + SqlFragments.rows(to - from, 5);
+      try (PreparedStatement itemStmt = connection.prepareStatement(itemQuery)) {
+        int paramIndex = 1;
+        for (int i = from; i < to; i++) {
+          BillItem item = items.get(i);
+          itemStmt.setInt(paramIndex++, itemBillIds.get(i));
+          itemStmt.setInt(paramIndex++, item.getProductId());
+          itemStmt.setInt(paramIndex++, item.getQuantity());
+          itemStmt.setBigDecimal(paramIndex++, item.getUnitPrice());
+          itemStmt.setBigDecimal(paramIndex++, item.getTotalPrice());
+        }
+        itemStmt.executeUpdate();
       }
+      from = to;
+    }
+
+    if (!completedIds.isEmpty()) {
+      revenueStatsDAO.recordCompleted(connection, completedIds);
+      productSalesDAO.recordCompleted(connection, completedIds);
     }
   }
   
-  private boolean checkColumnExists(String tableName, String columnName) {
-      try {
-          DatabaseMetaData meta = connection.getMetaData();
-          try (ResultSet rs = meta.getColumns(null, null, tableName, columnName)) {
-              return rs.next();
+  private static int bindBill(PreparedStatement stmt, int paramIndex, Bill bill, boolean hasCreatedByColumn) throws SQLException {
+    stmt.setInt(paramIndex++, bill.getCustomerId());
+    if (hasCreatedByColumn) {
+      // Handle created_by_user_id (can be 0 or null if not set)
+      if (bill.getCreatedByUserId() > 0) {
+        stmt.setInt(paramIndex++, bill.getCreatedByUserId());
+      } else {
+        stmt.setNull(paramIndex++, Types.INTEGER);
+      }
+    }
+    stmt.setBigDecimal(paramIndex++, bill.getTotalAmount());
+    stmt.setBigDecimal(paramIndex++, bill.getDiscountAmount());
+    stmt.setBigDecimal(paramIndex++, bill.getTaxAmount());
+    stmt.setBigDecimal(paramIndex++, bill.getFinalAmount());
+    stmt.setString(paramIndex++, bill.getPaymentMethod());
+    stmt.setString(paramIndex++, bill.getStatus());
+    stmt.setString(paramIndex++, bill.getOrderKey());
+    stmt.setTimestamp(paramIndex++, bill.getBillDate() != null ? Timestamp.valueOf(bill.getBillDate()) : null);
+    return paramIndex;
+  }
+
+  // Gives bills whose order key is already saved their existing id and returns the rest
+  private static List<Bill> withoutSavedOrders(Connection connection, List<Bill> bills) throws SQLException {
+    Map<String, Integer> savedIds = new HashMap<>();
+    List<String> orderKeys = new ArrayList<>(bills.size());
+    for (Bill bill : bills) {
+      orderKeys.add(bill.getOrderKey());
+    }
+    String query = "SELECT id, order_key FROM bills WHERE order_key IN (" + SqlFragments.inList(orderKeys.size()) + ")";
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      SqlFragments.bindPadded(stmt, 1, orderKeys);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          savedIds.put(rs.getString("order_key"), rs.getInt("id"));
+        }
+      }
+    }
+    if (savedIds.isEmpty()) {
+      return bills;
+    }
+    List<Bill> unsaved = new ArrayList<>();
+    for (Bill bill : bills) {
+      Integer savedId = savedIds.get(bill.getOrderKey());
+      if (savedId != null) {
+        bill.setId(savedId);
+      } else {
+        unsaved.add(bill);
+      }
+    }
+    return unsaved;
+  }
+
+  /**
+   * Guards against an order key reused for a different sale (e.g. a copied
+   * Bill): each bill, which already has the id saved under its key, must
+   * match that saved bill's amounts and line count, or the transaction fails
+   * instead of reporting the new sale as saved.
+   */
+  private static void checkSameOrder(Connection connection, List<Bill> bills) throws SQLException {
+    String query = "SELECT b.id, b.total_amount, b.final_amount,"
+        + " (SELECT COUNT(*) FROM bill_items i WHERE i.bill_id = b.id) AS item_count"
+        + " FROM bills b WHERE b.id IN (" + SqlFragments.inList(bills.size()) + ")";
+    Map<Integer, Bill> byId = new HashMap<>();
+    for (Bill bill : bills) {
+      byId.put(bill.getId(), bill);
+    }
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      SqlFragments.bindPadded(stmt, 1, new ArrayList<>(byId.keySet()));
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          Bill bill = byId.get(rs.getInt("id"));
+          if (!sameAmount(rs.getBigDecimal("total_amount"), bill.getTotalAmount())
+              || !sameAmount(rs.getBigDecimal("final_amount"), bill.getFinalAmount())
+              || rs.getInt("item_count") != bill.getBillItems().size()) {
+            throw new SQLIntegrityConstraintViolationException("Order key " + bill.getOrderKey()
+                + " is already used by bill " + bill.getId() + " with different amounts or lines", "23000");
           }
+        }
+      }
+    }
+  }
+
+  private static boolean sameAmount(BigDecimal stored, BigDecimal amount) {
+    return stored == null || amount == null ? stored == amount : stored.compareTo(amount) == 0;
+  }
+
+  /**
+   * Id of the bill saved under the given order key, or 0 if there is none.
+   */
+  public int findBillIdByOrderKey(String orderKey) {
+    String query = "SELECT id FROM bills WHERE order_key = ?";
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setString(1, orderKey);
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (rs.next()) {
+          return rs.getInt(1);
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error looking up bill by order key: " + e.getMessage());
+    }
+    return 0;
+  }
+
+  private static int rowsPerInsert(int columnCount, int rowBytes) {
+    long packetBudget = DatabaseManager.getInstance().getMaxAllowedPacket() / 2;
+    long byPacket = Math.max(1, packetBudget / rowBytes);
+    return (int) Math.min(Math.min(MAX_ROWS_PER_INSERT, MAX_PLACEHOLDERS / columnCount), byPacket);
+  }
+
+  public boolean confirmBill(Bill bill) {
+      return confirmBill(bill, new ArrayList<>());
+  }
+  
+  /**
+   * Marks a pending bill COMPLETED and deducts its stock in the same transaction.
+   * If any product is short, nothing is changed and the shortfalls are added to
+   * the given list.
+   */
+  public boolean confirmBill(Bill bill, List<StockShortfall> shortfalls) {
+      try {
+          return confirmBillOrThrow(bill, shortfalls) == ConfirmOutcome.CONFIRMED;
       } catch (SQLException e) {
+          System.err.println("Error confirming bill: " + e.getMessage());
           return false;
       }
   }
   
-  public boolean confirmBill(Bill bill) {
-      String updateQuery = "UPDATE bills SET status = 'COMPLETED' WHERE id = ?";
+  /**
+   * How a confirm ended when it did not fail with an error.
+   */
+  public enum ConfirmOutcome {
+      CONFIRMED,
+      // Not short and not confirmed now: the bill is no longer PENDING, e.g. confirmed earlier
+      NOT_PENDING,
+      NOT_FOUND,
+      // Nothing changed; the shortfalls were added to the caller's list
+      SHORTFALL
+  }
+  
+  /**
+   * confirmBill for callers that must tell a definite outcome from a failure
+   * worth retrying; SQL errors are thrown (see {@link SqlErrors}).
+   */
+  public ConfirmOutcome confirmBillOrThrow(Bill bill, List<StockShortfall> shortfalls) throws SQLException {
+      // Only PENDING bills can be confirmed, so a repeated confirm can't deduct stock twice
+      String updateQuery = "UPDATE bills SET status = 'COMPLETED' WHERE id = ? AND status = 'PENDING'";
       
+      Connection connection = null;
       try {
+          connection = DatabaseManager.getInstance().getConnection();
           connection.setAutoCommit(false);
           
           // Update status
@@ -172,53 +427,269 @@ public class BillDAO {
               int rows = stmt.executeUpdate();
               
               if (rows > 0) {
-                  // Deduct stock
+                  // Deduct stock as relative decrements, merging repeated lines for the same product
+                  Map<Integer, Integer> quantitiesByProduct = new LinkedHashMap<>();
                   for (BillItem item : bill.getBillItems()) {
-                      Product product = item.getProduct();
-                      // Fetch current stock to be safe
-                      Product currentProduct = productDAO.getProductById(product.getId());
-                      if (currentProduct != null) {
-                          int newStock = currentProduct.getStockQuantity() - item.getQuantity();
-                          productDAO.updateStock(product.getId(), newStock);
-                      }
+                      quantitiesByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
                   }
                   
-                  connection.commit();
-                  return true;
+                  List<StockShortfall> shortages = productDAO.deductStock(connection, quantitiesByProduct);
+                  if (shortages.isEmpty()) {
+                      revenueStatsDAO.recordCompleted(connection, List.of(bill.getId()));
+                      productSalesDAO.recordCompleted(connection, List.of(bill.getId()));
+                      connection.commit();
+                      revenueStatsDAO.invalidate();
+                      productSalesDAO.invalidate();
+                      productDAO.stockChanged(quantitiesByProduct.keySet());
+                      return ConfirmOutcome.CONFIRMED;
+                  }
+                  shortfalls.addAll(shortages);
+                  connection.rollback();
+                  return ConfirmOutcome.SHORTFALL;
               }
           }
           
           connection.rollback();
-          return false;
+          try (PreparedStatement stmt = connection.prepareStatement("SELECT 1 FROM bills WHERE id = ?")) {
+              stmt.setInt(1, bill.getId());
+              try (ResultSet rs = stmt.executeQuery()) {
+                  return rs.next() ? ConfirmOutcome.NOT_PENDING : ConfirmOutcome.NOT_FOUND;
+              }
+          }
           
       } catch (SQLException e) {
-          try {
-              connection.rollback();
-          } catch (SQLException rollbackEx) {
-              System.err.println("Error rolling back transaction: " + rollbackEx.getMessage());
-          }
-          System.err.println("Error confirming bill: " + e.getMessage());
-          return false;
+          rollbackQuietly(connection);
+          throw e;
       } finally {
-          try {
-              connection.setAutoCommit(true);
-          } catch (SQLException e) {
-              System.err.println("Error resetting auto-commit: " + e.getMessage());
+          releaseConnection(connection);
+      }
+  }
+  
+  /**
+   * Confirms many pending bills in one transaction. Product rows are locked once,
+   * bills are allocated stock oldest-first, and bills that cannot be fulfilled from
+   * what is left are reported instead of failing the whole batch. Stock for all
+   * accepted bills is deducted with one batched update and their statuses are
+   * flipped with a single UPDATE ... WHERE id IN.
+   */
+  public BulkConfirmResult confirmBills(Collection<Integer> billIds) {
+    BulkConfirmResult result = new BulkConfirmResult();
+    List<Integer> requestedIds = new ArrayList<>(new TreeSet<>(billIds));
+    if (requestedIds.isEmpty()) {
+      return result;
+    }
+    
+    Connection connection = null;
+    try {
+      connection = DatabaseManager.getInstance().getConnection();
+      connection.setAutoCommit(false);
+      
+      // Lock the pending bills and read their lines
+      String itemsQuery = """
+        SELECT b.id AS bill_id, bi.product_id, bi.quantity
+        FROM bills b
+        LEFT JOIN bill_items bi ON bi.bill_id = b.id
+        WHERE b.id IN (%s) AND b.status = 'PENDING'
+        ORDER BY b.bill_date, b.id
+        FOR UPDATE
+        """.formatted(SqlFragments.inList(requestedIds.size()));
+      Map<Integer, Map<Integer, Integer>> linesByBill = new LinkedHashMap<>();
+      try (PreparedStatement stmt = connection.prepareStatement(itemsQuery)) {
+        SqlFragments.bindPadded(stmt, 1, requestedIds);
+        try (ResultSet rs = stmt.executeQuery()) {
+          while (rs.next()) {
+            Map<Integer, Integer> lines = linesByBill.computeIfAbsent(rs.getInt("bill_id"), id -> new LinkedHashMap<>());
+            int productId = rs.getInt("product_id");
+            if (!rs.wasNull()) {
+              lines.merge(productId, rs.getInt("quantity"), Integer::sum);
+            }
+          }
+        }
+      }
+      for (int billId : requestedIds) {
+        if (!linesByBill.containsKey(billId)) {
+          result.getSkippedBillIds().add(billId);
+        }
+      }
+      
+      // Lock the affected products in id order and take a snapshot of their stock
+      Set<Integer> productIds = new TreeSet<>();
+      linesByBill.values().forEach(lines -> productIds.addAll(lines.keySet()));
+      Map<Integer, Integer> available = new HashMap<>();
+      Map<Integer, String> productNames = new HashMap<>();
+      if (!productIds.isEmpty()) {
+        String stockQuery = "SELECT id, name, stock_quantity FROM products WHERE id IN ("
+            + SqlFragments.inList(productIds.size()) + ") ORDER BY id FOR UPDATE";
+        try (PreparedStatement stmt = connection.prepareStatement(stockQuery)) {
+          SqlFragments.bindPadded(stmt, 1, productIds);
+          try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+              available.put(rs.getInt("id"), rs.getInt("stock_quantity"));
+              productNames.put(rs.getInt("id"), rs.getString("name"));
+            }
+          }
+        }
+      }
+      
+      // Allocate stock bill by bill, aggregating the deltas of the bills that fit
+      Map<Integer, Integer> totalDeltas = new LinkedHashMap<>();
+      List<Integer> acceptedIds = new ArrayList<>();
+      for (Map.Entry<Integer, Map<Integer, Integer>> entry : linesByBill.entrySet()) {
+        List<StockShortfall> shortages = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : entry.getValue().entrySet()) {
+          int left = available.getOrDefault(line.getKey(), 0);
+          if (left < line.getValue()) {
+            shortages.add(new StockShortfall(line.getKey(), productNames.get(line.getKey()), line.getValue(), left));
           }
+        }
+        if (!shortages.isEmpty()) {
+          result.getShortfallsByBillId().put(entry.getKey(), shortages);
+          continue;
+        }
+        for (Map.Entry<Integer, Integer> line : entry.getValue().entrySet()) {
+          available.merge(line.getKey(), -line.getValue(), Integer::sum);
+          totalDeltas.merge(line.getKey(), line.getValue(), Integer::sum);
+        }
+        acceptedIds.add(entry.getKey());
+      }
+      
+      if (acceptedIds.isEmpty()) {
+        connection.rollback();
+        return result;
+      }
+      
+      // Rows are locked, so the guarded decrement can only fail if something is badly wrong
+      if (!productDAO.deductStock(connection, totalDeltas).isEmpty()) {
+        throw new SQLException("Stock changed while product rows were locked");
+      }
+      
+      String statusQuery = "UPDATE bills SET status = 'COMPLETED' WHERE status = 'PENDING' AND id IN ("
+          + SqlFragments.inList(acceptedIds.size()) + ")";
+      try (PreparedStatement stmt = connection.prepareStatement(statusQuery)) {
+        SqlFragments.bindPadded(stmt, 1, acceptedIds);
+        stmt.executeUpdate();
+      }
+      revenueStatsDAO.recordCompleted(connection, acceptedIds);
+      productSalesDAO.recordCompleted(connection, acceptedIds);
+      
+      connection.commit();
+      revenueStatsDAO.invalidate();
+      productSalesDAO.invalidate();
+      productDAO.stockChanged(totalDeltas.keySet());
+      result.getConfirmedBillIds().addAll(acceptedIds);
+      return result;
+      
+    } catch (SQLException e) {
+      rollbackQuietly(connection);
+      System.err.println("Error confirming bills: " + e.getMessage());
+      BulkConfirmResult failed = new BulkConfirmResult();
+      failed.getSkippedBillIds().addAll(requestedIds);
+      return failed;
+    } finally {
+      releaseConnection(connection);
+    }
+  }
+  
+  private void rollbackQuietly(Connection connection) {
+      if (connection == null) {
+          return;
+      }
+      try {
+          connection.rollback();
+      } catch (SQLException rollbackEx) {
+          System.err.println("Error rolling back transaction: " + rollbackEx.getMessage());
+      }
+  }
+  
+  private void releaseConnection(Connection connection) {
+      if (connection == null) {
+          return;
+      }
+      try {
+          connection.setAutoCommit(true);
+      } catch (SQLException e) {
+          System.err.println("Error resetting auto-commit: " + e.getMessage());
+      }
+      try {
+          connection.close();
+      } catch (SQLException e) {
+          System.err.println("Error returning connection to pool: " + e.getMessage());
       }
   }
   
   public boolean deleteBill(int id) {
+      String selectQuery = "SELECT status, final_amount FROM bills WHERE id = ? FOR UPDATE";
       String query = "DELETE FROM bills WHERE id = ?";
-      try (PreparedStatement stmt = connection.prepareStatement(query)) {
-          stmt.setInt(1, id);
-          return stmt.executeUpdate() > 0;
+      
+      Connection connection = null;
+      try {
+          connection = DatabaseManager.getInstance().getConnection();
+          connection.setAutoCommit(false);
+          
+          String status = null;
+          BigDecimal finalAmount = null;
+          try (PreparedStatement stmt = connection.prepareStatement(selectQuery)) {
+              stmt.setInt(1, id);
+              try (ResultSet rs = stmt.executeQuery()) {
+                  if (rs.next()) {
+                      status = rs.getString("status");
+                      finalAmount = rs.getBigDecimal("final_amount");
+                  }
+              }
+          }
+          
+          // Counters are taken back while the bill's items still exist
+          if ("COMPLETED".equals(status)) {
+              productSalesDAO.recordRemoved(connection, id);
+          }
+          
+          boolean deleted;
+          try (PreparedStatement stmt = connection.prepareStatement(query)) {
+              stmt.setInt(1, id);
+              deleted = stmt.executeUpdate() > 0;
+          }
+          
+          boolean wasCompleted = deleted && "COMPLETED".equals(status);
+          if (wasCompleted) {
+              revenueStatsDAO.recordRemoved(connection, finalAmount);
+          }
+          
+          connection.commit();
+          if (wasCompleted) {
+              revenueStatsDAO.invalidate();
+              productSalesDAO.invalidate();
+          }
+          return deleted;
       } catch (SQLException e) {
+          rollbackQuietly(connection);
           System.err.println("Error deleting bill: " + e.getMessage());
           return false;
+      } finally {
+          releaseConnection(connection);
       }
   }
   
+  /**
+   * Recomputes the bill_stats summary from scratch.
+   */
+  public RevenueSummary rebuildRevenueStats() {
+      return revenueStatsDAO.rebuild();
+  }
+  
+  /**
+   * Compares the bill_stats summary with a full aggregate; an empty list means consistent.
+   */
+  public List<String> checkRevenueStatsConsistency() {
+      return revenueStatsDAO.checkConsistency();
+  }
+  
+  /**
+   * Recomputes the per-product sales counters from scratch.
+   */
+  public SalesRanking rebuildProductSales() {
+      return productSalesDAO.rebuild();
+  }
+  
   public List<Bill> getAllBills() {
     List<Bill> bills = new ArrayList<>();
     String query = """
@@ -228,14 +699,16 @@ public class BillDAO {
       ORDER BY b.bill_date DESC
       """;
     
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       
-      while (rs.next()) {
-        Bill bill = mapResultSetToBill(rs);
-        bill.setBillItems(getBillItems(bill.getId()));
-        bills.add(bill);
+      try (ResultSet rs = stmt.executeQuery()) {
+        BillColumns columns = new BillColumns(rs);
+        while (rs.next()) {
+          bills.add(mapResultSetToBill(rs, columns));
+        }
       }
+      loadBillItems(connection, bills);
     } catch (SQLException e) {
       System.err.println("Error fetching bills: " + e.getMessage());
     }
@@ -253,15 +726,16 @@ public class BillDAO {
         ORDER BY b.bill_date DESC
         """;
       
-      try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      try (Connection connection = DatabaseManager.getInstance().getConnection();
+           PreparedStatement stmt = connection.prepareStatement(query)) {
         stmt.setString(1, status);
         try (ResultSet rs = stmt.executeQuery()) {
+            BillColumns columns = new BillColumns(rs);
             while (rs.next()) {
-              Bill bill = mapResultSetToBill(rs);
-              bill.setBillItems(getBillItems(bill.getId()));
-              bills.add(bill);
+              bills.add(mapResultSetToBill(rs, columns));
             }
         }
+        loadBillItems(connection, bills);
       } catch (SQLException e) {
         System.err.println("Error fetching bills by status: " + e.getMessage());
       }
@@ -279,15 +753,16 @@ public class BillDAO {
             ORDER BY b.bill_date DESC
             """;
 
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setInt(1, customerId);
             try (ResultSet rs = stmt.executeQuery()) {
+                BillColumns columns = new BillColumns(rs);
                 while (rs.next()) {
-                    Bill bill = mapResultSetToBill(rs);
-                    bill.setBillItems(getBillItems(bill.getId()));
-                    bills.add(bill);
+                    bills.add(mapResultSetToBill(rs, columns));
                 }
             }
+            loadBillItems(connection, bills);
         } catch (SQLException e) {
             System.err.println("Error fetching bills by customer ID: " + e.getMessage());
         }
@@ -295,6 +770,75 @@ public class BillDAO {
         return bills;
     }
   
+  /**
+   * Keyset-paginated bill history: returns up to pageSize bills older than the
+   * cursor (or the newest bills when cursor is null).
+   */
+  public BillPage getBillsPage(BillPage.Cursor cursor, int pageSize) {
+    return fetchBillsPage(null, cursor, pageSize);
+  }
+  
+  public BillPage getBillsByStatusPage(String status, BillPage.Cursor cursor, int pageSize) {
+    return fetchBillsPage(status, cursor, pageSize);
+  }
+  
+  private BillPage fetchBillsPage(String status, BillPage.Cursor cursor, int pageSize) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("Page size must be positive");
+    }
+    
+    StringBuilder query = new StringBuilder("""
+      SELECT b.*, c.name as customer_name, c.email, c.phone, c.address
+      FROM bills b
+      LEFT JOIN customers c ON b.customer_id = c.id
+      WHERE 1 = 1
+      """);
+    if (status != null) {
+      query.append(" AND b.status = ?");
+    }
+    if (cursor != null) {
+      // Expanded form of (bill_date, id) < (?, ?) so MySQL can range-scan the index
+      query.append(" AND (b.bill_date < ? OR (b.bill_date = ? AND b.id < ?))");
+    }
+    // Fetch one extra row to know whether another page follows
+    query.append(" ORDER BY b.bill_date DESC, b.id DESC LIMIT ?");
+    
+    List<Bill> bills = new ArrayList<>();
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query.toString())) {
+      int paramIndex = 1;
+      if (status != null) {
+        stmt.setString(paramIndex++, status);
+      }
+      if (cursor != null) {
+        Timestamp cursorDate = Timestamp.valueOf(cursor.getBillDate());
+        stmt.setTimestamp(paramIndex++, cursorDate);
+        stmt.setTimestamp(paramIndex++, cursorDate);
+        stmt.setInt(paramIndex++, cursor.getBillId());
+      }
+      stmt.setInt(paramIndex, pageSize + 1);
+      
+      try (ResultSet rs = stmt.executeQuery()) {
+        BillColumns columns = new BillColumns(rs);
+        while (rs.next()) {
+          bills.add(mapResultSetToBill(rs, columns));
+        }
+      }
+      
+      BillPage.Cursor nextCursor = null;
+      if (bills.size() > pageSize) {
+        bills.remove(pageSize);
+        nextCursor = BillPage.Cursor.after(bills.get(pageSize - 1));
+      }
+      loadBillItems(connection, bills);
+      return new BillPage(bills, nextCursor);
+    } catch (SQLException e) {
+      System.err.println("Error fetching bills page: " + e.getMessage());
+    }
+    
+    return new BillPage(bills, null);
+  }
+  
   public Bill getBillById(int id) {
     String query = """
       SELECT b.*, c.name as customer_name, c.email, c.phone, c.address
@@ -303,16 +847,21 @@ public class BillDAO {
       WHERE b.id = ?
       """;
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setInt(1, id);
       
+      Bill bill = null;
       try (ResultSet rs = stmt.executeQuery()) {
+        BillColumns columns = new BillColumns(rs);
         if (rs.next()) {
-          Bill bill = mapResultSetToBill(rs);
-          bill.setBillItems(getBillItems(bill.getId()));
-          return bill;
+          bill = mapResultSetToBill(rs, columns);
         }
       }
+      if (bill != null) {
+        loadBillItems(connection, List.of(bill));
+        return bill;
+      }
     } catch (SQLException e) {
       System.err.println("Error fetching bill by ID: " + e.getMessage());
     }
@@ -320,90 +869,182 @@ public class BillDAO {
     return null;
   }
   
-  private List<BillItem> getBillItems(int billId) {
-    List<BillItem> items = new ArrayList<>();
+  /**
+   * Loads the items of all given bills and attaches them in memory. Dense runs
+   * of bill ids (a keyset page, the whole history) are read with one BETWEEN
+   * range each; the scattered rest goes in IN-list batches sized to the packet
+   * limit, so even 50k bills take a handful of queries.
+   */
+  private void loadBillItems(Connection connection, List<Bill> bills) throws SQLException {
+    if (bills.isEmpty()) {
+      return;
+    }
+    
+    Map<Integer, Bill> billsById = new HashMap<>();
+    for (Bill bill : bills) {
+      billsById.put(bill.getId(), bill);
+    }
+    int[] ids = billsById.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    
+    List<Integer> scattered = new ArrayList<>();
+    for (int start = 0; start < ids.length; ) {
+      int end = start + 1;
+      // Grow the range while at least half of the ids in it are wanted
+      while (end < ids.length && ids[end] - ids[start] + 1L <= 2L * (end - start + 1)) {
+        end++;
+      }
+      if (end - start >= MIN_RANGE_BILLS) {
+        loadItems(connection, billsById, "bi.bill_id BETWEEN ? AND ?", List.of(ids[start], ids[end - 1]));
+      } else {
+        for (int i = start; i < end; i++) {
+          scattered.add(ids[i]);
+        }
+      }
+      start = end;
+    }
+    
+    int batchSize = idsPerQuery();
+    for (int from = 0; from < scattered.size(); from += batchSize) {
+      List<Integer> batch = scattered.subList(from, Math.min(from + batchSize, scattered.size()));
+      loadItems(connection, billsById, "bi.bill_id IN (" + SqlFragments.inList(batch.size()) + ")", batch);
+    }
+  }
+  
+  // Items of the bills matched by condition; rows of bills not asked for are skipped
+  private void loadItems(Connection connection, Map<Integer, Bill> billsById, String condition, List<Integer> params) throws SQLException {
     String query = """
       SELECT bi.*, p.name, p.description, p.category, p.barcode
       FROM bill_items bi
       JOIN products p ON bi.product_id = p.id
-      WHERE bi.bill_id = ?
-      """;
+      WHERE %s
+      ORDER BY bi.bill_id, bi.id
+      """.formatted(condition);
     
     try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      stmt.setInt(1, billId);
+      SqlFragments.bindPadded(stmt, 1, params);
       
       try (ResultSet rs = stmt.executeQuery()) {
+        BillItemColumns columns = new BillItemColumns(rs);
         while (rs.next()) {
-          BillItem item = new BillItem();
-          item.setId(rs.getInt("id"));
-          item.setBillId(rs.getInt("bill_id"));
-          item.setProductId(rs.getInt("product_id"));
-          item.setQuantity(rs.getInt("quantity"));
-          item.setUnitPrice(rs.getBigDecimal("unit_price"));
-          item.setTotalPrice(rs.getBigDecimal("total_price"));
-          
-          // Create product object
-          Product product = new Product();
-          product.setId(rs.getInt("product_id"));
-          product.setName(rs.getString("name"));
-          product.setDescription(rs.getString("description"));
-          product.setCategory(rs.getString("category"));
-          product.setBarcode(rs.getString("barcode"));
-          product.setPrice(rs.getBigDecimal("unit_price"));
-          
-          item.setProduct(product);
-          items.add(item);
+          BillItem item = mapResultSetToBillItem(rs, columns);
+          Bill bill = billsById.get(item.getBillId());
+          if (bill != null) {
+            // Add directly so the totals loaded from the bills row are kept as-is
+            bill.getBillItems().add(item);
+          }
         }
       }
-    } catch (SQLException e) {
-      System.err.println("Error fetching bill items: " + e.getMessage());
     }
+  }
+  
+  // IN-list length for loading items: the configured batch size, within the packet
+  // and placeholder limits (halved so padding to the bucket still fits)
+  private int idsPerQuery() {
+    long byPacket = Math.max(1, DatabaseManager.getInstance().getMaxAllowedPacket() / 2 / ID_PARAM_BYTES);
+    return (int) Math.min(Math.min(itemBatchSize, MAX_PLACEHOLDERS / 2), byPacket);
+  }
+  
+  // Column indexes used by mapResultSetToBillItem, resolved once per ResultSet
+  private static final class BillItemColumns {
+    final int id, billId, productId, quantity, unitPrice, totalPrice, name, description, category, barcode;
     
-    return items;
+    BillItemColumns(ResultSet rs) throws SQLException {
+      ResultSetColumns columns = new ResultSetColumns(rs);
+      id = columns.find("id");
+      billId = columns.find("bill_id");
+      productId = columns.find("product_id");
+      quantity = columns.find("quantity");
+      unitPrice = columns.find("unit_price");
+      totalPrice = columns.find("total_price");
+      name = columns.find("name");
+      description = columns.find("description");
+      category = columns.find("category");
+      barcode = columns.find("barcode");
+    }
   }
   
-  private Bill mapResultSetToBill(ResultSet rs) throws SQLException {
-    Bill bill = new Bill();
-    bill.setId(rs.getInt("id"));
-    bill.setCustomerId(rs.getInt("customer_id"));
+  private BillItem mapResultSetToBillItem(ResultSet rs, BillItemColumns columns) throws SQLException {
+    BillItem item = new BillItem();
+    item.setId(rs.getInt(columns.id));
+    item.setBillId(rs.getInt(columns.billId));
+    item.setProductId(rs.getInt(columns.productId));
+    item.setQuantity(rs.getInt(columns.quantity));
+    item.setUnitPrice(rs.getBigDecimal(columns.unitPrice));
+    item.setTotalPrice(rs.getBigDecimal(columns.totalPrice));
     
-    // Handle created_by_user_id if column exists
-    try {
-        bill.setCreatedByUserId(rs.getInt("created_by_user_id"));
-    } catch (SQLException e) {
-        // Ignore if column doesn't exist yet
+    // Create product object
+    Product product = new Product();
+    product.setId(item.getProductId());
+    product.setName(rs.getString(columns.name));
+    product.setDescription(rs.getString(columns.description));
+    product.setCategory(rs.getString(columns.category));
+    product.setBarcode(rs.getString(columns.barcode));
+    product.setPrice(item.getUnitPrice());
+    
+    item.setProduct(product);
+    return item;
+  }
+  
+  // Column indexes used by mapResultSetToBill, resolved once per ResultSet
+  private static final class BillColumns {
+    final int id, customerId, createdByUserId, totalAmount, discountAmount, taxAmount, finalAmount,
+        paymentMethod, status, orderKey, billDate, customerName, email, phone, address;
+    
+    BillColumns(ResultSet rs) throws SQLException {
+      ResultSetColumns columns = new ResultSetColumns(rs);
+      id = columns.find("id");
+      customerId = columns.find("customer_id");
+      createdByUserId = columns.find("created_by_user_id");
+      totalAmount = columns.find("total_amount");
+      discountAmount = columns.find("discount_amount");
+      taxAmount = columns.find("tax_amount");
+      finalAmount = columns.find("final_amount");
+      paymentMethod = columns.find("payment_method");
+      status = columns.find("status");
+      orderKey = columns.find("order_key");
+      billDate = columns.find("bill_date");
+      customerName = columns.find("customer_name");
+      email = columns.find("email");
+      phone = columns.find("phone");
+      address = columns.find("address");
     }
-
-    bill.setTotalAmount(rs.getBigDecimal("total_amount"));
-    bill.setDiscountAmount(rs.getBigDecimal("discount_amount"));
-    bill.setTaxAmount(rs.getBigDecimal("tax_amount"));
-    bill.setFinalAmount(rs.getBigDecimal("final_amount"));
-    bill.setPaymentMethod(rs.getString("payment_method"));
+  }
+  
+  private Bill mapResultSetToBill(ResultSet rs, BillColumns columns) throws SQLException {
+    Bill bill = Bill.stored();
+    bill.setId(rs.getInt(columns.id));
+    bill.setCustomerId(rs.getInt(columns.customerId));
     
-    // Check if status column exists in result set before accessing it
-    try {
-        bill.setStatus(rs.getString("status"));
-    } catch (SQLException e) {
-        // If status column is missing, default to COMPLETED for backward compatibility
-        // or handle as needed. This catch block handles the "Column 'status' not found" error
-        // if the database schema hasn't been updated yet.
-        bill.setStatus("COMPLETED"); 
+    // created_by_user_id may be missing if the schema hasn't been updated yet
+    if (columns.createdByUserId > 0) {
+        bill.setCreatedByUserId(rs.getInt(columns.createdByUserId));
     }
+
+    // No pricer: the stored amounts are what the bill was sold for
+    bill.setTotalAmount(rs.getBigDecimal(columns.totalAmount));
+    bill.setDiscountAmount(rs.getBigDecimal(columns.discountAmount));
+    bill.setTaxAmount(rs.getBigDecimal(columns.taxAmount));
+    bill.setFinalAmount(rs.getBigDecimal(columns.finalAmount));
+    bill.setPaymentMethod(rs.getString(columns.paymentMethod));
+    
+    // If status column is missing (schema not updated yet), default to COMPLETED for backward compatibility
+    bill.setStatus(columns.status > 0 ? rs.getString(columns.status) : "COMPLETED");
+    bill.setOrderKey(columns.orderKey > 0 ? rs.getString(columns.orderKey) : null);
     
-    Timestamp billDate = rs.getTimestamp("bill_date");
+    Timestamp billDate = rs.getTimestamp(columns.billDate);
     if (billDate != null) {
       bill.setBillDate(billDate.toLocalDateTime());
     }
     
     // Set customer if exists
-    String customerName = rs.getString("customer_name");
+    String customerName = rs.getString(columns.customerName);
     if (customerName != null) {
       Customer customer = new Customer();
-      customer.setId(rs.getInt("customer_id"));
+      customer.setId(bill.getCustomerId());
       customer.setName(customerName);
-      customer.setEmail(rs.getString("email"));
-      customer.setPhone(rs.getString("phone"));
-      customer.setAddress(rs.getString("address"));
+      customer.setEmail(rs.getString(columns.email));
+      customer.setPhone(rs.getString(columns.phone));
+      customer.setAddress(rs.getString(columns.address));
       bill.setCustomer(customer);
     }
     
@@ -0,0 +1,200 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.model.Bill;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Optional group-commit write path for new bills.
+ *
+ * While running, saveBill calls from any thread are queued and a single writer
+ * thread commits them together: it takes the first waiting bill, gathers more
+ * until the batch is full or the delay since the first one has passed, and
+ * saves the whole batch in one transaction with multi-row inserts. Checkouts
+ * that arrive together therefore share one commit (and one log flush) instead
+ * of paying for one each. If a batch fails, its bills are retried one by one
+ * so a single bad bill doesn't fail the others.
+ */
+public class BillGroupCommitter {
+  private static BillGroupCommitter instance;
+
+  private static final long IDLE_POLL_MS = 100;
+
+  private final BlockingQueue<PendingBill> queue = new LinkedBlockingQueue<>();
+  private final BillDAO billDAO = new BillDAO();
+  private volatile boolean running;
+  private volatile long maxDelayNanos;
+  private volatile int maxBatchSize;
+  private Thread writer;
+
+  private final AtomicLong batches = new AtomicLong();
+  private final AtomicLong billsCommitted = new AtomicLong();
+  private final AtomicLong batchFailures = new AtomicLong();
+
+  private static final class PendingBill {
+    final Bill bill;
+    final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+    PendingBill(Bill bill) {
+      this.bill = bill;
+    }
+  }
+
+  private BillGroupCommitter() {}
+
+  public static synchronized BillGroupCommitter getInstance() {
+    if (instance == null) {
+      instance = new BillGroupCommitter();
+    }
+    return instance;
+  }
+
+  /**
+   * Starts group commit: a batch is committed once it holds maxBatchSize bills
+   * or maxDelayMillis after its first bill arrived, whichever comes first.
+   */
+  public synchronized void start(long maxDelayMillis, int maxBatchSize) {
+    if (maxDelayMillis < 0 || maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Delay must not be negative and batch size must be positive");
+    }
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    this.maxBatchSize = maxBatchSize;
+    if (running) {
+      return;
+    }
+    running = true;
+    writer = new Thread(this::drain, "bill-group-commit");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Stops accepting bills and waits for the ones already queued to be committed.
+   */
+  public void stop() {
+    Thread stopping;
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+      running = false;
+      stopping = writer;
+      writer = null;
+    }
+    try {
+      stopping.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Queues the bill and completes with its generated id once committed, or
+   * exceptionally if it could not be saved. When group commit is off the bill
+   * is saved right away on the calling thread.
+   */
+  public CompletableFuture<Integer> submit(Bill bill) {
+    synchronized (this) {
+      if (running) {
+        PendingBill pending = new PendingBill(bill);
+        queue.add(pending);
+        return pending.result;
+      }
+    }
+    PendingBill direct = new PendingBill(bill);
+    saveAlone(direct);
+    return direct.result;
+  }
+
+  private void drain() {
+    List<PendingBill> batch = new ArrayList<>();
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingBill first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+          long wait = deadline - System.nanoTime();
+          PendingBill next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        // Nothing interrupts the writer on purpose; commit what was gathered and carry on
+      }
+      if (!batch.isEmpty()) {
+        commit(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private void commit(List<PendingBill> batch) {
+    if (batch.size() == 1) {
+      saveAlone(batch.get(0));
+      return;
+    }
+
+    List<Bill> bills = new ArrayList<>(batch.size());
+    for (PendingBill pending : batch) {
+      bills.add(pending.bill);
+    }
+    try {
+      billDAO.saveBills(bills);
+    } catch (SQLException e) {
+      System.err.println("Error saving batch of " + batch.size() + " bills, retrying one by one: " + e.getMessage());
+      batchFailures.incrementAndGet();
+      batch.forEach(this::saveAlone);
+      return;
+    }
+    batches.incrementAndGet();
+    billsCommitted.addAndGet(batch.size());
+    for (PendingBill pending : batch) {
+      pending.result.complete(pending.bill.getId());
+    }
+  }
+
+  private void saveAlone(PendingBill pending) {
+    try {
+      billDAO.saveBills(List.of(pending.bill));
+      batches.incrementAndGet();
+      billsCommitted.incrementAndGet();
+      pending.result.complete(pending.bill.getId());
+    } catch (SQLException e) {
+      System.err.println("Error saving bill: " + e.getMessage());
+      pending.result.completeExceptionally(e);
+    }
+  }
+
+  public int getQueueDepth() {
+    return queue.size();
+  }
+
+  public long getBatchCount() {
+    return batches.get();
+  }
+
+  public long getCommittedBillCount() {
+    return billsCommitted.get();
+  }
+
+  public long getBatchFailureCount() {
+    return batchFailures.get();
+  }
+}
@@ -0,0 +1,41 @@
+package com.shopbilling.dao;
+
+/**
+ * Point-in-time snapshot of {@link ProductCache} counters for monitoring.
+ */
+public class CacheStats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long fullLoads;
+  private final long pollRefreshes;
+  private final int size;
+
+  public CacheStats(long hits, long misses, long evictions, long fullLoads, long pollRefreshes, int size) {
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.fullLoads = fullLoads;
+    this.pollRefreshes = pollRefreshes;
+    this.size = size;
+  }
+
+  public long getHits() { return hits; }
+  public long getMisses() { return misses; }
+  public long getEvictions() { return evictions; }
+  public long getFullLoads() { return fullLoads; }
+  public long getPollRefreshes() { return pollRefreshes; }
+  public int getSize() { return size; }
+
+  public double getHitRate() {
+    long total = hits + misses;
+    return total == 0 ? 0.0 : (double) hits / total;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{hits=" + hits + ", misses=" + misses + ", evictions=" + evictions
+        + ", fullLoads=" + fullLoads + ", pollRefreshes=" + pollRefreshes + ", size=" + size
+        + ", hitRate=" + String.format("%.3f", getHitRate()) + "}";
+  }
+}
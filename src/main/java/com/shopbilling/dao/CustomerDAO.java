@@ -8,15 +8,12 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class CustomerDAO {
-  private final Connection connection;
-  
-  public CustomerDAO() {
-    this.connection = DatabaseManager.getInstance().getConnection();
-  }
-  
+  private final CustomerSearchCache searchCache = CustomerSearchCache.getInstance();
+
   public int getTotalCustomers() {
     String query = "SELECT COUNT(*) FROM customers";
-    try (PreparedStatement stmt = connection.prepareStatement(query);
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
          ResultSet rs = stmt.executeQuery()) {
       if (rs.next()) {
         return rs.getInt(1);
@@ -31,7 +28,8 @@ public class CustomerDAO {
     List<Customer> customers = new ArrayList<>();
     String query = "SELECT * FROM customers ORDER BY name";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query);
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
          ResultSet rs = stmt.executeQuery()) {
       
       while (rs.next()) {
@@ -47,7 +45,8 @@ public class CustomerDAO {
   public Customer getCustomerById(int id) {
     String query = "SELECT * FROM customers WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setInt(1, id);
       
       try (ResultSet rs = stmt.executeQuery()) {
@@ -65,7 +64,8 @@ public class CustomerDAO {
   public Customer login(String username, String password) {
     String query = "SELECT * FROM customers WHERE username = ? AND password = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setString(1, username);
       stmt.setString(2, password);
       
@@ -81,11 +81,25 @@ public class CustomerDAO {
     return null;
   }
   
+  /**
+   * Substring search over name, email, phone and username, ordered by name.
+   * Served from the in-memory {@link CustomerSearchCache}.
+   */
   public List<Customer> searchCustomers(String searchTerm) {
+    List<Customer> customers = searchCache.search(searchTerm);
+    if (!searchCache.isLoaded()) {
+      return searchCustomersSql(searchTerm);
+    }
+    return customers;
+  }
+  
+  // Fallback used when the directory could not be loaded into memory
+  private List<Customer> searchCustomersSql(String searchTerm) {
     List<Customer> customers = new ArrayList<>();
     String query = "SELECT * FROM customers WHERE name LIKE ? OR email LIKE ? OR phone LIKE ? OR username LIKE ? ORDER BY name";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       String searchPattern = "%" + searchTerm + "%";
       stmt.setString(1, searchPattern);
       stmt.setString(2, searchPattern);
@@ -107,7 +121,8 @@ public class CustomerDAO {
   public boolean addCustomer(Customer customer) {
     String query = "INSERT INTO customers (name, username, email, phone, address, password) VALUES (?, ?, ?, ?, ?, ?)";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
       stmt.setString(1, customer.getName());
       stmt.setString(2, customer.getUsername());
       stmt.setString(3, customer.getEmail());
@@ -121,6 +136,7 @@ public class CustomerDAO {
         try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
           if (generatedKeys.next()) {
             customer.setId(generatedKeys.getInt(1));
+            searchCache.refresh(customer.getId());
           }
         }
         return true;
@@ -135,7 +151,8 @@ public class CustomerDAO {
   public boolean updateCustomer(Customer customer) {
     String query = "UPDATE customers SET name = ?, username = ?, email = ?, phone = ?, address = ?, password = ? WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setString(1, customer.getName());
       stmt.setString(2, customer.getUsername());
       stmt.setString(3, customer.getEmail());
@@ -144,7 +161,11 @@ public class CustomerDAO {
       stmt.setString(6, customer.getPassword());
       stmt.setInt(7, customer.getId());
       
-      return stmt.executeUpdate() > 0;
+      boolean updated = stmt.executeUpdate() > 0;
+      if (updated) {
+        searchCache.refresh(customer.getId());
+      }
+      return updated;
     } catch (SQLException e) {
       System.err.println("Error updating customer: " + e.getMessage());
     }
@@ -155,9 +176,14 @@ public class CustomerDAO {
   public boolean deleteCustomer(int id) {
     String query = "DELETE FROM customers WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setInt(1, id);
-      return stmt.executeUpdate() > 0;
+      boolean deleted = stmt.executeUpdate() > 0;
+      if (deleted) {
+        searchCache.evict(id);
+      }
+      return deleted;
     } catch (SQLException e) {
       System.err.println("Error deleting customer: " + e.getMessage());
     }
@@ -165,7 +191,7 @@ public class CustomerDAO {
     return false;
   }
   
-  private Customer mapResultSetToCustomer(ResultSet rs) throws SQLException {
+  static Customer mapResultSetToCustomer(ResultSet rs) throws SQLException {
     Customer customer = new Customer();
     customer.setId(rs.getInt("id"));
     customer.setName(rs.getString("name"));
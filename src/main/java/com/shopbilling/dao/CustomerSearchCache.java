@@ -0,0 +1,216 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.index.PhoneIndex;
+import com.shopbilling.index.TrigramIndex;
+import com.shopbilling.model.Customer;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory customer directory behind CustomerDAO.searchCustomers: a trigram
+ * index over name, email, phone and username plus a digits-only phone index.
+ *
+ * CustomerDAO refreshes entries after its own writes; rows changed by other
+ * terminals are caught up from updated_at at most every few seconds, on the
+ * next search. The cached Customer instances are what the indexes were built
+ * from, so search returns copies the caller may edit.
+ */
+public class CustomerSearchCache {
+  // How long the directory is trusted before checking for other terminals' changes
+  private static final long SYNC_INTERVAL_MS = 5_000;
+
+  // Same order as ORDER BY name under MySQL's case-insensitive collation
+  private static final Comparator<Customer> BY_NAME =
+      Comparator.comparing(Customer::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+
+  private static CustomerSearchCache instance;
+
+  private final Map<Integer, Customer> byId = new ConcurrentHashMap<>();
+  private final TrigramIndex textIndex = new TrigramIndex();
+  private final PhoneIndex phoneIndex = new PhoneIndex();
+  private volatile boolean loaded;
+  private volatile long lastSyncAt;
+  private volatile Timestamp lastSeenUpdate;
+
+  private CustomerSearchCache() {}
+
+  public static synchronized CustomerSearchCache getInstance() {
+    if (instance == null) {
+      instance = new CustomerSearchCache();
+    }
+    return instance;
+  }
+
+  public boolean isLoaded() {
+    return loaded;
+  }
+
+  /**
+   * Customers with name, email, phone or username containing the term (case-insensitive),
+   * ordered by name. A term made of digits also matches phone numbers regardless of formatting.
+   */
+  public List<Customer> search(String searchTerm) {
+    sync();
+    TreeSet<Integer> ids = new TreeSet<>();
+    for (int id : textIndex.search(searchTerm)) {
+      ids.add(id);
+    }
+    if (isPhoneQuery(searchTerm)) {
+      for (int id : phoneIndex.search(searchTerm)) {
+        ids.add(id);
+      }
+    }
+
+    List<Customer> customers = new ArrayList<>(ids.size());
+    for (int id : ids) {
+      Customer customer = byId.get(id);
+      if (customer != null) {
+        customers.add(new Customer(customer));
+      }
+    }
+    customers.sort(BY_NAME);
+    return customers;
+  }
+
+  /**
+   * Re-reads one customer after it was written, or drops it if it no longer exists.
+   */
+  public void refresh(int id) {
+    if (!loaded) {
+      return;
+    }
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement("SELECT * FROM customers WHERE id = ?")) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (rs.next()) {
+          put(CustomerDAO.mapResultSetToCustomer(rs));
+        } else {
+          evict(id);
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error refreshing cached customer: " + e.getMessage());
+      // Can't tell what the row looks like now; reload on the next search
+      loaded = false;
+    }
+  }
+
+  public synchronized void evict(int id) {
+    byId.remove(id);
+    textIndex.remove(id);
+    phoneIndex.remove(id);
+  }
+
+  public synchronized void invalidateAll() {
+    loaded = false;
+  }
+
+  private void sync() {
+    if (!loaded) {
+      reload();
+    } else if (System.currentTimeMillis() - lastSyncAt >= SYNC_INTERVAL_MS) {
+      catchUp();
+    }
+  }
+
+  private synchronized void reload() {
+    if (loaded) {
+      return;
+    }
+    List<Customer> customers = new ArrayList<>();
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement("SELECT * FROM customers ORDER BY id");
+         ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        customers.add(CustomerDAO.mapResultSetToCustomer(rs));
+      }
+    } catch (SQLException e) {
+      System.err.println("Error loading customer directory: " + e.getMessage());
+      return;
+    }
+
+    byId.clear();
+    textIndex.clear();
+    phoneIndex.clear();
+    lastSeenUpdate = null;
+    for (Customer customer : customers) {
+      put(customer);
+    }
+    lastSyncAt = System.currentTimeMillis();
+    loaded = true;
+  }
+
+  // Applies rows changed elsewhere since the last sync; deletions show up as a row count mismatch
+  private synchronized void catchUp() {
+    if (System.currentTimeMillis() - lastSyncAt < SYNC_INTERVAL_MS) {
+      return;
+    }
+    // updated_at has one-second resolution, so re-read the last second we saw
+    Timestamp since = lastSeenUpdate;
+    String changedQuery = since != null
+        ? "SELECT * FROM customers WHERE updated_at >= ?"
+        : "SELECT * FROM customers";
+    try (Connection connection = DatabaseManager.getInstance().getConnection()) {
+      int rowCount;
+      try (PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM customers");
+           ResultSet rs = stmt.executeQuery()) {
+        rowCount = rs.next() ? rs.getInt(1) : 0;
+      }
+
+      try (PreparedStatement stmt = connection.prepareStatement(changedQuery)) {
+        if (since != null) {
+          stmt.setTimestamp(1, since);
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+          while (rs.next()) {
+            put(CustomerDAO.mapResultSetToCustomer(rs));
+          }
+        }
+      }
+      lastSyncAt = System.currentTimeMillis();
+
+      if (rowCount != byId.size()) {
+        loaded = false;
+        reload();
+      }
+    } catch (SQLException e) {
+      // Keep serving the current contents; try again on the next search
+      System.err.println("Error syncing customer directory: " + e.getMessage());
+    }
+  }
+
+  private synchronized void put(Customer customer) {
+    byId.put(customer.getId(), customer);
+    textIndex.put(customer.getId(), customer.getName(), customer.getEmail(), customer.getPhone(), customer.getUsername());
+    phoneIndex.put(customer.getId(), customer.getPhone());
+    Timestamp updatedAt = customer.getUpdatedAt() != null ? Timestamp.valueOf(customer.getUpdatedAt()) : null;
+    if (updatedAt != null && (lastSeenUpdate == null || updatedAt.after(lastSeenUpdate))) {
+      lastSeenUpdate = updatedAt;
+    }
+  }
+
+  // Digits plus the usual phone separators, e.g. "98765", "+91 98765-43210"
+  private static boolean isPhoneQuery(String term) {
+    if (term == null || term.isBlank()) {
+      return false;
+    }
+    boolean hasDigit = false;
+    for (int i = 0; i < term.length(); i++) {
+      char c = term.charAt(i);
+      if (c >= '0' && c <= '9') {
+        hasDigit = true;
+      } else if (" +-().".indexOf(c) < 0) {
+        return false;
+      }
+    }
+    return hasDigit;
+  }
+}
@@ -0,0 +1,440 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.index.BarcodeIndex;
+import com.shopbilling.index.CategoryIndex;
+import com.shopbilling.index.InvertedIndex;
+import com.shopbilling.index.PrefixIndex;
+import com.shopbilling.index.ProductIndex;
+import com.shopbilling.index.SortedView;
+import com.shopbilling.model.Product;
+import com.shopbilling.tax.TaxEngine;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through, process-wide cache of the product catalog, keyed by id and barcode
+ * (through a primitive {@link BarcodeIndex} for the scanner path).
+ *
+ * The whole catalog is loaded on first use. ProductDAO refreshes individual
+ * entries after every product write in this process; changes made by other
+ * terminals are picked up by the optional updated_at poller.
+ *
+ * Change listeners run after every change to the cached catalog, whatever
+ * caused it (a product edit, a stock deduction at checkout, a reload), so
+ * caches built on top of this one can drop what they hold.
+ *
+ * The cached Product instances are private to the cache and are what the
+ * indexes were built from; callers only ever get copies, so editing a
+ * product in place can't leave an index keyed on values it no longer has.
+ * The views and indexes returned by the getters below hold the cached
+ * instances and are for ProductDAO, which copies before returning.
+ */
+public class ProductCache {
+  private static ProductCache instance;
+
+  private final Map<Integer, Product> byId = new ConcurrentHashMap<>();
+  private final BarcodeIndex barcodeIndex = new BarcodeIndex();
+  private final PrefixIndex prefixIndex = new PrefixIndex();
+  private final InvertedIndex invertedIndex = new InvertedIndex();
+  private final SortedView viewByName = new SortedView(ProductDAO.BY_NAME);
+  private final SortedView viewByLatest = new SortedView(ProductDAO.BY_LATEST);
+  private final SortedView viewByPrice = new SortedView(ProductDAO.BY_PRICE);
+  private final CategoryIndex categoryIndex = new CategoryIndex();
+  private final List<ProductIndex> indexes =
+      List.of(prefixIndex, invertedIndex, viewByName, viewByLatest, viewByPrice, categoryIndex, TaxEngine.getInstance());
+  private volatile boolean fullyLoaded;
+  private volatile Timestamp lastSeenUpdate;
+  private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong fullLoads = new AtomicLong();
+  private final AtomicLong pollRefreshes = new AtomicLong();
+
+  private ScheduledExecutorService poller;
+  private ScheduledFuture<?> pollTask;
+
+  private ProductCache() {}
+
+  public static synchronized ProductCache getInstance() {
+    if (instance == null) {
+      instance = new ProductCache();
+    }
+    return instance;
+  }
+
+  // Once the whole catalog is loaded a miss is an answer: writes here refresh the
+  // cache and the poller brings in other terminals' rows, so misses don't go to MySQL
+  public Product getById(int id) {
+    Product product = byId.get(id);
+    if (product != null || fullyLoaded) {
+      hits.incrementAndGet();
+      return product != null ? new Product(product) : null;
+    }
+    misses.incrementAndGet();
+    return loadOne("SELECT * FROM products WHERE id = ?", stmt -> stmt.setInt(1, id));
+  }
+
+  public Product getByBarcode(String barcode) {
+    if (barcode == null) {
+      return null;
+    }
+    int id = barcodeIndex.get(barcode);
+    Product product = id != BarcodeIndex.NOT_FOUND ? byId.get(id) : null;
+    if (product != null || fullyLoaded) {
+      hits.incrementAndGet();
+      return product != null ? new Product(product) : null;
+    }
+    misses.incrementAndGet();
+    return loadOne("SELECT * FROM products WHERE barcode = ?", stmt -> stmt.setString(1, barcode));
+  }
+
+  public boolean containsBarcode(String barcode) {
+    if (barcode != null && fullyLoaded) {
+      hits.incrementAndGet();
+      return barcodeIndex.contains(barcode);
+    }
+    return getByBarcode(barcode) != null;
+  }
+
+  /**
+   * Copies of all cached products in no particular order. Loads the catalog on first use.
+   */
+  public List<Product> getAll() {
+    ensureLoaded();
+    if (fullyLoaded) {
+      hits.incrementAndGet();
+    }
+    return copies(byId.values());
+  }
+
+  static List<Product> copies(Collection<Product> products) {
+    List<Product> copies = new ArrayList<>(products.size());
+    for (Product product : products) {
+      copies.add(new Product(product));
+    }
+    return copies;
+  }
+
+  public int size() {
+    ensureLoaded();
+    return byId.size();
+  }
+
+  public void addChangeListener(Runnable listener) {
+    changeListeners.add(listener);
+  }
+
+  private void fireChanged() {
+    for (Runnable listener : changeListeners) {
+      listener.run();
+    }
+  }
+
+  public boolean isLoaded() {
+    return fullyLoaded;
+  }
+
+  public void ensureLoaded() {
+    if (!fullyLoaded) {
+      reload();
+    }
+  }
+
+  /**
+   * Replaces the cache contents with a fresh copy of the products table.
+   */
+  public synchronized void reload() {
+    List<Product> products = new ArrayList<>();
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement("SELECT * FROM products");
+         ResultSet rs = stmt.executeQuery()) {
+      ProductDAO.ProductColumns columns = new ProductDAO.ProductColumns(rs);
+      while (rs.next()) {
+        products.add(ProductDAO.mapResultSetToProduct(rs, columns));
+      }
+    } catch (SQLException e) {
+      System.err.println("Error loading product cache: " + e.getMessage());
+      return;
+    }
+
+    install(products);
+  }
+
+  /**
+   * Fills the cache from a local catalog snapshot while MySQL can't be reached.
+   * The next successful reload replaces it.
+   */
+  public synchronized void loadSnapshot(List<Product> products) {
+    install(copies(products));
+  }
+
+  private void install(List<Product> products) {
+    byId.clear();
+    barcodeIndex.clear();
+    lastSeenUpdate = null;
+    for (Product product : products) {
+      putEntry(product);
+    }
+    for (ProductIndex index : indexes) {
+      index.rebuild(products);
+    }
+    fullLoads.incrementAndGet();
+    fullyLoaded = true;
+    fireChanged();
+  }
+
+  /**
+   * Re-reads one product after it was written, or drops it if it no longer exists.
+   */
+  public void refresh(int id) {
+    Product product = null;
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement("SELECT * FROM products WHERE id = ?")) {
+      stmt.setInt(1, id);
+      try (ResultSet rs = stmt.executeQuery()) {
+        ProductDAO.ProductColumns columns = new ProductDAO.ProductColumns(rs);
+        if (rs.next()) {
+          product = ProductDAO.mapResultSetToProduct(rs, columns);
+        }
+      }
+    } catch (SQLException e) {
+      // Can't tell what the row looks like now, so don't keep a stale copy
+      System.err.println("Error refreshing cached product: " + e.getMessage());
+    }
+
+    synchronized (this) {
+      if (product != null) {
+        put(product);
+      } else {
+        evict(id);
+      }
+    }
+  }
+
+  /**
+   * Re-reads several products with one IN-list query, e.g. after a stock deduction.
+   */
+  public void refreshAll(Collection<Integer> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    List<Integer> idList = new ArrayList<>(ids);
+    List<Product> products = new ArrayList<>();
+    String query = "SELECT * FROM products WHERE id IN (" + SqlFragments.inList(idList.size()) + ")";
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      SqlFragments.bindPadded(stmt, 1, idList);
+      try (ResultSet rs = stmt.executeQuery()) {
+        ProductDAO.ProductColumns columns = new ProductDAO.ProductColumns(rs);
+        while (rs.next()) {
+          products.add(ProductDAO.mapResultSetToProduct(rs, columns));
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error refreshing cached products: " + e.getMessage());
+      idList.forEach(this::evict);
+      return;
+    }
+
+    synchronized (this) {
+      Set<Integer> missing = new HashSet<>(idList);
+      for (Product product : products) {
+        put(product);
+        missing.remove(product.getId());
+      }
+      missing.forEach(this::evict);
+    }
+  }
+
+  public synchronized void evict(int id) {
+    Product removed = byId.remove(id);
+    if (removed != null) {
+      if (removed.getBarcode() != null) {
+        barcodeIndex.remove(removed.getBarcode(), id);
+      }
+      for (ProductIndex index : indexes) {
+        index.remove(removed);
+      }
+      evictions.incrementAndGet();
+      fireChanged();
+    }
+  }
+
+  public synchronized void invalidateAll() {
+    evictions.addAndGet(byId.size());
+    byId.clear();
+    barcodeIndex.clear();
+    for (ProductIndex index : indexes) {
+      index.rebuild(List.of());
+    }
+    fullyLoaded = false;
+    fireChanged();
+  }
+
+  private synchronized void put(Product product) {
+    Product previous = putEntry(product);
+    for (ProductIndex index : indexes) {
+      if (previous != null) {
+        index.update(previous, product);
+      } else {
+        index.add(product);
+      }
+    }
+    fireChanged();
+  }
+
+  // Updates the maps and barcode index only; returns the entry that was replaced.
+  // That entry is the cache's own instance, so its barcode is the one it was indexed under.
+  private Product putEntry(Product product) {
+    Product previous = byId.put(product.getId(), product);
+    if (previous != null && previous.getBarcode() != null && !previous.getBarcode().equals(product.getBarcode())) {
+      barcodeIndex.remove(previous.getBarcode(), product.getId());
+    }
+    barcodeIndex.put(product.getBarcode(), product.getId());
+    Timestamp updatedAt = product.getUpdatedAt() != null ? Timestamp.valueOf(product.getUpdatedAt()) : null;
+    if (updatedAt != null && (lastSeenUpdate == null || updatedAt.after(lastSeenUpdate))) {
+      lastSeenUpdate = updatedAt;
+    }
+    return previous;
+  }
+
+  private interface Binder {
+    void bind(PreparedStatement stmt) throws SQLException;
+  }
+
+  private Product loadOne(String query, Binder binder) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      binder.bind(stmt);
+      try (ResultSet rs = stmt.executeQuery()) {
+        ProductDAO.ProductColumns columns = new ProductDAO.ProductColumns(rs);
+        if (rs.next()) {
+          Product product = ProductDAO.mapResultSetToProduct(rs, columns);
+          put(product);
+          return new Product(product);
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error loading product into cache: " + e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Starts polling products.updated_at so changes from other terminals are picked up.
+   */
+  public synchronized void startPolling(long intervalMillis) {
+    stopPolling();
+    if (poller == null) {
+      poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "product-cache-poller");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    pollTask = poller.scheduleWithFixedDelay(this::pollForChanges, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stopPolling() {
+    if (pollTask != null) {
+      pollTask.cancel(false);
+      pollTask = null;
+    }
+  }
+
+  void pollForChanges() {
+    if (!fullyLoaded) {
+      return;
+    }
+
+    // updated_at has one-second resolution, so re-read the last second we saw
+    Timestamp since = lastSeenUpdate;
+    String changedQuery = since != null
+        ? "SELECT * FROM products WHERE updated_at >= ?"
+        : "SELECT * FROM products";
+    try (Connection connection = DatabaseManager.getInstance().getConnection()) {
+      // Deletions don't bump updated_at; a row count mismatch means something was removed elsewhere
+      int rowCount;
+      try (PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM products");
+           ResultSet rs = stmt.executeQuery()) {
+        rowCount = rs.next() ? rs.getInt(1) : 0;
+      }
+
+      List<Product> changed = new ArrayList<>();
+      try (PreparedStatement stmt = connection.prepareStatement(changedQuery)) {
+        if (since != null) {
+          stmt.setTimestamp(1, since);
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+          ProductDAO.ProductColumns columns = new ProductDAO.ProductColumns(rs);
+          while (rs.next()) {
+            changed.add(ProductDAO.mapResultSetToProduct(rs, columns));
+          }
+        }
+      }
+
+      synchronized (this) {
+        for (Product product : changed) {
+          put(product);
+        }
+      }
+      pollRefreshes.addAndGet(changed.size());
+
+      if (rowCount != byId.size()) {
+        reload();
+      }
+    } catch (SQLException e) {
+      System.err.println("Error polling product changes: " + e.getMessage());
+    }
+  }
+
+  public PrefixIndex getPrefixIndex() {
+    ensureLoaded();
+    return prefixIndex;
+  }
+
+  public InvertedIndex getInvertedIndex() {
+    ensureLoaded();
+    return invertedIndex;
+  }
+
+  public SortedView getViewByName() {
+    ensureLoaded();
+    return viewByName;
+  }
+
+  public SortedView getViewByLatest() {
+    ensureLoaded();
+    return viewByLatest;
+  }
+
+  public SortedView getViewByPrice() {
+    ensureLoaded();
+    return viewByPrice;
+  }
+
+  public CategoryIndex getCategoryIndex() {
+    ensureLoaded();
+    return categoryIndex;
+  }
+
+  public CacheStats getStats() {
+    return new CacheStats(hits.get(), misses.get(), evictions.get(), fullLoads.get(), pollRefreshes.get(), byId.size());
+  }
+}
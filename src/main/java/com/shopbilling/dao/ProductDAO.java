@@ -1,176 +1,349 @@
 package com.shopbilling.dao;
 
 import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.index.CategoryIndex;
+import com.shopbilling.index.CompactBitmap;
+import com.shopbilling.index.InvertedIndex;
+import com.shopbilling.index.PrefixIndex;
+import com.shopbilling.index.SortedView;
 import com.shopbilling.model.Product;
+import com.shopbilling.model.StockShortfall;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class ProductDAO {
-  private final Connection connection;
+
+  // Same order as ORDER BY name under MySQL's case-insensitive collation
+  static final Comparator<Product> BY_NAME =
+      Comparator.comparing(Product::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+  static final Comparator<Product> BY_LATEST =
+      Comparator.comparing(Product::getCreatedAt, Comparator.nullsLast(Comparator.<LocalDateTime>reverseOrder()));
+  static final Comparator<Product> BY_PRICE =
+      Comparator.comparing(Product::getPrice, Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder()));
   
-  public ProductDAO() {
-    this.connection = DatabaseManager.getInstance().getConnection();
-  }
+  private final ProductCache cache = ProductCache.getInstance();
+  private final ProductSalesDAO salesDAO = new ProductSalesDAO();
   
   public int getTotalProducts() {
-    String query = "SELECT COUNT(*) FROM products";
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      if (rs.next()) {
-        return rs.getInt(1);
-      }
-    } catch (SQLException e) {
-      System.err.println("Error getting total products: " + e.getMessage());
-    }
-    return 0;
+    return cache.size();
   }
 
   public List<Product> getAllProducts() {
-    List<Product> products = new ArrayList<>();
-    String query = "SELECT * FROM products ORDER BY name";
+    return ProductCache.copies(cache.getViewByName().all());
+  }
+  
+  public List<Product> getAllProductsSorted(String sortOption) {
+    return getProductsSorted(sortOption, null);
+  }
+  
+  /**
+   * The catalog in a sortComboBox order, optionally limited to one category
+   * (null or blank for all). Served from precomputed views over the product
+   * cache without sorting; the products are copies the caller may edit, the
+   * only per-row allocation (Product is mutable, so the cached instances
+   * can't be handed out).
+   */
+  public List<Product> getProductsSorted(String sortOption, String category, boolean inStockOnly) {
+    List<Product> products = cachedSorted(sortOption, category);
+    if (!inStockOnly) {
+      return ProductCache.copies(products);
+    }
     
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      
-      while (rs.next()) {
-        products.add(mapResultSetToProduct(rs));
+    // Filter before copying, so out-of-stock rows cost nothing
+    CategoryIndex facets = cache.getCategoryIndex();
+    List<Product> inStock = new ArrayList<>();
+    for (Product product : products) {
+      if (facets.matches(product.getId(), null, true)) {
+        inStock.add(new Product(product));
       }
-    } catch (SQLException e) {
-      System.err.println("Error fetching products: " + e.getMessage());
     }
-    
-    return products;
+    return inStock;
   }
   
-  public List<Product> getAllProductsSorted(String sortOption) {
-    List<Product> products = new ArrayList<>();
-    String orderByClause = "ORDER BY name"; // Default
+  public List<Product> getProductsSorted(String sortOption, String category) {
+    return ProductCache.copies(cachedSorted(sortOption, category));
+  }
+  
+  // The cache's own instances in the given order; copy before handing them out
+  private List<Product> cachedSorted(String sortOption, String category) {
+    SortedView view;
     
     switch (sortOption) {
         case "Latest":
-            orderByClause = "ORDER BY created_at DESC";
+            view = cache.getViewByLatest();
             break;
         case "Price: Low to High":
-            orderByClause = "ORDER BY price ASC";
+            view = cache.getViewByPrice();
             break;
         case "Popularity":
-            // Assuming popularity is based on stock quantity for now, or we could join with bill_items
-            // For simplicity, let's just order by stock quantity descending as a placeholder
-            // A better implementation would be: 
-            // SELECT p.*, SUM(bi.quantity) as total_sold FROM products p LEFT JOIN bill_items bi ON p.id = bi.product_id GROUP BY p.id ORDER BY total_sold DESC
-             orderByClause = "ORDER BY stock_quantity DESC"; 
-            break;
+            return inRankingOrder(salesDAO.getRanking().getProductIdsByUnitsSold(), category);
+        case "Trending":
+            return inRankingOrder(salesDAO.getRanking().getProductIdsByTrending(), category);
         default:
-            orderByClause = "ORDER BY name";
+            view = cache.getViewByName();
     }
     
-    String query = "SELECT * FROM products " + orderByClause;
+    return category == null || category.isBlank() ? view.all() : view.inCategory(category);
+  }
+  
+  // Ranked products first, in ranking order, then everything that has never sold by name
+  private List<Product> inRankingOrder(int[] rankedIds, String category) {
+    List<Product> candidates = category == null || category.isBlank()
+        ? cache.getViewByName().all()
+        : cache.getViewByName().inCategory(category);
+    Map<Integer, Product> remaining = new HashMap<>();
+    for (Product product : candidates) {
+      remaining.put(product.getId(), product);
+    }
     
-    try (PreparedStatement stmt = connection.prepareStatement(query);
-         ResultSet rs = stmt.executeQuery()) {
-      
-      while (rs.next()) {
-        products.add(mapResultSetToProduct(rs));
+    List<Product> products = new ArrayList<>(remaining.size());
+    for (int id : rankedIds) {
+      Product product = remaining.remove(id);
+      if (product != null) {
+        products.add(product);
+      }
+    }
+    // Still in name order, since the candidates came from the name view
+    for (Product product : candidates) {
+      if (remaining.containsKey(product.getId())) {
+        products.add(product);
       }
-    } catch (SQLException e) {
-      System.err.println("Error fetching sorted products: " + e.getMessage());
     }
-    
     return products;
   }
   
   public Product getProductById(int id) {
-    String query = "SELECT * FROM products WHERE id = ?";
+    return cache.getById(id);
+  }
+  
+  public Product getProductByBarcode(String barcode) {
+    return cache.getByBarcode(barcode);
+  }
+  
+  public boolean isBarcodeExists(String barcode) {
+    return cache.containsBarcode(barcode);
+  }
+
+  /**
+   * Keyword search over name, category and description. Every word of the term
+   * must prefix a word of the product; name matches rank first, then by name.
+   * Served from the in-memory inverted index.
+   */
+  public List<Product> searchProducts(String searchTerm) {
+    return searchProducts(searchTerm, null);
+  }
+  
+  /**
+   * searchProducts whose SQL fallback can be aborted through the canceller
+   * (null for none); a cancelled search returns an empty list.
+   */
+  public List<Product> searchProducts(String searchTerm, QueryCanceller canceller) {
+    InvertedIndex index = cache.getInvertedIndex();
+    if (!cache.isLoaded()) {
+      return searchProductsSql(searchTerm, canceller);
+    }
+    if (InvertedIndex.tokenize(searchTerm).length == 0) {
+      // Blank matches everything; punctuation-only terms keep the substring semantics
+      return searchTerm == null || searchTerm.isBlank() ? getAllProducts() : searchProductsSql(searchTerm, canceller);
+    }
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      stmt.setInt(1, id);
-      
-      try (ResultSet rs = stmt.executeQuery()) {
-        if (rs.next()) {
-          return mapResultSetToProduct(rs);
+    List<InvertedIndex.ScoredMatch> matches = index.search(searchTerm);
+    Map<Integer, Integer> scores = new HashMap<>();
+    List<Product> products = new ArrayList<>(matches.size());
+    for (InvertedIndex.ScoredMatch match : matches) {
+      Product product = cache.getById(match.getProductId());
+      if (product != null) {
+        scores.put(product.getId(), match.getScore());
+        products.add(product);
+      }
+    }
+    products.sort(Comparator.comparingInt((Product p) -> -scores.get(p.getId())).thenComparing(BY_NAME));
+    return products;
+  }
+  
+  /**
+   * searchProducts limited to one category (null or blank for any) and,
+   * optionally, to products in stock.
+   */
+  public List<Product> searchProducts(String searchTerm, String category, boolean inStockOnly) {
+    return searchProducts(searchTerm, category, inStockOnly, null);
+  }
+  
+  public List<Product> searchProducts(String searchTerm, String category, boolean inStockOnly, QueryCanceller canceller) {
+    List<Product> products = searchProducts(searchTerm, canceller);
+    if (!cache.isLoaded()) {
+      products.removeIf(product -> !matchesFilters(product, category, inStockOnly));
+      return products;
+    }
+    
+    CategoryIndex facets = cache.getCategoryIndex();
+    products.removeIf(product -> !facets.matches(product.getId(), category, inStockOnly));
+    return products;
+  }
+  
+  /**
+   * Number of products per category, ordered by category name, for the category filter.
+   */
+  public Map<String, Integer> getCategoryCounts(boolean inStockOnly) {
+    CategoryIndex facets = cache.getCategoryIndex();
+    if (!cache.isLoaded()) {
+      return getCategoryCountsSql(inStockOnly);
+    }
+    return facets.getCounts(inStockOnly);
+  }
+  
+  /**
+   * Number of search results per category, ordered by category name.
+   */
+  public Map<String, Integer> getCategoryCounts(String searchTerm, boolean inStockOnly) {
+    List<Product> results = searchProducts(searchTerm);
+    if (!cache.isLoaded()) {
+      Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (Product product : results) {
+        if (matchesFilters(product, null, inStockOnly) && product.getCategory() != null && !product.getCategory().isBlank()) {
+          counts.merge(product.getCategory().trim(), 1, Integer::sum);
         }
       }
-    } catch (SQLException e) {
-      System.err.println("Error fetching product by ID: " + e.getMessage());
+      return new LinkedHashMap<>(counts);
     }
     
-    return null;
+    CompactBitmap within = new CompactBitmap();
+    for (Product product : results) {
+      within.add(product.getId());
+    }
+    return cache.getCategoryIndex().getCounts(within, inStockOnly);
   }
   
-  public Product getProductByBarcode(String barcode) {
-    String query = "SELECT * FROM products WHERE barcode = ?";
+  private static boolean matchesFilters(Product product, String category, boolean inStockOnly) {
+    if (inStockOnly && product.getStockQuantity() <= 0) {
+      return false;
+    }
+    return category == null || category.isBlank()
+        || (product.getCategory() != null && product.getCategory().trim().equalsIgnoreCase(category.trim()));
+  }
+  
+  // Fallback used when the catalog could not be loaded into memory
+  private Map<String, Integer> getCategoryCountsSql(boolean inStockOnly) {
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    String query = "SELECT category, COUNT(*) FROM products WHERE category IS NOT NULL AND category <> ''"
+        + (inStockOnly ? " AND stock_quantity > 0" : "") + " GROUP BY category ORDER BY category";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      stmt.setString(1, barcode);
-      
-      try (ResultSet rs = stmt.executeQuery()) {
-        if (rs.next()) {
-          return mapResultSetToProduct(rs);
-        }
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
+         ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        counts.put(rs.getString(1), rs.getInt(2));
       }
     } catch (SQLException e) {
-      System.err.println("Error fetching product by barcode: " + e.getMessage());
+      System.err.println("Error counting products by category: " + e.getMessage());
     }
     
-    return null;
+    return counts;
   }
   
-  public boolean isBarcodeExists(String barcode) {
-    String query = "SELECT COUNT(*) FROM products WHERE barcode = ?";
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      stmt.setString(1, barcode);
-      try (ResultSet rs = stmt.executeQuery()) {
-        if (rs.next()) {
-          return rs.getInt(1) > 0;
-        }
+  public List<Product> searchProductsStartsWith(String searchTerm) {
+    return searchProductsStartsWith(searchTerm, Integer.MAX_VALUE);
+  }
+  
+  /**
+   * Type-ahead search: up to limit products whose name starts with the term
+   * (case-insensitive), ordered by name. Served from the in-memory prefix index.
+   */
+  public List<Product> searchProductsStartsWith(String searchTerm, int limit) {
+    return searchProductsStartsWith(searchTerm, limit, null);
+  }
+  
+  public List<Product> searchProductsStartsWith(String searchTerm, int limit, QueryCanceller canceller) {
+    PrefixIndex index = cache.getPrefixIndex();
+    if (!cache.isLoaded()) {
+      return searchProductsStartsWithSql(searchTerm, limit, canceller);
+    }
+    
+    int[] ids = index.search(searchTerm, limit);
+    List<Product> products = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      Product product = cache.getById(id);
+      if (product != null) {
+        products.add(product);
       }
-    } catch (SQLException e) {
-      System.err.println("Error checking if barcode exists: " + e.getMessage());
     }
-    return false;
+    return products;
   }
-
-  public List<Product> searchProducts(String searchTerm) {
+  
+  // Fallback used when the catalog could not be loaded into memory
+  private List<Product> searchProductsStartsWithSql(String searchTerm, int limit, QueryCanceller canceller) {
     List<Product> products = new ArrayList<>();
-    String query = "SELECT * FROM products WHERE name LIKE ? OR description LIKE ? OR category LIKE ? ORDER BY name";
+    String query = "SELECT * FROM products WHERE name LIKE ? ORDER BY name LIMIT ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      String searchPattern = "%" + searchTerm + "%";
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      String searchPattern = searchTerm + "%";
       stmt.setString(1, searchPattern);
-      stmt.setString(2, searchPattern);
-      stmt.setString(3, searchPattern);
+      stmt.setInt(2, limit);
       
+      if (canceller != null) {
+        canceller.attach(stmt);
+      }
       try (ResultSet rs = stmt.executeQuery()) {
+        ProductColumns columns = new ProductColumns(rs);
         while (rs.next()) {
-          products.add(mapResultSetToProduct(rs));
+          products.add(mapResultSetToProduct(rs, columns));
+        }
+      } finally {
+        if (canceller != null) {
+          canceller.detach();
         }
       }
     } catch (SQLException e) {
-      System.err.println("Error searching products: " + e.getMessage());
+      if (canceller != null && canceller.isCancelled()) {
+        return new ArrayList<>();
+      }
+      System.err.println("Error searching products (starts with): " + e.getMessage());
     }
     
     return products;
   }
-
-  public List<Product> searchProductsStartsWith(String searchTerm) {
+  
+  // Fallback used when the catalog could not be loaded into memory
+  private List<Product> searchProductsSql(String searchTerm, QueryCanceller canceller) {
     List<Product> products = new ArrayList<>();
-    String query = "SELECT * FROM products WHERE name LIKE ? ORDER BY name";
+    String query = "SELECT * FROM products WHERE name LIKE ? OR description LIKE ? OR category LIKE ? ORDER BY name";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
-      String searchPattern = searchTerm + "%";
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      String searchPattern = "%" + searchTerm + "%";
       stmt.setString(1, searchPattern);
+      stmt.setString(2, searchPattern);
+      stmt.setString(3, searchPattern);
       
+      if (canceller != null) {
+        canceller.attach(stmt);
+      }
       try (ResultSet rs = stmt.executeQuery()) {
+        ProductColumns columns = new ProductColumns(rs);
         while (rs.next()) {
-          products.add(mapResultSetToProduct(rs));
+          products.add(mapResultSetToProduct(rs, columns));
+        }
+      } finally {
+        if (canceller != null) {
+          canceller.detach();
         }
       }
     } catch (SQLException e) {
-      System.err.println("Error searching products (starts with): " + e.getMessage());
+      if (canceller != null && canceller.isCancelled()) {
+        return new ArrayList<>();
+      }
+      System.err.println("Error searching products: " + e.getMessage());
     }
     
     return products;
@@ -179,7 +352,8 @@ public class ProductDAO {
   public boolean addProduct(Product product) {
     String query = "INSERT INTO products (name, description, price, stock_quantity, category, barcode, image_path, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, NOW())";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
       stmt.setString(1, product.getName());
       stmt.setString(2, product.getDescription());
       stmt.setBigDecimal(3, product.getPrice());
@@ -199,6 +373,7 @@ public class ProductDAO {
         try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
           if (generatedKeys.next()) {
             product.setId(generatedKeys.getInt(1));
+            cache.refresh(product.getId());
           }
         }
         return true;
@@ -213,7 +388,8 @@ public class ProductDAO {
   public boolean updateProduct(Product product) {
     String query = "UPDATE products SET name = ?, description = ?, price = ?, stock_quantity = ?, category = ?, barcode = ?, image_path = ? WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setString(1, product.getName());
       stmt.setString(2, product.getDescription());
       stmt.setBigDecimal(3, product.getPrice());
@@ -229,7 +405,9 @@ public class ProductDAO {
 
       stmt.setInt(8, product.getId());
       
-      return stmt.executeUpdate() > 0;
+      boolean updated = stmt.executeUpdate() > 0;
+      cache.refresh(product.getId());
+      return updated;
     } catch (SQLException e) {
       System.err.println("Error updating product: " + e.getMessage());
     }
@@ -240,11 +418,14 @@ public class ProductDAO {
   public boolean updateStock(int productId, int newQuantity) {
     String query = "UPDATE products SET stock_quantity = ? WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setInt(1, newQuantity);
       stmt.setInt(2, productId);
       
-      return stmt.executeUpdate() > 0;
+      boolean updated = stmt.executeUpdate() > 0;
+      cache.refresh(productId);
+      return updated;
     } catch (SQLException e) {
       System.err.println("Error updating stock: " + e.getMessage());
     }
@@ -252,12 +433,80 @@ public class ProductDAO {
     return false;
   }
   
+  /**
+   * Decrements stock for every product in one batched statement, using a relative
+   * update guarded against going negative. Must be called inside the caller's
+   * transaction: when any product is short nothing should be committed, and the
+   * shortfalls are returned so the caller can roll back and report them.
+   */
+  List<StockShortfall> deductStock(Connection connection, Map<Integer, Integer> quantitiesByProduct) throws SQLException {
+    List<StockShortfall> shortfalls = new ArrayList<>();
+    if (quantitiesByProduct.isEmpty()) {
+      return shortfalls;
+    }
+    
+    String query = "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    List<Integer> productIds = new ArrayList<>(quantitiesByProduct.keySet());
+    int[] updateCounts;
+    
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      for (int productId : productIds) {
+        int quantity = quantitiesByProduct.get(productId);
+        stmt.setInt(1, quantity);
+        stmt.setInt(2, productId);
+        stmt.setInt(3, quantity);
+        stmt.addBatch();
+      }
+      updateCounts = stmt.executeBatch();
+    }
+    
+    // A guarded row that wasn't updated means the product is missing or short
+    List<Integer> shortProductIds = new ArrayList<>();
+    for (int i = 0; i < updateCounts.length; i++) {
+      if (updateCounts[i] == 0) {
+        shortProductIds.add(productIds.get(i));
+      }
+    }
+    if (shortProductIds.isEmpty()) {
+      return shortfalls;
+    }
+    
+    String stockQuery = "SELECT id, name, stock_quantity FROM products WHERE id IN ("
+        + SqlFragments.inList(shortProductIds.size()) + ")";
+    Map<Integer, StockShortfall> found = new HashMap<>();
+    try (PreparedStatement stmt = connection.prepareStatement(stockQuery)) {
+      SqlFragments.bindPadded(stmt, 1, shortProductIds);
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          int productId = rs.getInt("id");
+          found.put(productId, new StockShortfall(productId, rs.getString("name"),
+              quantitiesByProduct.get(productId), rs.getInt("stock_quantity")));
+        }
+      }
+    }
+    for (int productId : shortProductIds) {
+      shortfalls.add(found.getOrDefault(productId,
+          new StockShortfall(productId, null, quantitiesByProduct.get(productId), 0)));
+    }
+    return shortfalls;
+  }
+  
+  // Called after a committed transaction changed stock through deductStock
+  void stockChanged(Collection<Integer> productIds) {
+    cache.refreshAll(productIds);
+  }
+  
   public boolean deleteProduct(int id) {
     String query = "DELETE FROM products WHERE id = ?";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
       stmt.setInt(1, id);
-      return stmt.executeUpdate() > 0;
+      boolean deleted = stmt.executeUpdate() > 0;
+      if (deleted) {
+        cache.evict(id);
+      }
+      return deleted;
     } catch (SQLException e) {
       System.err.println("Error deleting product: " + e.getMessage());
     }
@@ -265,29 +514,46 @@ public class ProductDAO {
     return false;
   }
   
-  private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+  // Column indexes used by mapResultSetToProduct, resolved once per ResultSet
+  static final class ProductColumns {
+    final int id, name, description, price, stockQuantity, category, barcode, imagePath, createdAt, updatedAt;
+    
+    ProductColumns(ResultSet rs) throws SQLException {
+      ResultSetColumns columns = new ResultSetColumns(rs);
+      id = columns.find("id");
+      name = columns.find("name");
+      description = columns.find("description");
+      price = columns.find("price");
+      stockQuantity = columns.find("stock_quantity");
+      category = columns.find("category");
+      barcode = columns.find("barcode");
+      imagePath = columns.find("image_path");
+      createdAt = columns.find("created_at");
+      updatedAt = columns.find("updated_at");
+    }
+  }
+  
+  static Product mapResultSetToProduct(ResultSet rs, ProductColumns columns) throws SQLException {
     Product product = new Product();
-    product.setId(rs.getInt("id"));
-    product.setName(rs.getString("name"));
-    product.setDescription(rs.getString("description"));
-    product.setPrice(rs.getBigDecimal("price"));
-    product.setStockQuantity(rs.getInt("stock_quantity"));
-    product.setCategory(rs.getString("category"));
-    product.setBarcode(rs.getString("barcode"));
+    product.setId(rs.getInt(columns.id));
+    product.setName(rs.getString(columns.name));
+    product.setDescription(rs.getString(columns.description));
+    product.setPrice(rs.getBigDecimal(columns.price));
+    product.setStockQuantity(rs.getInt(columns.stockQuantity));
+    product.setCategory(rs.getString(columns.category));
+    product.setBarcode(rs.getString(columns.barcode));
     
-    // Check if image_path column exists in result set to avoid errors if schema isn't updated yet
-    try {
-        product.setImagePath(rs.getString("image_path"));
-    } catch (SQLException e) {
-        // Column might not exist yet, ignore
+    // image_path may be missing if the schema hasn't been updated yet
+    if (columns.imagePath > 0) {
+      product.setImagePath(rs.getString(columns.imagePath));
     }
     
-    Timestamp createdAt = rs.getTimestamp("created_at");
+    Timestamp createdAt = rs.getTimestamp(columns.createdAt);
     if (createdAt != null) {
       product.setCreatedAt(createdAt.toLocalDateTime());
     }
     
-    Timestamp updatedAt = rs.getTimestamp("updated_at");
+    Timestamp updatedAt = rs.getTimestamp(columns.updatedAt);
     if (updatedAt != null) {
       product.setUpdatedAt(updatedAt.toLocalDateTime());
     }
@@ -0,0 +1,203 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.model.SalesRanking;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains per-product sales counters in product_sales: total units sold and
+ * a time-decayed "trending" score.
+ *
+ * BillDAO updates the counters in the same transaction that completes or
+ * deletes a bill. Reads go through an in-memory {@link SalesRanking} with the
+ * products already in popularity order, so sorting the catalog by sales needs
+ * no aggregate over bill_items.
+ */
+public class ProductSalesDAO {
+  // A sale counts half as much towards the trending score after this long
+  static final long TRENDING_HALF_LIFE_SECONDS = 7L * 24 * 60 * 60;
+
+  // How long the in-memory ranking is trusted before re-reading the table, so other tills' sales show up
+  private static final long MIRROR_TTL_MS = 5_000;
+
+  private static volatile SalesRanking mirror;
+  private static volatile long mirrorLoadedAt;
+  // Bumped by invalidate(); a read that started before a bump must not repopulate the mirror
+  private static long mirrorGeneration;
+  private static final Object mirrorLock = new Object();
+
+  public SalesRanking getRanking() {
+    SalesRanking cached = mirror;
+    if (cached != null && System.currentTimeMillis() - mirrorLoadedAt < MIRROR_TTL_MS) {
+      return cached;
+    }
+
+    long generation;
+    synchronized (mirrorLock) {
+      generation = mirrorGeneration;
+    }
+    // Bring every trending score to the same point in time before comparing them
+    String query = """
+      SELECT product_id, units_sold,
+             trending_score * POW(0.5, TIMESTAMPDIFF(SECOND, trending_at, NOW()) / ?) AS trending
+      FROM product_sales
+      WHERE units_sold > 0
+      ORDER BY units_sold DESC, product_id
+      """;
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setLong(1, TRENDING_HALF_LIFE_SECONDS);
+      List<Integer> ids = new ArrayList<>();
+      List<Double> trending = new ArrayList<>();
+      Map<Integer, Long> unitsSold = new HashMap<>();
+      try (ResultSet rs = stmt.executeQuery()) {
+        while (rs.next()) {
+          int productId = rs.getInt(1);
+          ids.add(productId);
+          unitsSold.put(productId, rs.getLong(2));
+          trending.add(rs.getDouble(3));
+        }
+      }
+
+      int[] byUnitsSold = new int[ids.size()];
+      Integer[] order = new Integer[ids.size()];
+      for (int i = 0; i < byUnitsSold.length; i++) {
+        byUnitsSold[i] = ids.get(i);
+        order[i] = i;
+      }
+      // Stable sort keeps the units-sold order among equal trending scores
+      Arrays.sort(order, (a, b) -> Double.compare(trending.get(b), trending.get(a)));
+      int[] byTrending = new int[order.length];
+      for (int i = 0; i < order.length; i++) {
+        byTrending[i] = byUnitsSold[order[i]];
+      }
+
+      SalesRanking ranking = new SalesRanking(byUnitsSold, byTrending, unitsSold);
+      synchronized (mirrorLock) {
+        if (generation == mirrorGeneration) {
+          mirror = ranking;
+          mirrorLoadedAt = System.currentTimeMillis();
+        }
+      }
+      return ranking;
+    } catch (SQLException e) {
+      System.err.println("Error reading product sales: " + e.getMessage());
+    }
+
+    return cached != null ? cached : SalesRanking.EMPTY;
+  }
+
+  // Drop the mirror after a committed change so the next read picks it up
+  void invalidate() {
+    synchronized (mirrorLock) {
+      mirrorGeneration++;
+      mirror = null;
+    }
+  }
+
+  /**
+   * Adds the items of the given bills (which must already be COMPLETED) to the counters.
+   * Runs inside the caller's transaction.
+   */
+  void recordCompleted(Connection connection, List<Integer> billIds) throws SQLException {
+    if (billIds.isEmpty()) {
+      return;
+    }
+
+    // trending_score is assigned before trending_at, so it still decays from the old timestamp.
+    // The grouped SELECT is wrapped in a derived table so the update can name its columns
+    // (VALUES() in ON DUPLICATE KEY UPDATE is deprecated since MySQL 8.0.20)
+    String query = """
+      INSERT INTO product_sales (product_id, units_sold, trending_score, trending_at)
+      SELECT * FROM (
+        SELECT bi.product_id, SUM(bi.quantity) AS qty, SUM(bi.quantity) AS score, NOW() AS sold_at
+        FROM bill_items bi
+        JOIN bills b ON b.id = bi.bill_id
+        WHERE b.id IN (%s) AND b.status = 'COMPLETED'
+        GROUP BY bi.product_id
+      ) AS new
+      ON DUPLICATE KEY UPDATE
+        units_sold = units_sold + new.qty,
+        trending_score = trending_score * POW(0.5, TIMESTAMPDIFF(SECOND, trending_at, NOW()) / ?) + new.score,
+        trending_at = NOW()
+      """.formatted(SqlFragments.inList(billIds.size()));
+
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      int paramIndex = SqlFragments.bindPadded(stmt, 1, billIds);
+      stmt.setLong(paramIndex, TRENDING_HALF_LIFE_SECONDS);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * Takes a COMPLETED bill that is about to be deleted back out of the counters.
+   * Must run in the caller's transaction before the bill's items are removed.
+   */
+  void recordRemoved(Connection connection, int billId) throws SQLException {
+    // The bill's trending contribution has decayed since it was sold, so remove only what's left of it
+    String query = """
+      UPDATE product_sales ps
+      JOIN (
+        SELECT bi.product_id, SUM(bi.quantity) AS qty, MIN(b.bill_date) AS bill_date
+        FROM bill_items bi
+        JOIN bills b ON b.id = bi.bill_id
+        WHERE b.id = ?
+        GROUP BY bi.product_id
+      ) x ON x.product_id = ps.product_id
+      SET ps.units_sold = GREATEST(ps.units_sold - x.qty, 0),
+          ps.trending_score = GREATEST(ps.trending_score
+            - x.qty * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, x.bill_date, ps.trending_at), 0) / ?), 0)
+      """;
+
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setInt(1, billId);
+      stmt.setLong(2, TRENDING_HALF_LIFE_SECONDS);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * Recomputes all counters from scratch with a full aggregate over completed bills.
+   */
+  public SalesRanking rebuild() {
+    String clearQuery = "DELETE FROM product_sales";
+    String rebuildQuery = """
+      INSERT INTO product_sales (product_id, units_sold, trending_score, trending_at)
+      SELECT bi.product_id, SUM(bi.quantity),
+             SUM(bi.quantity * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, b.bill_date, NOW()), 0) / ?)), NOW()
+      FROM bill_items bi
+      JOIN bills b ON b.id = bi.bill_id
+      WHERE b.status = 'COMPLETED'
+      GROUP BY bi.product_id
+      """;
+
+    try (Connection connection = DatabaseManager.getInstance().getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        try (PreparedStatement stmt = connection.prepareStatement(clearQuery)) {
+          stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(rebuildQuery)) {
+          stmt.setLong(1, TRENDING_HALF_LIFE_SECONDS);
+          stmt.executeUpdate();
+        }
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+      System.out.println("Product sales rebuilt.");
+    } catch (SQLException e) {
+      System.err.println("Error rebuilding product sales: " + e.getMessage());
+    }
+
+    invalidate();
+    return getRanking();
+  }
+}
@@ -0,0 +1,167 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.model.Promotion;
+import com.shopbilling.promo.PromotionEngine;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CRUD for promotions. Every successful write reloads the active promotions
+ * into the {@link PromotionEngine}, so carts pick them up on their next change.
+ */
+public class PromotionDAO {
+
+  public List<Promotion> getAllPromotions() {
+    return queryPromotions("SELECT * FROM promotions ORDER BY id");
+  }
+  
+  /**
+   * Loads the active promotions (including scheduled ones, which the engine
+   * switches on and off by itself) and atomically swaps them into the engine.
+   * On a database error the engine keeps the promotions it already has.
+   */
+  public boolean reloadPromotionEngine() {
+    List<Promotion> promotions = queryPromotions(
+        "SELECT * FROM promotions WHERE active = TRUE AND (ends_at IS NULL OR ends_at > NOW())");
+    if (promotions == null) {
+      return false;
+    }
+    PromotionEngine.getInstance().installPromotions(promotions);
+    return true;
+  }
+  
+  public boolean addPromotion(Promotion promotion) {
+    String query = """
+      INSERT INTO promotions (name, promo_type, product_id, category, buy_quantity, free_quantity,
+                              percent_basis_points, min_amount, amount_off, starts_at, ends_at, active)
+      VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+      """;
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+      bindPromotion(stmt, promotion);
+      
+      if (stmt.executeUpdate() > 0) {
+        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+          if (generatedKeys.next()) {
+            promotion.setId(generatedKeys.getInt(1));
+          }
+        }
+        reloadPromotionEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error adding promotion: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  public boolean updatePromotion(Promotion promotion) {
+    String query = """
+      UPDATE promotions SET name = ?, promo_type = ?, product_id = ?, category = ?, buy_quantity = ?, free_quantity = ?,
+                            percent_basis_points = ?, min_amount = ?, amount_off = ?, starts_at = ?, ends_at = ?, active = ?
+      WHERE id = ?
+      """;
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      bindPromotion(stmt, promotion);
+      stmt.setInt(13, promotion.getId());
+      
+      if (stmt.executeUpdate() > 0) {
+        reloadPromotionEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error updating promotion: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  public boolean deletePromotion(int id) {
+    String query = "DELETE FROM promotions WHERE id = ?";
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setInt(1, id);
+      
+      if (stmt.executeUpdate() > 0) {
+        reloadPromotionEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error deleting promotion: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  private List<Promotion> queryPromotions(String query) {
+    List<Promotion> promotions = new ArrayList<>();
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
+         ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        promotions.add(mapResultSetToPromotion(rs));
+      }
+    } catch (SQLException e) {
+      System.err.println("Error fetching promotions: " + e.getMessage());
+      return null;
+    }
+    
+    return promotions;
+  }
+  
+  private void bindPromotion(PreparedStatement stmt, Promotion promotion) throws SQLException {
+    stmt.setString(1, promotion.getName());
+    stmt.setString(2, promotion.getType());
+    if (promotion.getProductId() != null) {
+      stmt.setInt(3, promotion.getProductId());
+    } else {
+      stmt.setNull(3, Types.INTEGER);
+    }
+    stmt.setString(4, promotion.getCategory() == null || promotion.getCategory().isBlank() ? null : promotion.getCategory().trim());
+    stmt.setInt(5, promotion.getBuyQuantity());
+    stmt.setInt(6, promotion.getFreeQuantity());
+    stmt.setInt(7, promotion.getPercentBasisPoints());
+    stmt.setBigDecimal(8, promotion.getMinAmount());
+    stmt.setBigDecimal(9, promotion.getAmountOff());
+    stmt.setTimestamp(10, promotion.getStartsAt() != null ? Timestamp.valueOf(promotion.getStartsAt()) : null);
+    stmt.setTimestamp(11, promotion.getEndsAt() != null ? Timestamp.valueOf(promotion.getEndsAt()) : null);
+    stmt.setBoolean(12, promotion.isActive());
+  }
+  
+  private Promotion mapResultSetToPromotion(ResultSet rs) throws SQLException {
+    Promotion promotion = new Promotion();
+    promotion.setId(rs.getInt("id"));
+    promotion.setName(rs.getString("name"));
+    promotion.setType(rs.getString("promo_type"));
+    int productId = rs.getInt("product_id");
+    promotion.setProductId(rs.wasNull() ? null : productId);
+    promotion.setCategory(rs.getString("category"));
+    promotion.setBuyQuantity(rs.getInt("buy_quantity"));
+    promotion.setFreeQuantity(rs.getInt("free_quantity"));
+    promotion.setPercentBasisPoints(rs.getInt("percent_basis_points"));
+    promotion.setMinAmount(rs.getBigDecimal("min_amount"));
+    promotion.setAmountOff(rs.getBigDecimal("amount_off"));
+    
+    Timestamp startsAt = rs.getTimestamp("starts_at");
+    if (startsAt != null) {
+      promotion.setStartsAt(startsAt.toLocalDateTime());
+    }
+    
+    Timestamp endsAt = rs.getTimestamp("ends_at");
+    if (endsAt != null) {
+      promotion.setEndsAt(endsAt.toLocalDateTime());
+    }
+    
+    promotion.setActive(rs.getBoolean("active"));
+    return promotion;
+  }
+}
@@ -0,0 +1,50 @@
+package com.shopbilling.dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Lets another thread abort a DAO query while it runs on the server.
+ *
+ * The DAO attaches its statement before executing it; {@link #cancel} then
+ * calls Statement.cancel(), which makes MySQL kill the query and the
+ * executing thread fail with an SQLException. Cancelling before the statement
+ * is attached makes the attach fail, so the query is never sent.
+ */
+public class QueryCanceller {
+  private Statement statement;
+  private boolean cancelled;
+
+  synchronized void attach(Statement statement) throws SQLException {
+    if (cancelled) {
+      throw new SQLException("Query cancelled");
+    }
+    this.statement = statement;
+  }
+
+  synchronized void detach() {
+    statement = null;
+  }
+
+  public void cancel() {
+    Statement running;
+    synchronized (this) {
+      if (cancelled) {
+        return;
+      }
+      cancelled = true;
+      running = statement;
+    }
+    if (running != null) {
+      try {
+        running.cancel();
+      } catch (SQLException e) {
+        System.err.println("Error cancelling query: " + e.getMessage());
+      }
+    }
+  }
+
+  public synchronized boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,29 @@
+package com.shopbilling.dao;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Column label to index lookup for one ResultSet. Row mappers resolve the
+ * indexes they need once per result set and then read by index for every row.
+ */
+class ResultSetColumns {
+  private final Map<String, Integer> indexByLabel = new HashMap<>();
+
+  ResultSetColumns(ResultSet rs) throws SQLException {
+    ResultSetMetaData meta = rs.getMetaData();
+    for (int i = 1; i <= meta.getColumnCount(); i++) {
+      // Keep the first occurrence, like ResultSet.findColumn does
+      indexByLabel.putIfAbsent(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+    }
+  }
+
+  // Returns the 1-based column index, or 0 if the column isn't in the result set
+  int find(String label) {
+    return indexByLabel.getOrDefault(label.toLowerCase(Locale.ROOT), 0);
+  }
+}
@@ -0,0 +1,208 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.model.RevenueSummary;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Maintains the single-row bill_stats summary of COMPLETED bills.
+ *
+ * BillDAO updates the row in the same transaction that completes or deletes a
+ * bill, so dashboard figures are a primary-key read (or an in-memory hit)
+ * instead of a full aggregate over bills.
+ */
+public class RevenueStatsDAO {
+  // How long the in-memory mirror is trusted before re-reading the row, so other tills' sales show up
+  private static final long MIRROR_TTL_MS = 5_000;
+
+  private static volatile RevenueSummary mirror;
+  private static volatile long mirrorLoadedAt;
+  // Bumped by invalidate(); a read that started before a bump must not repopulate the mirror
+  private static long mirrorGeneration;
+  private static final Object mirrorLock = new Object();
+
+  public RevenueSummary getSummary() {
+    RevenueSummary cached = mirror;
+    if (cached != null && System.currentTimeMillis() - mirrorLoadedAt < MIRROR_TTL_MS) {
+      return cached;
+    }
+
+    long generation;
+    synchronized (mirrorLock) {
+      generation = mirrorGeneration;
+    }
+    String query = "SELECT completed_count, total_revenue, highest_amount, lowest_amount FROM bill_stats WHERE id = 1";
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
+         ResultSet rs = stmt.executeQuery()) {
+      RevenueSummary summary = rs.next()
+          ? new RevenueSummary(rs.getLong(1), rs.getBigDecimal(2), rs.getBigDecimal(3), rs.getBigDecimal(4))
+          : RevenueSummary.EMPTY;
+      synchronized (mirrorLock) {
+        if (generation == mirrorGeneration) {
+          mirror = summary;
+          mirrorLoadedAt = System.currentTimeMillis();
+        }
+      }
+      return summary;
+    } catch (SQLException e) {
+      System.err.println("Error reading revenue stats: " + e.getMessage());
+    }
+
+    return cached != null ? cached : RevenueSummary.EMPTY;
+  }
+
+  // Drop the mirror after a committed change so the next read picks it up
+  void invalidate() {
+    synchronized (mirrorLock) {
+      mirrorGeneration++;
+      mirror = null;
+    }
+  }
+
+  /**
+   * Adds the given bills (which must already be COMPLETED) to the summary.
+   * Runs inside the caller's transaction.
+   */
+  void recordCompleted(Connection connection, List<Integer> billIds) throws SQLException {
+    if (billIds.isEmpty()) {
+      return;
+    }
+
+    String query = """
+      UPDATE bill_stats s
+      JOIN (
+        SELECT COUNT(*) AS cnt, COALESCE(SUM(final_amount), 0) AS total,
+               MAX(final_amount) AS highest, MIN(final_amount) AS lowest
+        FROM bills
+        WHERE id IN (%s) AND status = 'COMPLETED'
+      ) x
+      SET s.completed_count = s.completed_count + x.cnt,
+          s.total_revenue = s.total_revenue + x.total,
+          s.highest_amount = CASE WHEN s.highest_amount IS NULL OR x.highest > s.highest_amount THEN x.highest ELSE s.highest_amount END,
+          s.lowest_amount = CASE WHEN s.lowest_amount IS NULL OR x.lowest < s.lowest_amount THEN x.lowest ELSE s.lowest_amount END
+      WHERE s.id = 1 AND x.cnt > 0
+      """.formatted(SqlFragments.inList(billIds.size()));
+
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      SqlFragments.bindPadded(stmt, 1, billIds);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * Removes a COMPLETED bill that has just been deleted from the summary.
+   * The highest/lowest figures are only recomputed (from the status/amount
+   * index) when the removed bill was the current extreme.
+   */
+  void recordRemoved(Connection connection, BigDecimal finalAmount) throws SQLException {
+    String query = """
+      UPDATE bill_stats
+      SET completed_count = completed_count - 1,
+          total_revenue = total_revenue - ?,
+          highest_amount = CASE WHEN ? >= highest_amount
+            THEN (SELECT MAX(final_amount) FROM bills WHERE status = 'COMPLETED') ELSE highest_amount END,
+          lowest_amount = CASE WHEN ? <= lowest_amount
+            THEN (SELECT MIN(final_amount) FROM bills WHERE status = 'COMPLETED') ELSE lowest_amount END
+      WHERE id = 1
+      """;
+
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setBigDecimal(1, finalAmount);
+      stmt.setBigDecimal(2, finalAmount);
+      stmt.setBigDecimal(3, finalAmount);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * Recomputes the summary from scratch with a full aggregate over bills.
+   */
+  public RevenueSummary rebuild() {
+    String lockQuery = "SELECT id FROM bill_stats WHERE id = 1 FOR UPDATE";
+    // Derived table instead of VALUES(), which is deprecated since MySQL 8.0.20
+    String rebuildQuery = """
+      INSERT INTO bill_stats (id, completed_count, total_revenue, highest_amount, lowest_amount)
+      SELECT * FROM (
+        SELECT 1 AS id, COUNT(*) AS completed, COALESCE(SUM(final_amount), 0) AS revenue,
+               MAX(final_amount) AS highest, MIN(final_amount) AS lowest
+        FROM bills WHERE status = 'COMPLETED'
+      ) AS new
+      ON DUPLICATE KEY UPDATE
+        completed_count = new.completed,
+        total_revenue = new.revenue,
+        highest_amount = new.highest,
+        lowest_amount = new.lowest
+      """;
+
+    try (Connection connection = DatabaseManager.getInstance().getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        // Hold the row lock so concurrent confirmations queue behind the rebuild
+        try (PreparedStatement stmt = connection.prepareStatement(lockQuery)) {
+          stmt.executeQuery().close();
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(rebuildQuery)) {
+          stmt.executeUpdate();
+        }
+        connection.commit();
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+      System.out.println("Revenue stats rebuilt.");
+    } catch (SQLException e) {
+      System.err.println("Error rebuilding revenue stats: " + e.getMessage());
+    }
+
+    invalidate();
+    return getSummary();
+  }
+
+  /**
+   * Compares the maintained summary with a full aggregate over bills.
+   * Returns a description of every mismatch; an empty list means consistent.
+   */
+  public List<String> checkConsistency() {
+    List<String> mismatches = new ArrayList<>();
+    String query = """
+      SELECT s.completed_count, s.total_revenue, s.highest_amount, s.lowest_amount,
+             x.cnt, x.total, x.highest, x.lowest
+      FROM (
+        SELECT COUNT(*) AS cnt, COALESCE(SUM(final_amount), 0) AS total,
+               MAX(final_amount) AS highest, MIN(final_amount) AS lowest
+        FROM bills WHERE status = 'COMPLETED'
+      ) x
+      LEFT JOIN bill_stats s ON s.id = 1
+      """;
+
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
+         ResultSet rs = stmt.executeQuery()) {
+      if (rs.next()) {
+        compare(mismatches, "completed_count", rs.getObject(1) == null ? null : rs.getLong(1), rs.getLong(5));
+        compare(mismatches, "total_revenue", rs.getBigDecimal(2), rs.getBigDecimal(6));
+        compare(mismatches, "highest_amount", rs.getBigDecimal(3), rs.getBigDecimal(7));
+        compare(mismatches, "lowest_amount", rs.getBigDecimal(4), rs.getBigDecimal(8));
+      }
+    } catch (SQLException e) {
+      mismatches.add("Could not check revenue stats: " + e.getMessage());
+    }
+
+    return mismatches;
+  }
+
+  private static void compare(List<String> mismatches, String field, Object stored, Object actual) {
+    boolean equal = stored instanceof BigDecimal && actual instanceof BigDecimal
+        ? ((BigDecimal) stored).compareTo((BigDecimal) actual) == 0
+        : Objects.equals(stored, actual);
+    if (!equal) {
+      mismatches.add(field + ": stored " + stored + ", actual " + actual);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.shopbilling.dao;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+/**
+ * Tells SQL failures worth retrying (connection, pool, lock and deadlock
+ * errors) from ones that will fail the same way every time (constraint
+ * violations, bad data, missing tables or columns).
+ */
+public final class SqlErrors {
+  // MySQL: lock wait timeout, deadlock
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final int ER_LOCK_DEADLOCK = 1213;
+
+  private SqlErrors() {}
+
+  /**
+   * True unless the error is known to be permanent; unknown errors are treated
+   * as transient so nothing is given up on by mistake.
+   */
+  public static boolean isTransient(SQLException e) {
+    if (e instanceof SQLTransientException || e instanceof SQLRecoverableException) {
+      return true;
+    }
+    if (e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT || e.getErrorCode() == ER_LOCK_DEADLOCK) {
+      return true;
+    }
+    String state = e.getSQLState();
+    if (state == null || state.length() < 2) {
+      return true;
+    }
+    switch (state.substring(0, 2)) {
+      case "22": // data exception
+      case "23": // integrity constraint violation
+      case "42": // syntax error or access rule violation
+        return false;
+      default:
+        return true;
+    }
+  }
+}
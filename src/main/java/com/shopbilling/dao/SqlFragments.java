@@ -0,0 +1,80 @@
+package com.shopbilling.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * Small helpers for building dynamic SQL in the DAOs.
+ *
+ * Statements are prepared server-side, so every distinct IN-list length or
+ * multi-row INSERT size is a separate prepare round trip and a separate
+ * entry in the driver's statement cache. Sizes are therefore rounded to
+ * powers of two: IN-lists are padded by repeating their last value, and
+ * INSERT rows are split into power-of-two chunks.
+ */
+final class SqlFragments {
+  // Longer IN-lists are rare one-offs; padding them could pass the placeholder limit
+  private static final int MAX_BUCKET = 16384;
+
+  private SqlFragments() {}
+
+  // The smallest power of two holding count
+  static int bucket(int count) {
+    if (count <= 1 || count > MAX_BUCKET) {
+      return Math.max(count, 1);
+    }
+    return Integer.highestOneBit(count - 1) << 1;
+  }
+
+  // Placeholders for an IN-list of count values, padded to its bucket; bind with bindPadded
+  static String inList(int count) {
+    return placeholders(bucket(count));
+  }
+
+  /**
+   * Binds the values from paramIndex on and repeats the last one to fill the
+   * bucket (a repeated IN value changes nothing). Returns the next index.
+   */
+  static int bindPadded(PreparedStatement stmt, int paramIndex, Collection<?> values) throws SQLException {
+    Object last = null;
+    for (Object value : values) {
+      stmt.setObject(paramIndex++, value);
+      last = value;
+    }
+    for (int i = values.size(); i < bucket(values.size()); i++) {
+      stmt.setObject(paramIndex++, last);
+    }
+    return paramIndex;
+  }
+
+  // Rows for the next multi-row INSERT: the largest power of two within both what is left and the cap
+  static int insertChunk(int remaining, int maxRows) {
+    return Integer.highestOneBit(Math.max(1, Math.min(remaining, maxRows)));
+  }
+
+  // "?, ?, ?" for an IN-list of the given size
+  static String placeholders(int count) {
+    StringBuilder sb = new StringBuilder(count * 3);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append('?');
+    }
+    return sb.toString();
+  }
+
+  // "(?, ?), (?, ?)" for a multi-row INSERT of the given shape
+  static String rows(int rowCount, int columnCount) {
+    String row = "(" + placeholders(columnCount) + ")";
+    StringBuilder sb = new StringBuilder(rowCount * (row.length() + 2));
+    for (int i = 0; i < rowCount; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(row);
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,141 @@
+package com.shopbilling.dao;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.model.TaxRule;
+import com.shopbilling.tax.TaxEngine;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CRUD for tax_rules. Every successful write reloads the rules into the
+ * {@link TaxEngine}, so new rates apply to the next cart change without a restart.
+ */
+public class TaxRuleDAO {
+
+  public List<TaxRule> getAllRules() {
+    List<TaxRule> rules = new ArrayList<>();
+    String query = "SELECT * FROM tax_rules ORDER BY id";
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query);
+         ResultSet rs = stmt.executeQuery()) {
+      while (rs.next()) {
+        rules.add(mapResultSetToTaxRule(rs));
+      }
+    } catch (SQLException e) {
+      System.err.println("Error fetching tax rules: " + e.getMessage());
+      return null;
+    }
+    
+    return rules;
+  }
+  
+  /**
+   * Loads the rules and atomically swaps them into the tax engine. On a
+   * database error the engine keeps the rules it already has.
+   */
+  public boolean reloadTaxEngine() {
+    List<TaxRule> rules = getAllRules();
+    if (rules == null) {
+      return false;
+    }
+    TaxEngine.getInstance().installRules(rules);
+    return true;
+  }
+  
+  public boolean addRule(TaxRule rule) {
+    String query = "INSERT INTO tax_rules (product_id, category, rate_basis_points, description) VALUES (?, ?, ?, ?)";
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+      bindRule(stmt, rule);
+      
+      if (stmt.executeUpdate() > 0) {
+        try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+          if (generatedKeys.next()) {
+            rule.setId(generatedKeys.getInt(1));
+          }
+        }
+        reloadTaxEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error adding tax rule: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  public boolean updateRule(TaxRule rule) {
+    String query = "UPDATE tax_rules SET product_id = ?, category = ?, rate_basis_points = ?, description = ? WHERE id = ?";
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      bindRule(stmt, rule);
+      stmt.setInt(5, rule.getId());
+      
+      if (stmt.executeUpdate() > 0) {
+        reloadTaxEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error updating tax rule: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  public boolean deleteRule(int id) {
+    String query = "DELETE FROM tax_rules WHERE id = ?";
+    
+    try (Connection connection = DatabaseManager.getInstance().getConnection();
+         PreparedStatement stmt = connection.prepareStatement(query)) {
+      stmt.setInt(1, id);
+      
+      if (stmt.executeUpdate() > 0) {
+        reloadTaxEngine();
+        return true;
+      }
+    } catch (SQLException e) {
+      System.err.println("Error deleting tax rule: " + e.getMessage());
+    }
+    
+    return false;
+  }
+  
+  private void bindRule(PreparedStatement stmt, TaxRule rule) throws SQLException {
+    if (rule.getProductId() != null) {
+      stmt.setInt(1, rule.getProductId());
+    } else {
+      stmt.setNull(1, Types.INTEGER);
+    }
+    String category = rule.getCategory() == null || rule.getCategory().isBlank() ? null : rule.getCategory().trim();
+    stmt.setString(2, category);
+    stmt.setInt(3, rule.getRateBasisPoints());
+    stmt.setString(4, rule.getDescription());
+  }
+  
+  private TaxRule mapResultSetToTaxRule(ResultSet rs) throws SQLException {
+    TaxRule rule = new TaxRule();
+    rule.setId(rs.getInt("id"));
+    int productId = rs.getInt("product_id");
+    rule.setProductId(rs.wasNull() ? null : productId);
+    rule.setCategory(rs.getString("category"));
+    rule.setRateBasisPoints(rs.getInt("rate_basis_points"));
+    rule.setDescription(rs.getString("description"));
+    
+    Timestamp createdAt = rs.getTimestamp("created_at");
+    if (createdAt != null) {
+      rule.setCreatedAt(createdAt.toLocalDateTime());
+    }
+    
+    Timestamp updatedAt = rs.getTimestamp("updated_at");
+    if (updatedAt != null) {
+      rule.setUpdatedAt(updatedAt.toLocalDateTime());
+    }
+    
+    return rule;
+  }
+}
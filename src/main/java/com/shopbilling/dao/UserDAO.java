@@ -9,16 +9,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class UserDAO {
-    private final Connection connection;
-
-    public UserDAO() {
-        this.connection = DatabaseManager.getInstance().getConnection();
-    }
 
     public User login(String username, String password) {
         String query = "SELECT * FROM users WHERE username = ? AND password = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        try (Connection connection = DatabaseManager.getInstance().getConnection();
+             PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setString(1, username);
             stmt.setString(2, password);
             
@@ -0,0 +1,383 @@
+package com.shopbilling.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Callers borrow a connection with {@link #borrow()} and give it back by calling
+ * {@code close()} on it, so the usual try-with-resources pattern in the DAOs returns
+ * connections to the pool instead of closing the physical socket.
+ */
+public class ConnectionPool {
+    private static final int BORROW_SITE_FRAMES = 8;
+
+    private final String url;
+    private final Properties props;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long idleTimeoutMillis;
+    private final long leakDetectionThresholdMillis;
+
+    private final Semaphore permits;
+    private final Deque<PooledEntry> idle = new ArrayDeque<>();
+    private final Map<Connection, PooledEntry> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalDestroyed = new AtomicLong();
+    private final AtomicLong totalBorrowed = new AtomicLong();
+    private final AtomicLong totalTimeouts = new AtomicLong();
+    private final AtomicLong totalValidationFailures = new AtomicLong();
+    private final AtomicLong totalLeaksDetected = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, Properties props, int minSize, int maxSize,
+                          long acquireTimeoutMillis, int validationTimeoutSeconds,
+                          long idleTimeoutMillis, long leakDetectionThresholdMillis) throws SQLException {
+        if (minSize < 0 || maxSize <= 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.props = props;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum number of connections up front so a bad URL/password fails fast
+        try {
+            for (int i = 0; i < minSize; i++) {
+                idle.push(createEntry());
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Don't leave the connections that did open behind
+            for (PooledEntry entry : idle) {
+                destroy(entry);
+            }
+            idle.clear();
+            throw e;
+        }
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakDetectionThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a validated connection, waiting up to the acquire timeout when the pool is exhausted.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLTransientConnectionException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                totalTimeouts.incrementAndGet();
+                throw new SQLTransientConnectionException("Timed out after " + acquireTimeoutMillis
+                        + "ms waiting for a database connection (active=" + borrowed.size() + ", max=" + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - start);
+
+        try {
+            PooledEntry entry = takeValidIdle();
+            if (entry == null) {
+                entry = createEntry();
+            }
+            entry.borrowedAt = System.currentTimeMillis();
+            entry.borrowerName = Thread.currentThread().getName();
+            entry.borrowSite = leakDetectionThresholdMillis > 0 ? borrowSite() : null;
+            entry.leakReported = false;
+            Connection proxy = newProxy(entry);
+            borrowed.put(proxy, entry);
+            totalBorrowed.incrementAndGet();
+            return proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledEntry takeValidIdle() {
+        while (true) {
+            PooledEntry entry;
+            synchronized (idle) {
+                entry = idle.poll();
+            }
+            if (entry == null) {
+                return null;
+            }
+            if (isValid(entry)) {
+                return entry;
+            }
+            totalValidationFailures.incrementAndGet();
+            destroy(entry);
+        }
+    }
+
+    private boolean isValid(PooledEntry entry) {
+        try {
+            return !entry.physical.isClosed() && entry.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(Connection proxy) {
+        PooledEntry entry = borrowed.remove(proxy);
+        if (entry == null) {
+            return; // Already returned
+        }
+
+        boolean reusable = !closed;
+        try {
+            // Never hand the next borrower somebody else's open transaction
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+            entry.physical.clearWarnings();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+
+        if (reusable) {
+            entry.lastUsedAt = System.currentTimeMillis();
+            entry.borrowSite = null;
+            synchronized (idle) {
+                idle.push(entry);
+            }
+        } else {
+            destroy(entry);
+        }
+        permits.release();
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            // Evict connections idle for too long, but keep the pool at its minimum size
+            if (idleTimeoutMillis > 0) {
+                synchronized (idle) {
+                    Iterator<PooledEntry> it = idle.descendingIterator();
+                    while (it.hasNext() && idle.size() + borrowed.size() > minSize) {
+                        PooledEntry entry = it.next();
+                        if (now - entry.lastUsedAt > idleTimeoutMillis) {
+                            it.remove();
+                            destroy(entry);
+                        }
+                    }
+                }
+            }
+
+            // Top the pool back up after evictions or validation failures
+            while (!closed && idle.size() + borrowed.size() < minSize) {
+                PooledEntry entry = createEntry();
+                synchronized (idle) {
+                    idle.addLast(entry);
+                }
+            }
+
+            if (leakDetectionThresholdMillis > 0) {
+                for (PooledEntry entry : borrowed.values()) {
+                    if (!entry.leakReported && now - entry.borrowedAt > leakDetectionThresholdMillis) {
+                        entry.leakReported = true;
+                        totalLeaksDetected.incrementAndGet();
+                        System.err.println("Possible connection leak: connection held for "
+                                + (now - entry.borrowedAt) + "ms, borrowed by thread " + entry.borrowerName + " at");
+                        StackTraceElement[] site = entry.borrowSite;
+                        if (site != null) {
+                            for (StackTraceElement frame : site) {
+                                System.err.println("\tat " + frame);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error maintaining connection pool: " + e.getMessage());
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, props);
+        totalCreated.incrementAndGet();
+        return new PooledEntry(physical);
+    }
+
+    private void destroy(PooledEntry entry) {
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+        totalDestroyed.incrementAndGet();
+    }
+
+    private Connection newProxy(PooledEntry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private volatile boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            release((Connection) proxy);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || entry.physical.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + entry.physical + "]";
+                    default:
+                        if (returned) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                        return wrapChild(method, invokePhysical(method, entry.physical, args), (Connection) proxy);
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    private static Object invokePhysical(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // The caller's frames above the pool, kept short so leak detection stays cheap per borrow
+    private static StackTraceElement[] borrowSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .dropWhile(frame -> frame.getClassName().startsWith("com.shopbilling.database."))
+                .limit(BORROW_SITE_FRAMES)
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .toArray(StackTraceElement[]::new));
+    }
+
+    /**
+     * Wraps statements and metadata handed out through a pooled connection so
+     * their getConnection() returns the proxy; otherwise a caller could reach,
+     * and close, the physical connection. Result sets are the driver's own, so
+     * row reads stay direct calls.
+     */
+    private static Object wrapChild(Method method, Object result, Connection connectionProxy) {
+        Class<?> type = method.getReturnType();
+        if (result == null || !(type == Statement.class || type == PreparedStatement.class
+                || type == CallableStatement.class || type == DatabaseMetaData.class)) {
+            return result;
+        }
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method childMethod, Object[] args) throws Throwable {
+                switch (childMethod.getName()) {
+                    case "getConnection":
+                        return connectionProxy;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled" + type.getSimpleName() + "[" + result + "]";
+                    default:
+                        return invokePhysical(childMethod, result, args);
+                }
+            }
+        };
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    public PoolStats getStats() {
+        int idleCount;
+        synchronized (idle) {
+            idleCount = idle.size();
+        }
+        long borrowedCount = totalBorrowed.get();
+        return new PoolStats(
+                borrowed.size(),
+                idleCount,
+                maxSize,
+                permits.getQueueLength(),
+                totalCreated.get(),
+                totalDestroyed.get(),
+                borrowedCount,
+                totalTimeouts.get(),
+                totalValidationFailures.get(),
+                totalLeaksDetected.get(),
+                borrowedCount == 0 ? 0 : totalWaitNanos.get() / borrowedCount / 1_000);
+    }
+
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            for (PooledEntry entry : idle) {
+                destroy(entry);
+            }
+            idle.clear();
+        }
+        // Borrowed connections are destroyed when their holders return them
+    }
+
+    private static final class PooledEntry {
+        final Connection physical;
+        volatile long lastUsedAt;
+        volatile long borrowedAt;
+        volatile String borrowerName;
+        volatile StackTraceElement[] borrowSite;
+        volatile boolean leakReported;
+
+        PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+    }
+}
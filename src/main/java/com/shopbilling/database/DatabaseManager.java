@@ -5,7 +5,8 @@ import java.util.Properties;
 
 public class DatabaseManager {
     private static DatabaseManager instance;
-    private Connection connection;
+    private volatile ConnectionPool pool;
+    private final SchemaRegistry schema = new SchemaRegistry();
 
     private static final String DB_URL = "jdbc:mysql://127.0.0.1:3306/";
     // Changed database name again to force recreation of tables with new schema
@@ -13,26 +14,54 @@ public class DatabaseManager {
     private static final String USERNAME = "root";
     private static final String PASSWORD = "huzei12";
 
+    // Connection pool settings
+    private static final int POOL_MIN_SIZE = 2;
+    private static final int POOL_MAX_SIZE = 10;
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = 5_000;
+    private static final int POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long POOL_IDLE_TIMEOUT_MS = 10 * 60_000;
+    private static final long POOL_LEAK_DETECTION_THRESHOLD_MS = 60_000;
+
+    // Prepared statements kept per physical connection by the driver
+    private static final int PREP_STMT_CACHE_SIZE = 250;
+    private static final int PREP_STMT_CACHE_SQL_LIMIT = 32768;
+    // Assumed until the server reports its own limit (the MySQL 5.7 default)
+    private static final long DEFAULT_MAX_ALLOWED_PACKET = 4L * 1024 * 1024;
+
+    private volatile long maxAllowedPacket = DEFAULT_MAX_ALLOWED_PACKET;
+
+    // Fail fast when MySQL is down so the till can switch to offline mode
+    private static final int CONNECT_TIMEOUT_MS = 3_000;
+    // While MySQL is unreachable, getConnection retries connecting at most this often
+    private static final long RECONNECT_INTERVAL_MS = 10_000;
+
+    private long lastConnectAttempt;
+    private boolean initializeRequested;
+
     private DatabaseManager() {
+        connect();
+    }
+
+    // Creates the database if needed, opens the pool and applies schema updates
+    private synchronized void connect() {
+        lastConnectAttempt = System.currentTimeMillis();
         try {
             // Create database if it doesn't exist
             createDatabaseIfNotExists();
 
             // Connect to the database
-            Properties props = new Properties();
-            props.setProperty("user", USERNAME);
-            props.setProperty("password", PASSWORD);
-            props.setProperty("useSSL", "false");
-            props.setProperty("allowPublicKeyRetrieval", "true");
-            props.setProperty("serverTimezone", "UTC");
-
-            connection = DriverManager.getConnection(DB_URL + DB_NAME, props);
+            pool = new ConnectionPool(DB_URL + DB_NAME, connectionProperties(),
+                    POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MS, POOL_VALIDATION_TIMEOUT_SECONDS,
+                    POOL_IDLE_TIMEOUT_MS, POOL_LEAK_DETECTION_THRESHOLD_MS);
             System.out.println("Connected to MySQL database successfully!");
 
             // Check and update schema for image_path
             updateSchema();
             updateCustomerSchema();
             updateCustomerSchemaForUsername();
+            updateBillSchemaForOrderKey();
+            refreshSchema();
+            loadServerLimits();
 
         } catch (SQLException e) {
             System.err.println("Database connection failed: " + e.getMessage());
@@ -47,34 +76,97 @@ public class DatabaseManager {
         return instance;
     }
 
-    public Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
-                // Reconnect if connection is closed
-                Properties props = new Properties();
-                props.setProperty("user", USERNAME);
-                props.setProperty("password", PASSWORD);
-                props.setProperty("useSSL", "false");
-                props.setProperty("allowPublicKeyRetrieval", "true");
-                props.setProperty("serverTimezone", "UTC");
-
-                connection = DriverManager.getConnection(DB_URL + DB_NAME, props);
+    /**
+     * Borrows a connection from the pool. Callers must close it (try-with-resources)
+     * to hand it back; closing does not close the underlying physical connection.
+     */
+    public Connection getConnection() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null) {
+            current = reconnectIfDue();
+            if (current == null) {
+                throw new SQLTransientConnectionException("Database is not available");
+            }
+        }
+        return current.borrow();
+    }
+
+    private synchronized ConnectionPool reconnectIfDue() {
+        if (pool == null && System.currentTimeMillis() - lastConnectAttempt >= RECONNECT_INTERVAL_MS) {
+            connect();
+            if (pool != null && initializeRequested) {
+                initializeDatabase();
             }
+        }
+        return pool;
+    }
+
+    /**
+     * True if a connection can be borrowed and answers a validity check right now.
+     */
+    public boolean isAvailable() {
+        try (Connection connection = getConnection()) {
+            return connection.isValid(POOL_VALIDATION_TIMEOUT_SECONDS);
         } catch (SQLException e) {
-            System.err.println("Failed to get database connection: " + e.getMessage());
+            return false;
         }
-        return connection;
     }
 
-    private void createDatabaseIfNotExists() throws SQLException {
+    public SchemaRegistry getSchema() {
+        return schema;
+    }
+
+    private void refreshSchema() {
+        try (Connection connection = getConnection()) {
+            schema.refresh(connection);
+        } catch (SQLException e) {
+            System.err.println("Error loading schema metadata: " + e.getMessage());
+        }
+    }
+
+    private void loadServerLimits() {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT @@max_allowed_packet")) {
+            if (rs.next()) {
+                maxAllowedPacket = rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading server limits: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Largest statement the server accepts, in bytes. Multi-row INSERTs are sized to stay well under it.
+     */
+    public long getMaxAllowedPacket() {
+        return maxAllowedPacket;
+    }
+
+    public PoolStats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
+    }
+
+    private Properties connectionProperties() {
         Properties props = new Properties();
         props.setProperty("user", USERNAME);
         props.setProperty("password", PASSWORD);
         props.setProperty("useSSL", "false");
         props.setProperty("allowPublicKeyRetrieval", "true");
         props.setProperty("serverTimezone", "UTC");
+        props.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_MS));
+        // Send JDBC batches as multi-row INSERTs / multi-statement packets instead of one round trip per row
+        props.setProperty("rewriteBatchedStatements", "true");
+        // Prepare hot statements once per connection on the server and reuse them
+        props.setProperty("useServerPrepStmts", "true");
+        props.setProperty("cachePrepStmts", "true");
+        props.setProperty("prepStmtCacheSize", String.valueOf(PREP_STMT_CACHE_SIZE));
+        props.setProperty("prepStmtCacheSqlLimit", String.valueOf(PREP_STMT_CACHE_SQL_LIMIT));
+        return props;
+    }
 
-        try (Connection conn = DriverManager.getConnection(DB_URL, props);
+    private void createDatabaseIfNotExists() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(DB_URL, connectionProperties());
              Statement stmt = conn.createStatement()) {
 
             stmt.executeUpdate("CREATE DATABASE IF NOT EXISTS " + DB_NAME);
@@ -83,10 +175,15 @@ public class DatabaseManager {
     }
 
     public void initializeDatabase() {
+        synchronized (this) {
+            // Repeated after a late connect if MySQL was down at startup
+            initializeRequested = true;
+        }
         try {
             createTables();
             insertSampleData();
             ensureDefaultCustomer();
+            refreshSchema();
         } catch (SQLException e) {
             System.err.println("Failed to initialize database: " + e.getMessage());
             e.printStackTrace();
@@ -110,7 +207,8 @@ public class DatabaseManager {
         barcode VARCHAR(100) UNIQUE,
         image_path VARCHAR(255),
         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+        INDEX idx_products_category (category)
       ) ENGINE=InnoDB;
       """;
 
@@ -151,6 +249,12 @@ public class DatabaseManager {
         payment_method VARCHAR(50) DEFAULT 'CASH',
         bill_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
         status VARCHAR(20) DEFAULT 'PENDING',
+        order_key CHAR(36) NULL,
+        submit_count INT NOT NULL DEFAULT 1,
+        UNIQUE INDEX uk_bills_order_key (order_key),
+        INDEX idx_bills_date_id (bill_date, id),
+        INDEX idx_bills_status_date_id (status, bill_date, id),
+        INDEX idx_bills_status_amount (status, final_amount),
         FOREIGN KEY (customer_id) REFERENCES customers(id),
         FOREIGN KEY (created_by_user_id) REFERENCES users(id)
       ) ENGINE=InnoDB;
@@ -169,19 +273,135 @@ public class DatabaseManager {
       ) ENGINE=InnoDB;
       """;
 
-        try (Statement stmt = connection.createStatement()) {
+        // Running totals over COMPLETED bills, maintained by BillDAO alongside status changes
+        String createBillStatsTable = """
+      CREATE TABLE IF NOT EXISTS bill_stats (
+        id TINYINT PRIMARY KEY,
+        completed_count BIGINT NOT NULL DEFAULT 0,
+        total_revenue DECIMAL(15,2) NOT NULL DEFAULT 0,
+        highest_amount DECIMAL(10,2),
+        lowest_amount DECIMAL(10,2),
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+      ) ENGINE=InnoDB;
+      """;
+
+        // Seeds the summary from existing bills the first time only
+        String seedBillStats = """
+      INSERT IGNORE INTO bill_stats (id, completed_count, total_revenue, highest_amount, lowest_amount)
+      SELECT 1, COUNT(*), COALESCE(SUM(final_amount), 0), MAX(final_amount), MIN(final_amount)
+      FROM bills WHERE status = 'COMPLETED'
+      """;
+
+        // Units sold and decayed "trending" score per product, maintained by BillDAO
+        String createProductSalesTable = """
+      CREATE TABLE IF NOT EXISTS product_sales (
+        product_id INT PRIMARY KEY,
+        units_sold BIGINT NOT NULL DEFAULT 0,
+        trending_score DOUBLE NOT NULL DEFAULT 0,
+        trending_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+        FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+        INDEX idx_product_sales_units (units_sold)
+      ) ENGINE=InnoDB;
+      """;
+
+        // Seeds counters from existing bills for products that don't have a row yet (7-day half-life)
+        String seedProductSales = """
+      INSERT IGNORE INTO product_sales (product_id, units_sold, trending_score, trending_at)
+      SELECT bi.product_id, SUM(bi.quantity),
+             SUM(bi.quantity * POW(0.5, GREATEST(TIMESTAMPDIFF(SECOND, b.bill_date, NOW()), 0) / 604800)), NOW()
+      FROM bill_items bi
+      JOIN bills b ON b.id = bi.bill_id
+      WHERE b.status = 'COMPLETED'
+      GROUP BY bi.product_id
+      """;
+
+        // Tax rates by product or category; a row with neither is the default rate
+        String createTaxRulesTable = """
+      CREATE TABLE IF NOT EXISTS tax_rules (
+        id INT AUTO_INCREMENT PRIMARY KEY,
+        product_id INT NULL,
+        category VARCHAR(100) NULL,
+        rate_basis_points INT NOT NULL,
+        description VARCHAR(255),
+        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+        FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE
+      ) ENGINE=InnoDB;
+      """;
+
+        // The 12% GST that used to be hardcoded in Bill becomes the default rule
+        String seedTaxRules = """
+      INSERT INTO tax_rules (rate_basis_points, description)
+      SELECT 1200, 'GST (default)' FROM DUAL
+      WHERE NOT EXISTS (SELECT 1 FROM tax_rules WHERE product_id IS NULL AND category IS NULL)
+      """;
+
+        // Automatic cart promotions: BUY_X_GET_Y, PERCENT_OFF (product or category) and THRESHOLD
+        String createPromotionsTable = """
+      CREATE TABLE IF NOT EXISTS promotions (
+        id INT AUTO_INCREMENT PRIMARY KEY,
+        name VARCHAR(255) NOT NULL,
+        promo_type VARCHAR(20) NOT NULL,
+        product_id INT NULL,
+        category VARCHAR(100) NULL,
+        buy_quantity INT NOT NULL DEFAULT 0,
+        free_quantity INT NOT NULL DEFAULT 0,
+        percent_basis_points INT NOT NULL DEFAULT 0,
+        min_amount DECIMAL(10,2) NULL,
+        amount_off DECIMAL(10,2) NULL,
+        starts_at TIMESTAMP NULL,
+        ends_at TIMESTAMP NULL,
+        active BOOLEAN NOT NULL DEFAULT TRUE,
+        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+        updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+        FOREIGN KEY (product_id) REFERENCES products(id) ON DELETE CASCADE,
+        INDEX idx_promotions_active_ends (active, ends_at)
+      ) ENGINE=InnoDB;
+      """;
+
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
             // Execute each query separately to ensure order
             stmt.executeUpdate(createProductsTable);
             stmt.executeUpdate(createCustomersTable);
             stmt.executeUpdate(createUsersTable);
             stmt.executeUpdate(createBillsTable);
             stmt.executeUpdate(createBillItemsTable);
+            stmt.executeUpdate(createBillStatsTable);
+            stmt.executeUpdate(seedBillStats);
+            stmt.executeUpdate(createProductSalesTable);
+            stmt.executeUpdate(seedProductSales);
+            stmt.executeUpdate(createTaxRulesTable);
+            stmt.executeUpdate(seedTaxRules);
+            stmt.executeUpdate(createPromotionsTable);
+
+            // Tables created before these indexes existed don't get them from CREATE TABLE IF NOT EXISTS
+            createIndexIfMissing(connection, "products", "idx_products_category", "category");
+            createIndexIfMissing(connection, "bills", "idx_bills_date_id", "bill_date, id");
+            createIndexIfMissing(connection, "bills", "idx_bills_status_date_id", "status, bill_date, id");
+            createIndexIfMissing(connection, "bills", "idx_bills_status_amount", "status, final_amount");
             System.out.println("All tables created successfully!");
         }
     }
 
-    private void updateSchema() {
+    private void createIndexIfMissing(Connection connection, String table, String indexName, String columns) throws SQLException {
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(null, null, table, false, false)) {
+            while (rs.next()) {
+                if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
         try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE INDEX " + indexName + " ON " + table + " (" + columns + ")");
+            System.out.println("Added index " + indexName + " to " + table + " table.");
+        }
+    }
+
+    private void updateSchema() {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
             // Check if image_path column exists in products table
             DatabaseMetaData meta = connection.getMetaData();
             ResultSet rs = meta.getColumns(null, null, "products", "image_path");
@@ -196,7 +416,8 @@ public class DatabaseManager {
     }
 
     private void updateCustomerSchema() {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
             // Check if password column exists in customers table
             DatabaseMetaData meta = connection.getMetaData();
             ResultSet rs = meta.getColumns(null, null, "customers", "password");
@@ -211,7 +432,8 @@ public class DatabaseManager {
     }
 
     private void updateCustomerSchemaForUsername() {
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
             // Check if username column exists in customers table
             DatabaseMetaData meta = connection.getMetaData();
             ResultSet rs = meta.getColumns(null, null, "customers", "username");
@@ -225,9 +447,37 @@ public class DatabaseManager {
         }
     }
 
+    private void updateBillSchemaForOrderKey() {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
+            DatabaseMetaData meta = connection.getMetaData();
+            // A fresh database gets these columns from CREATE TABLE
+            try (ResultSet tables = meta.getTables(null, null, "bills", null)) {
+                if (!tables.next()) {
+                    return;
+                }
+            }
+            try (ResultSet columns = meta.getColumns(null, null, "bills", "order_key")) {
+                if (!columns.next()) {
+                    stmt.executeUpdate("ALTER TABLE bills ADD COLUMN order_key CHAR(36) NULL, ADD UNIQUE INDEX uk_bills_order_key (order_key)");
+                    System.out.println("Added order_key column to bills table.");
+                }
+            }
+            try (ResultSet columns = meta.getColumns(null, null, "bills", "submit_count")) {
+                if (!columns.next()) {
+                    stmt.executeUpdate("ALTER TABLE bills ADD COLUMN submit_count INT NOT NULL DEFAULT 1");
+                    System.out.println("Added submit_count column to bills table.");
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating bill schema for order key: " + e.getMessage());
+        }
+    }
+
     private void insertSampleData() throws SQLException {
         // Insert default admin user if not exists
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
             if (rs.next() && rs.getInt(1) == 0) {
                 // In a real app, use a secure password hash. For this demo, plaintext is fine.
@@ -245,7 +495,8 @@ public class DatabaseManager {
         }
 
         // Check if sample product data already exists
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM products")) {
 
             if (rs.next() && rs.getInt(1) > 0) {
@@ -276,7 +527,8 @@ public class DatabaseManager {
       ('Sarah Wilson', 'sarahwilson', 'sarah.wilson@email.com', '+91-9876543213', '321 Elm Street, City', 'password123')
       """;
 
-        try (Statement stmt = connection.createStatement()) {
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement()) {
             stmt.executeUpdate(insertProducts);
             stmt.executeUpdate(insertCustomers);
             System.out.println("Sample data inserted successfully!");
@@ -286,7 +538,8 @@ public class DatabaseManager {
     private void ensureDefaultCustomer() throws SQLException {
         // Ensure "Walk-in Customer" exists with ID 1 or at least exists
         String checkQuery = "SELECT id FROM customers WHERE id = 1";
-        try (Statement stmt = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(checkQuery)) {
             if (!rs.next()) {
                 // If ID 1 doesn't exist, insert it.
@@ -308,13 +561,9 @@ public class DatabaseManager {
     }
 
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+        if (pool != null) {
+            pool.close();
+            System.out.println("Database connection pool closed.");
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.shopbilling.database;
+
+/**
+ * Point-in-time snapshot of {@link ConnectionPool} counters for monitoring.
+ */
+public class PoolStats {
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int maxConnections;
+    private final int waitingThreads;
+    private final long totalCreated;
+    private final long totalDestroyed;
+    private final long totalBorrowed;
+    private final long totalTimeouts;
+    private final long totalValidationFailures;
+    private final long totalLeaksDetected;
+    private final long averageWaitMicros;
+
+    public PoolStats(int activeConnections, int idleConnections, int maxConnections, int waitingThreads,
+                     long totalCreated, long totalDestroyed, long totalBorrowed, long totalTimeouts,
+                     long totalValidationFailures, long totalLeaksDetected, long averageWaitMicros) {
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.maxConnections = maxConnections;
+        this.waitingThreads = waitingThreads;
+        this.totalCreated = totalCreated;
+        this.totalDestroyed = totalDestroyed;
+        this.totalBorrowed = totalBorrowed;
+        this.totalTimeouts = totalTimeouts;
+        this.totalValidationFailures = totalValidationFailures;
+        this.totalLeaksDetected = totalLeaksDetected;
+        this.averageWaitMicros = averageWaitMicros;
+    }
+
+    public int getActiveConnections() { return activeConnections; }
+    public int getIdleConnections() { return idleConnections; }
+    public int getMaxConnections() { return maxConnections; }
+    public int getWaitingThreads() { return waitingThreads; }
+    public long getTotalCreated() { return totalCreated; }
+    public long getTotalDestroyed() { return totalDestroyed; }
+    public long getTotalBorrowed() { return totalBorrowed; }
+    public long getTotalTimeouts() { return totalTimeouts; }
+    public long getTotalValidationFailures() { return totalValidationFailures; }
+    public long getTotalLeaksDetected() { return totalLeaksDetected; }
+    public long getAverageWaitMicros() { return averageWaitMicros; }
+
+    @Override
+    public String toString() {
+        return "PoolStats{active=" + activeConnections + ", idle=" + idleConnections + ", max=" + maxConnections
+                + ", waiting=" + waitingThreads + ", created=" + totalCreated + ", destroyed=" + totalDestroyed
+                + ", borrowed=" + totalBorrowed + ", timeouts=" + totalTimeouts
+                + ", validationFailures=" + totalValidationFailures + ", leaks=" + totalLeaksDetected
+                + ", avgWaitMicros=" + averageWaitMicros + "}";
+    }
+}
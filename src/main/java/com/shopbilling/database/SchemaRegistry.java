@@ -0,0 +1,57 @@
+package com.shopbilling.database;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Snapshot of which tables and columns exist in the schema, loaded once by
+ * DatabaseManager so DAOs don't have to probe DatabaseMetaData on every call.
+ */
+public class SchemaRegistry {
+    private volatile Snapshot snapshot = new Snapshot(Set.of(), Set.of());
+
+    private static final class Snapshot {
+        final Set<String> tables;
+        final Set<String> columns;
+
+        Snapshot(Set<String> tables, Set<String> columns) {
+            this.tables = tables;
+            this.columns = columns;
+        }
+    }
+
+    /**
+     * Reloads the snapshot from the database. Called after schema changes.
+     */
+    public void refresh(Connection connection) throws SQLException {
+        Set<String> loadedColumns = new HashSet<>();
+        Set<String> loadedTables = new HashSet<>();
+        DatabaseMetaData meta = connection.getMetaData();
+        try (ResultSet rs = meta.getColumns(connection.getCatalog(), null, "%", "%")) {
+            while (rs.next()) {
+                String table = rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT);
+                loadedTables.add(table);
+                loadedColumns.add(key(table, rs.getString("COLUMN_NAME")));
+            }
+        }
+        // One volatile write publishes both sets, so readers never see tables and columns from different loads
+        this.snapshot = new Snapshot(Set.copyOf(loadedTables), Set.copyOf(loadedColumns));
+    }
+
+    public boolean hasTable(String table) {
+        return snapshot.tables.contains(table.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean hasColumn(String table, String column) {
+        return snapshot.columns.contains(key(table, column));
+    }
+
+    private static String key(String table, String column) {
+        return (table + "." + column).toLowerCase(Locale.ROOT);
+    }
+}
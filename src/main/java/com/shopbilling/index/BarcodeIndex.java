@@ -0,0 +1,240 @@
+package com.shopbilling.index;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Barcode to product id lookup for the scanner path.
+ *
+ * Numeric barcodes of up to 17 digits (EAN-8/13, UPC-A, GTIN-14) are packed
+ * into a long together with their length, so leading zeros stay significant,
+ * and stored in an open-addressing table of primitive longs and ints with
+ * linear probing. Anything else falls back to a small String map.
+ *
+ * Reads are lock-free (optimistic StampedLock reads); writes are rare and
+ * take the write lock.
+ */
+public class BarcodeIndex {
+  public static final int NOT_FOUND = -1;
+
+  private static final int MAX_PACKED_DIGITS = 17;
+  private static final int LENGTH_SHIFT = 57; // 10^17 < 2^57
+  private static final long EMPTY = 0L; // Packed keys always have a non-zero length field
+  private static final float MAX_LOAD = 0.5f;
+
+  private final StampedLock lock = new StampedLock();
+  private volatile Table table = new Table(64);
+  private final Map<String, Integer> fallback = new HashMap<>();
+
+  private static final class Table {
+    final long[] keys;
+    final int[] values;
+    final int mask;
+    int size;
+
+    Table(int capacity) {
+      keys = new long[capacity];
+      values = new int[capacity];
+      mask = capacity - 1;
+    }
+  }
+
+  /**
+   * Returns the product id for the barcode, or {@link #NOT_FOUND}.
+   */
+  public int get(String barcode) {
+    if (barcode == null) {
+      return NOT_FOUND;
+    }
+    long key = pack(barcode);
+    if (key == EMPTY) {
+      long stamp = lock.readLock();
+      try {
+        Integer id = fallback.get(barcode);
+        return id != null ? id : NOT_FOUND;
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+
+    long stamp = lock.tryOptimisticRead();
+    int result = probe(table, key);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        result = probe(table, key);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return result;
+  }
+
+  public boolean contains(String barcode) {
+    return get(barcode) != NOT_FOUND;
+  }
+
+  public void put(String barcode, int productId) {
+    if (barcode == null) {
+      return;
+    }
+    long key = pack(barcode);
+    long stamp = lock.writeLock();
+    try {
+      if (key == EMPTY) {
+        fallback.put(barcode, productId);
+        return;
+      }
+      Table t = table;
+      if (t.size + 1 > t.keys.length * MAX_LOAD) {
+        t = resize(t);
+        table = t;
+      }
+      insert(t, key, productId);
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes the barcode only if it still points at the given product.
+   */
+  public void remove(String barcode, int productId) {
+    if (barcode == null) {
+      return;
+    }
+    long key = pack(barcode);
+    long stamp = lock.writeLock();
+    try {
+      if (key == EMPTY) {
+        fallback.remove(barcode, productId);
+        return;
+      }
+      Table t = table;
+      int slot = find(t, key);
+      if (slot >= 0 && t.values[slot] == productId) {
+        deleteSlot(t, slot);
+      }
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public void clear() {
+    long stamp = lock.writeLock();
+    try {
+      table = new Table(64);
+      fallback.clear();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return table.size + fallback.size();
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  // Packs a short all-digit barcode into a non-zero long, or returns EMPTY if it can't be packed
+  static long pack(String barcode) {
+    int length = barcode.length();
+    if (length == 0 || length > MAX_PACKED_DIGITS) {
+      return EMPTY;
+    }
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      char c = barcode.charAt(i);
+      if (c < '0' || c > '9') {
+        return EMPTY;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return ((long) length << LENGTH_SHIFT) | value;
+  }
+
+  private static int hash(long key) {
+    // Murmur3 finalizer: barcodes share long common prefixes, so mix all bits
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key;
+  }
+
+  private static int probe(Table t, long key) {
+    long[] keys = t.keys;
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    for (int i = 0; i <= mask; i++) {
+      long k = keys[slot];
+      if (k == key) {
+        return t.values[slot];
+      }
+      if (k == EMPTY) {
+        return NOT_FOUND;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NOT_FOUND;
+  }
+
+  private static int find(Table t, long key) {
+    int slot = hash(key) & t.mask;
+    while (t.keys[slot] != EMPTY) {
+      if (t.keys[slot] == key) {
+        return slot;
+      }
+      slot = (slot + 1) & t.mask;
+    }
+    return -1;
+  }
+
+  private static void insert(Table t, long key, int value) {
+    int slot = hash(key) & t.mask;
+    while (t.keys[slot] != EMPTY) {
+      if (t.keys[slot] == key) {
+        t.values[slot] = value;
+        return;
+      }
+      slot = (slot + 1) & t.mask;
+    }
+    t.keys[slot] = key;
+    t.values[slot] = value;
+    t.size++;
+  }
+
+  // Backward-shift deletion keeps probe chains intact without tombstones
+  private static void deleteSlot(Table t, int slot) {
+    int gap = slot;
+    int next = (gap + 1) & t.mask;
+    while (t.keys[next] != EMPTY) {
+      int home = hash(t.keys[next]) & t.mask;
+      // Move the entry back if its home slot is not in (gap, next]
+      if (((next - home) & t.mask) >= ((next - gap) & t.mask)) {
+        t.keys[gap] = t.keys[next];
+        t.values[gap] = t.values[next];
+        gap = next;
+      }
+      next = (next + 1) & t.mask;
+    }
+    t.keys[gap] = EMPTY;
+    t.values[gap] = 0;
+    t.size--;
+  }
+
+  private static Table resize(Table old) {
+    Table t = new Table(old.keys.length * 2);
+    for (int i = 0; i < old.keys.length; i++) {
+      if (old.keys[i] != EMPTY) {
+        insert(t, old.keys[i], old.values[i]);
+      }
+    }
+    return t;
+  }
+}
@@ -0,0 +1,207 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Category facets over the product catalog: one {@link CompactBitmap} of
+ * product ids per category (case-insensitive, as MySQL compares them) plus a
+ * bitmap of products in stock. Per-category counts, category and in-stock
+ * filters, and intersections with search results are all bitmap operations.
+ */
+public class CategoryIndex implements ProductIndex {
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, CompactBitmap> byCategory = new HashMap<>();
+  // Display name per category key, as first seen
+  private final Map<String, String> displayNames = new HashMap<>();
+  private CompactBitmap inStock = new CompactBitmap();
+
+  // What each product was indexed under, so removal doesn't depend on the caller's copy
+  private final Map<Integer, String> indexedCategory = new HashMap<>();
+
+  /**
+   * Product count per category, ordered by category name. Products without a
+   * category are not counted.
+   */
+  public Map<String, Integer> getCounts(boolean inStockOnly) {
+    lock.readLock().lock();
+    try {
+      Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (Map.Entry<String, CompactBitmap> entry : byCategory.entrySet()) {
+        int count = inStockOnly ? entry.getValue().andCardinality(inStock) : entry.getValue().cardinality();
+        if (count > 0) {
+          counts.put(displayNames.get(entry.getKey()), count);
+        }
+      }
+      return new LinkedHashMap<>(counts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Product count per category among the given products (e.g. search results).
+   */
+  public Map<String, Integer> getCounts(CompactBitmap within, boolean inStockOnly) {
+    lock.readLock().lock();
+    try {
+      CompactBitmap scope = inStockOnly ? within.and(inStock) : within;
+      Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (Map.Entry<String, CompactBitmap> entry : byCategory.entrySet()) {
+        int count = entry.getValue().andCardinality(scope);
+        if (count > 0) {
+          counts.put(displayNames.get(entry.getKey()), count);
+        }
+      }
+      return new LinkedHashMap<>(counts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Whether a product passes the filters; a null or blank category means any.
+   */
+  public boolean matches(int productId, String category, boolean inStockOnly) {
+    lock.readLock().lock();
+    try {
+      if (inStockOnly && !inStock.contains(productId)) {
+        return false;
+      }
+      if (category == null || category.isBlank()) {
+        return true;
+      }
+      CompactBitmap members = byCategory.get(key(category));
+      return members != null && members.contains(productId);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * The given ids that pass the filters, in their original order.
+   */
+  public int[] filter(int[] productIds, String category, boolean inStockOnly) {
+    lock.readLock().lock();
+    try {
+      CompactBitmap members = category == null || category.isBlank() ? null : byCategory.get(key(category));
+      if (members == null && category != null && !category.isBlank()) {
+        return new int[0];
+      }
+      int[] result = new int[productIds.length];
+      int n = 0;
+      for (int id : productIds) {
+        if ((members == null || members.contains(id)) && (!inStockOnly || inStock.contains(id))) {
+          result[n++] = id;
+        }
+      }
+      return Arrays.copyOf(result, n);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void rebuild(Collection<Product> products) {
+    lock.writeLock().lock();
+    try {
+      byCategory.clear();
+      displayNames.clear();
+      indexedCategory.clear();
+      inStock = new CompactBitmap();
+      for (Product product : products) {
+        index(product);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void add(Product product) {
+    lock.writeLock().lock();
+    try {
+      unindex(product.getId());
+      index(product);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void update(Product previous, Product current) {
+    lock.writeLock().lock();
+    try {
+      String category = current.getCategory();
+      String key = category == null || category.isBlank() ? null : key(category);
+      if (Objects.equals(indexedCategory.get(current.getId()), key)) {
+        // Same category (or still none), so only the in-stock bit can change
+        if (current.getStockQuantity() > 0) {
+          inStock.add(current.getId());
+        } else {
+          inStock.remove(current.getId());
+        }
+        return;
+      }
+      unindex(current.getId());
+      index(current);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void remove(Product product) {
+    lock.writeLock().lock();
+    try {
+      unindex(product.getId());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void index(Product product) {
+    int id = product.getId();
+    if (product.getStockQuantity() > 0) {
+      inStock.add(id);
+    }
+    String category = product.getCategory();
+    if (category == null || category.isBlank()) {
+      return;
+    }
+    String key = key(category);
+    byCategory.computeIfAbsent(key, k -> new CompactBitmap()).add(id);
+    displayNames.putIfAbsent(key, category.trim());
+    indexedCategory.put(id, key);
+  }
+
+  private void unindex(int id) {
+    inStock.remove(id);
+    String key = indexedCategory.remove(id);
+    if (key == null) {
+      return;
+    }
+    CompactBitmap members = byCategory.get(key);
+    if (members != null) {
+      members.remove(id);
+      if (members.isEmpty()) {
+        byCategory.remove(key);
+        displayNames.remove(key);
+      }
+    }
+  }
+
+  private static String key(String category) {
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
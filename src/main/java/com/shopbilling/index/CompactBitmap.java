@@ -0,0 +1,291 @@
+package com.shopbilling.index;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints, in the style of a Roaring bitmap.
+ *
+ * Values are split by their high 16 bits into chunks. A sparse chunk is a
+ * sorted char array; once it passes 4096 values it becomes a 1024-word
+ * bitset (8KB, the size of 4096 chars), so memory stays proportional to the
+ * data while dense chunks intersect word by word. Not thread-safe; owners
+ * guard it with their own lock.
+ */
+public class CompactBitmap {
+  private static final int ARRAY_MAX = 4096;
+  private static final int BITSET_WORDS = 1024;
+
+  private char[] keys = new char[0];
+  private Chunk[] chunks = new Chunk[0];
+
+  private static final class Chunk {
+    // Exactly one of the two is set
+    char[] values;
+    int size;
+    long[] bits;
+
+    int cardinality() {
+      if (bits == null) {
+        return size;
+      }
+      int n = 0;
+      for (long word : bits) {
+        n += Long.bitCount(word);
+      }
+      return n;
+    }
+  }
+
+  public void add(int value) {
+    char high = (char) (value >>> 16);
+    char low = (char) value;
+    int at = Arrays.binarySearch(keys, high);
+    Chunk chunk;
+    if (at >= 0) {
+      chunk = chunks[at];
+    } else {
+      at = -at - 1;
+      chunk = new Chunk();
+      chunk.values = new char[4];
+      keys = insertKey(keys, at, high);
+      chunks = insertChunk(chunks, at, chunk);
+    }
+
+    if (chunk.bits != null) {
+      chunk.bits[low >>> 6] |= 1L << low;
+      return;
+    }
+    int pos = Arrays.binarySearch(chunk.values, 0, chunk.size, low);
+    if (pos >= 0) {
+      return;
+    }
+    if (chunk.size == ARRAY_MAX) {
+      toBitset(chunk);
+      chunk.bits[low >>> 6] |= 1L << low;
+      return;
+    }
+    pos = -pos - 1;
+    if (chunk.size == chunk.values.length) {
+      chunk.values = Arrays.copyOf(chunk.values, Math.min(chunk.size * 2, ARRAY_MAX));
+    }
+    System.arraycopy(chunk.values, pos, chunk.values, pos + 1, chunk.size - pos);
+    chunk.values[pos] = low;
+    chunk.size++;
+  }
+
+  public void remove(int value) {
+    char high = (char) (value >>> 16);
+    char low = (char) value;
+    int at = Arrays.binarySearch(keys, high);
+    if (at < 0) {
+      return;
+    }
+    Chunk chunk = chunks[at];
+    if (chunk.bits != null) {
+      chunk.bits[low >>> 6] &= ~(1L << low);
+      if (chunk.cardinality() <= ARRAY_MAX / 2) {
+        toArray(chunk);
+      }
+    } else {
+      int pos = Arrays.binarySearch(chunk.values, 0, chunk.size, low);
+      if (pos < 0) {
+        return;
+      }
+      System.arraycopy(chunk.values, pos + 1, chunk.values, pos, chunk.size - pos - 1);
+      chunk.size--;
+    }
+    if (chunk.bits == null && chunk.size == 0) {
+      keys = removeKey(keys, at);
+      chunks = removeChunk(chunks, at);
+    }
+  }
+
+  public boolean contains(int value) {
+    int at = Arrays.binarySearch(keys, (char) (value >>> 16));
+    if (at < 0) {
+      return false;
+    }
+    Chunk chunk = chunks[at];
+    char low = (char) value;
+    return chunk.bits != null
+        ? (chunk.bits[low >>> 6] & (1L << low)) != 0
+        : Arrays.binarySearch(chunk.values, 0, chunk.size, low) >= 0;
+  }
+
+  public int cardinality() {
+    int n = 0;
+    for (Chunk chunk : chunks) {
+      n += chunk.cardinality();
+    }
+    return n;
+  }
+
+  public boolean isEmpty() {
+    return chunks.length == 0;
+  }
+
+  /**
+   * Number of values in both bitmaps, without materializing the intersection.
+   */
+  public int andCardinality(CompactBitmap other) {
+    int n = 0;
+    int i = 0;
+    int j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        n += andCardinality(chunks[i++], other.chunks[j++]);
+      }
+    }
+    return n;
+  }
+
+  /**
+   * A new bitmap with the values present in both.
+   */
+  public CompactBitmap and(CompactBitmap other) {
+    CompactBitmap result = new CompactBitmap();
+    int i = 0;
+    int j = 0;
+    while (i < keys.length && j < other.keys.length) {
+      if (keys[i] < other.keys[j]) {
+        i++;
+      } else if (keys[i] > other.keys[j]) {
+        j++;
+      } else {
+        int base = keys[i] << 16;
+        Chunk a = chunks[i++];
+        Chunk b = other.chunks[j++];
+        if (a.bits != null && b.bits != null) {
+          for (int w = 0; w < BITSET_WORDS; w++) {
+            long word = a.bits[w] & b.bits[w];
+            while (word != 0) {
+              result.add(base | (w << 6) | Long.numberOfTrailingZeros(word));
+              word &= word - 1;
+            }
+          }
+        } else {
+          // Drive from the sparse side
+          Chunk sparse = a.bits == null ? a : b;
+          Chunk probe = sparse == a ? b : a;
+          for (int k = 0; k < sparse.size; k++) {
+            if (chunkContains(probe, sparse.values[k])) {
+              result.add(base | sparse.values[k]);
+            }
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * All values in ascending order.
+   */
+  public int[] toArray() {
+    int[] result = new int[cardinality()];
+    int n = 0;
+    for (int c = 0; c < chunks.length; c++) {
+      int base = keys[c] << 16;
+      Chunk chunk = chunks[c];
+      if (chunk.bits != null) {
+        for (int w = 0; w < BITSET_WORDS; w++) {
+          long word = chunk.bits[w];
+          while (word != 0) {
+            result[n++] = base | (w << 6) | Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+          }
+        }
+      } else {
+        for (int k = 0; k < chunk.size; k++) {
+          result[n++] = base | chunk.values[k];
+        }
+      }
+    }
+    return result;
+  }
+
+  private static int andCardinality(Chunk a, Chunk b) {
+    if (a.bits != null && b.bits != null) {
+      int n = 0;
+      for (int w = 0; w < BITSET_WORDS; w++) {
+        n += Long.bitCount(a.bits[w] & b.bits[w]);
+      }
+      return n;
+    }
+    Chunk sparse = a.bits == null ? a : b;
+    Chunk probe = sparse == a ? b : a;
+    int n = 0;
+    for (int k = 0; k < sparse.size; k++) {
+      if (chunkContains(probe, sparse.values[k])) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  private static boolean chunkContains(Chunk chunk, char low) {
+    return chunk.bits != null
+        ? (chunk.bits[low >>> 6] & (1L << low)) != 0
+        : Arrays.binarySearch(chunk.values, 0, chunk.size, low) >= 0;
+  }
+
+  private static void toBitset(Chunk chunk) {
+    long[] bits = new long[BITSET_WORDS];
+    for (int k = 0; k < chunk.size; k++) {
+      char low = chunk.values[k];
+      bits[low >>> 6] |= 1L << low;
+    }
+    chunk.bits = bits;
+    chunk.values = null;
+    chunk.size = 0;
+  }
+
+  private static void toArray(Chunk chunk) {
+    char[] values = new char[Math.max(chunk.cardinality(), 4)];
+    int n = 0;
+    for (int w = 0; w < BITSET_WORDS; w++) {
+      long word = chunk.bits[w];
+      while (word != 0) {
+        values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    chunk.values = values;
+    chunk.size = n;
+    chunk.bits = null;
+  }
+
+  private static char[] insertKey(char[] array, int at, char key) {
+    char[] updated = new char[array.length + 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    updated[at] = key;
+    System.arraycopy(array, at, updated, at + 1, array.length - at);
+    return updated;
+  }
+
+  private static Chunk[] insertChunk(Chunk[] array, int at, Chunk chunk) {
+    Chunk[] updated = new Chunk[array.length + 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    updated[at] = chunk;
+    System.arraycopy(array, at, updated, at + 1, array.length - at);
+    return updated;
+  }
+
+  private static char[] removeKey(char[] array, int at) {
+    char[] updated = new char[array.length - 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    System.arraycopy(array, at + 1, updated, at, array.length - at - 1);
+    return updated;
+  }
+
+  private static Chunk[] removeChunk(Chunk[] array, int at) {
+    Chunk[] updated = new Chunk[array.length - 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    System.arraycopy(array, at + 1, updated, at, array.length - at - 1);
+    return updated;
+  }
+}
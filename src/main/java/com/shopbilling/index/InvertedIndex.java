@@ -0,0 +1,321 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Tokenized full-text index over product name, category and description.
+ *
+ * Each field has its own term dictionary (a sorted map, so a query token can
+ * match every term it prefixes) whose postings are sorted primitive int arrays
+ * of product ids. Multi-word queries are ANDed, and matches are ranked by the
+ * best field each token hit: name above category above description.
+ *
+ * Single-product updates go into the live concurrent maps; a rebuild fills
+ * new maps off to the side and publishes them with one volatile write, so a
+ * search never sees a half-loaded catalog.
+ */
+public class InvertedIndex implements ProductIndex {
+  private static final int NAME_WEIGHT = 4;
+  private static final int CATEGORY_WEIGHT = 2;
+  private static final int DESCRIPTION_WEIGHT = 1;
+
+  private volatile Dictionaries dictionaries = new Dictionaries();
+
+  // Terms indexed per product, so removal doesn't depend on the caller's copy of the product;
+  // only touched under the lock
+  private Map<Integer, String[][]> indexedTerms = new ConcurrentHashMap<>();
+
+  private static final class Dictionaries {
+    final NavigableMap<String, int[]> nameTerms = new ConcurrentSkipListMap<>();
+    final NavigableMap<String, int[]> categoryTerms = new ConcurrentSkipListMap<>();
+    final NavigableMap<String, int[]> descriptionTerms = new ConcurrentSkipListMap<>();
+  }
+
+  /**
+   * Product ids matching every token of the query, best matches first.
+   * Ties keep ascending id order; callers typically re-sort ties by name.
+   */
+  public List<ScoredMatch> search(String query) {
+    String[] tokens = tokenize(query);
+    if (tokens.length == 0) {
+      return new ArrayList<>();
+    }
+
+    Dictionaries d = dictionaries;
+    int[] docs = null;
+    int[] scores = null;
+    for (String token : tokens) {
+      int[][] hit = matchToken(d, token);
+      if (docs == null) {
+        docs = hit[0];
+        scores = hit[1];
+      } else {
+        int[][] merged = intersect(docs, scores, hit[0], hit[1]);
+        docs = merged[0];
+        scores = merged[1];
+      }
+      if (docs.length == 0) {
+        break;
+      }
+    }
+
+    List<ScoredMatch> matches = new ArrayList<>(docs.length);
+    for (int i = 0; i < docs.length; i++) {
+      matches.add(new ScoredMatch(docs[i], scores[i]));
+    }
+    matches.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+    return matches;
+  }
+
+  public static final class ScoredMatch {
+    private final int productId;
+    private final int score;
+
+    ScoredMatch(int productId, int score) {
+      this.productId = productId;
+      this.score = score;
+    }
+
+    public int getProductId() { return productId; }
+    public int getScore() { return score; }
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Product> products) {
+    // Build postings in bulk, then sort each list once
+    Map<Integer, String[][]> terms = new ConcurrentHashMap<>();
+    Map<String, IntList> names = new HashMap<>();
+    Map<String, IntList> categories = new HashMap<>();
+    Map<String, IntList> descriptions = new HashMap<>();
+    for (Product product : products) {
+      String[][] productTerms = termsOf(product);
+      terms.put(product.getId(), productTerms);
+      collect(names, productTerms[0], product.getId());
+      collect(categories, productTerms[1], product.getId());
+      collect(descriptions, productTerms[2], product.getId());
+    }
+    Dictionaries built = new Dictionaries();
+    publish(built.nameTerms, names);
+    publish(built.categoryTerms, categories);
+    publish(built.descriptionTerms, descriptions);
+    indexedTerms = terms;
+    dictionaries = built;
+  }
+
+  @Override
+  public synchronized void add(Product product) {
+    String[][] terms = termsOf(product);
+    String[][] previous = indexedTerms.put(product.getId(), terms);
+    if (previous != null) {
+      unindex(product.getId(), previous);
+    }
+    Dictionaries d = dictionaries;
+    for (String term : terms[0]) {
+      d.nameTerms.put(term, insert(d.nameTerms.get(term), product.getId()));
+    }
+    for (String term : terms[1]) {
+      d.categoryTerms.put(term, insert(d.categoryTerms.get(term), product.getId()));
+    }
+    for (String term : terms[2]) {
+      d.descriptionTerms.put(term, insert(d.descriptionTerms.get(term), product.getId()));
+    }
+  }
+
+  @Override
+  public synchronized void update(Product previous, Product current) {
+    if (Arrays.deepEquals(termsOf(current), indexedTerms.get(current.getId()))) {
+      return;
+    }
+    add(current);
+  }
+
+  @Override
+  public synchronized void remove(Product product) {
+    String[][] previous = indexedTerms.remove(product.getId());
+    if (previous != null) {
+      unindex(product.getId(), previous);
+    }
+  }
+
+  private void unindex(int productId, String[][] terms) {
+    Dictionaries d = dictionaries;
+    removeFrom(d.nameTerms, terms[0], productId);
+    removeFrom(d.categoryTerms, terms[1], productId);
+    removeFrom(d.descriptionTerms, terms[2], productId);
+  }
+
+  private static void removeFrom(NavigableMap<String, int[]> dictionary, String[] terms, int productId) {
+    for (String term : terms) {
+      int[] postings = dictionary.get(term);
+      if (postings == null) {
+        continue;
+      }
+      int[] updated = delete(postings, productId);
+      if (updated.length == 0) {
+        dictionary.remove(term);
+      } else {
+        dictionary.put(term, updated);
+      }
+    }
+  }
+
+  // Returns {docs, scores}: every product with a term starting with the token, scored by best field
+  private static int[][] matchToken(Dictionaries d, String token) {
+    IntList docs = new IntList();
+    IntList weights = new IntList();
+    gather(d.nameTerms, token, NAME_WEIGHT, docs, weights);
+    gather(d.categoryTerms, token, CATEGORY_WEIGHT, docs, weights);
+    gather(d.descriptionTerms, token, DESCRIPTION_WEIGHT, docs, weights);
+
+    // Sort (doc, weight) pairs by doc and keep the best weight per doc
+    long[] pairs = new long[docs.size];
+    for (int i = 0; i < docs.size; i++) {
+      pairs[i] = ((long) docs.values[i] << 32) | (weights.values[i] & 0xffffffffL);
+    }
+    Arrays.sort(pairs);
+    IntList outDocs = new IntList();
+    IntList outScores = new IntList();
+    for (long pair : pairs) {
+      int doc = (int) (pair >> 32);
+      int weight = (int) pair;
+      if (outDocs.size > 0 && outDocs.values[outDocs.size - 1] == doc) {
+        outScores.values[outScores.size - 1] = Math.max(outScores.values[outScores.size - 1], weight);
+      } else {
+        outDocs.add(doc);
+        outScores.add(weight);
+      }
+    }
+    return new int[][]{outDocs.toArray(), outScores.toArray()};
+  }
+
+  private static void gather(NavigableMap<String, int[]> dictionary, String token, int weight, IntList docs, IntList weights) {
+    for (int[] postings : dictionary.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+      for (int doc : postings) {
+        docs.add(doc);
+        weights.add(weight);
+      }
+    }
+  }
+
+  private static int[][] intersect(int[] docsA, int[] scoresA, int[] docsB, int[] scoresB) {
+    IntList docs = new IntList();
+    IntList scores = new IntList();
+    int i = 0;
+    int j = 0;
+    while (i < docsA.length && j < docsB.length) {
+      if (docsA[i] < docsB[j]) {
+        i++;
+      } else if (docsA[i] > docsB[j]) {
+        j++;
+      } else {
+        docs.add(docsA[i]);
+        scores.add(scoresA[i] + scoresB[j]);
+        i++;
+        j++;
+      }
+    }
+    return new int[][]{docs.toArray(), scores.toArray()};
+  }
+
+  private static int[] insert(int[] postings, int productId) {
+    if (postings == null) {
+      return new int[]{productId};
+    }
+    int at = Arrays.binarySearch(postings, productId);
+    if (at >= 0) {
+      return postings;
+    }
+    at = -at - 1;
+    int[] updated = new int[postings.length + 1];
+    System.arraycopy(postings, 0, updated, 0, at);
+    updated[at] = productId;
+    System.arraycopy(postings, at, updated, at + 1, postings.length - at);
+    return updated;
+  }
+
+  private static int[] delete(int[] postings, int productId) {
+    int at = Arrays.binarySearch(postings, productId);
+    if (at < 0) {
+      return postings;
+    }
+    int[] updated = new int[postings.length - 1];
+    System.arraycopy(postings, 0, updated, 0, at);
+    System.arraycopy(postings, at + 1, updated, at, postings.length - at - 1);
+    return updated;
+  }
+
+  private static void collect(Map<String, IntList> target, String[] terms, int productId) {
+    for (String term : terms) {
+      target.computeIfAbsent(term, t -> new IntList()).add(productId);
+    }
+  }
+
+  private static void publish(NavigableMap<String, int[]> dictionary, Map<String, IntList> postings) {
+    for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+      int[] ids = entry.getValue().toArray();
+      Arrays.sort(ids);
+      dictionary.put(entry.getKey(), ids);
+    }
+  }
+
+  private static String[][] termsOf(Product product) {
+    return new String[][]{
+        distinct(tokenize(product.getName())),
+        distinct(tokenize(product.getCategory())),
+        distinct(tokenize(product.getDescription()))
+    };
+  }
+
+  private static String[] distinct(String[] tokens) {
+    return Arrays.stream(tokens).distinct().toArray(String[]::new);
+  }
+
+  /**
+   * Lower-cased runs of letters and digits.
+   */
+  public static String[] tokenize(String text) {
+    if (text == null || text.isEmpty()) {
+      return new String[0];
+    }
+    List<String> tokens = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  // Growable int array, to avoid boxing while building postings and query results
+  private static final class IntList {
+    int[] values = new int[8];
+    int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
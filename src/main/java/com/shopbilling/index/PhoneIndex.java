@@ -0,0 +1,142 @@
+package com.shopbilling.index;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Partial phone number lookup on digits only, so "98765 43210", "+91-9876543210"
+ * and "9876543210" are all found by typing any run of their digits.
+ *
+ * Digit trigrams are small numbers (000-999), so the posting lists live in a
+ * plain array indexed by the trigram value, with no hashing on the lookup path.
+ */
+public class PhoneIndex {
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Postings[] postings = new Postings[1000];
+  private String[] digitsById = new String[1024];
+  private int size;
+
+  public void put(int id, String phone) {
+    String digits = digitsOf(phone);
+    lock.writeLock().lock();
+    try {
+      remove(id);
+      if (digits.isEmpty()) {
+        return;
+      }
+      if (id >= digitsById.length) {
+        digitsById = Arrays.copyOf(digitsById, Math.max(digitsById.length * 2, id + 1));
+      }
+      digitsById[id] = digits;
+      size++;
+      for (int i = 0; i + 3 <= digits.length(); i++) {
+        int gram = trigram(digits, i);
+        if (postings[gram] == null) {
+          postings[gram] = new Postings();
+        }
+        postings[gram].add(id);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      String previous = id < digitsById.length ? digitsById[id] : null;
+      if (previous != null) {
+        unindex(id, previous);
+        digitsById[id] = null;
+        size--;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      Arrays.fill(postings, null);
+      digitsById = new String[1024];
+      size = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Ids whose phone number contains the digits of the query, in ascending id order.
+   */
+  public int[] search(String query) {
+    String digits = digitsOf(query);
+    if (digits.isEmpty()) {
+      return new int[0];
+    }
+    lock.readLock().lock();
+    try {
+      if (digits.length() < 3) {
+        int[] result = new int[size];
+        int n = 0;
+        for (int id = 0; id < digitsById.length; id++) {
+          if (digitsById[id] != null && digitsById[id].contains(digits)) {
+            result[n++] = id;
+          }
+        }
+        return Arrays.copyOf(result, n);
+      }
+
+      // Drive from the rarest trigram of the query
+      Postings smallest = null;
+      for (int i = 0; i + 3 <= digits.length(); i++) {
+        Postings list = postings[trigram(digits, i)];
+        if (list == null) {
+          return new int[0];
+        }
+        if (smallest == null || list.size() < smallest.size()) {
+          smallest = list;
+        }
+      }
+      int[] result = new int[smallest.size()];
+      int n = 0;
+      for (int i = 0; i < smallest.size(); i++) {
+        int id = smallest.get(i);
+        if (digitsById[id].contains(digits)) {
+          result[n++] = id;
+        }
+      }
+      return Arrays.copyOf(result, n);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void unindex(int id, String digits) {
+    for (int i = 0; i + 3 <= digits.length(); i++) {
+      int gram = trigram(digits, i);
+      if (postings[gram] != null) {
+        postings[gram].remove(id);
+      }
+    }
+  }
+
+  private static int trigram(String digits, int at) {
+    return (digits.charAt(at) - '0') * 100 + (digits.charAt(at + 1) - '0') * 10 + (digits.charAt(at + 2) - '0');
+  }
+
+  public static String digitsOf(String value) {
+    if (value == null) {
+      return "";
+    }
+    StringBuilder digits = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits.append(c);
+      }
+    }
+    return digits.toString();
+  }
+}
@@ -0,0 +1,57 @@
+package com.shopbilling.index;
+
+import java.util.Arrays;
+
+/**
+ * Growable sorted array of ids for an n-gram posting list. Not thread-safe;
+ * owners guard it with their own lock.
+ */
+final class Postings {
+  private int[] ids = new int[4];
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  int get(int i) {
+    return ids[i];
+  }
+
+  void add(int id) {
+    // Ids mostly arrive in ascending order (bulk loads, new rows), so appending is the common case
+    if (size == 0 || ids[size - 1] < id) {
+      grow();
+      ids[size++] = id;
+      return;
+    }
+    int at = Arrays.binarySearch(ids, 0, size, id);
+    if (at >= 0) {
+      return;
+    }
+    at = -at - 1;
+    grow();
+    System.arraycopy(ids, at, ids, at + 1, size - at);
+    ids[at] = id;
+    size++;
+  }
+
+  void remove(int id) {
+    int at = Arrays.binarySearch(ids, 0, size, id);
+    if (at < 0) {
+      return;
+    }
+    System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+    size--;
+  }
+
+  boolean contains(int id) {
+    return Arrays.binarySearch(ids, 0, size, id) >= 0;
+  }
+
+  private void grow() {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, size * 2);
+    }
+  }
+}
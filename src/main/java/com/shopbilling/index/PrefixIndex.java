@@ -0,0 +1,164 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Case-insensitive prefix index over product names for type-ahead search.
+ *
+ * Names are kept lower-cased in one sorted array (ties broken by id), so a
+ * prefix query is a binary search for the first candidate followed by a
+ * scan of the matching run, already in name order. Updates are applied
+ * copy-on-write to an immutable snapshot, so lookups never block.
+ */
+public class PrefixIndex implements ProductIndex {
+  private volatile Snapshot snapshot = new Snapshot(new String[0], new int[0]);
+
+  private static final class Snapshot {
+    final String[] names;
+    final int[] ids;
+
+    Snapshot(String[] names, int[] ids) {
+      this.names = names;
+      this.ids = ids;
+    }
+  }
+
+  /**
+   * Returns up to limit product ids whose name starts with the prefix, ordered by name.
+   */
+  public int[] search(String prefix, int limit) {
+    Snapshot s = snapshot;
+    String key = normalize(prefix);
+    int from = lowerBound(s, key, Integer.MIN_VALUE);
+    int to = from;
+    while (to < s.names.length && to - from < limit && s.names[to].startsWith(key)) {
+      to++;
+    }
+    return Arrays.copyOfRange(s.ids, from, to);
+  }
+
+  public int countMatches(String prefix) {
+    Snapshot s = snapshot;
+    String key = normalize(prefix);
+    int from = lowerBound(s, key, Integer.MIN_VALUE);
+    // Every name with the prefix sorts before key + the highest char
+    int to = lowerBound(s, key + Character.MAX_VALUE, Integer.MIN_VALUE);
+    return to - from;
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Product> products) {
+    Entry[] entries = new Entry[products.size()];
+    int n = 0;
+    for (Product product : products) {
+      entries[n++] = new Entry(normalize(product.getName()), product.getId());
+    }
+    Arrays.sort(entries, 0, n);
+    String[] names = new String[n];
+    int[] ids = new int[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = entries[i].name;
+      ids[i] = entries[i].id;
+    }
+    snapshot = new Snapshot(names, ids);
+  }
+
+  @Override
+  public synchronized void add(Product product) {
+    Snapshot s = snapshot;
+    String name = normalize(product.getName());
+    int at = lowerBound(s, name, product.getId());
+    int n = s.names.length;
+    String[] names = new String[n + 1];
+    int[] ids = new int[n + 1];
+    System.arraycopy(s.names, 0, names, 0, at);
+    System.arraycopy(s.ids, 0, ids, 0, at);
+    names[at] = name;
+    ids[at] = product.getId();
+    System.arraycopy(s.names, at, names, at + 1, n - at);
+    System.arraycopy(s.ids, at, ids, at + 1, n - at);
+    snapshot = new Snapshot(names, ids);
+  }
+
+  @Override
+  public synchronized void update(Product previous, Product current) {
+    if (normalize(previous.getName()).equals(normalize(current.getName()))) {
+      return;
+    }
+    remove(previous);
+    add(current);
+  }
+
+  @Override
+  public synchronized void remove(Product product) {
+    Snapshot s = snapshot;
+    int at = lowerBound(s, normalize(product.getName()), product.getId());
+    if (at >= s.ids.length || s.ids[at] != product.getId()) {
+      // The name we were given may be stale (shared instance renamed in place), so look up by id
+      at = indexOfId(s, product.getId());
+      if (at < 0) {
+        return;
+      }
+    }
+    int n = s.names.length;
+    String[] names = new String[n - 1];
+    int[] ids = new int[n - 1];
+    System.arraycopy(s.names, 0, names, 0, at);
+    System.arraycopy(s.ids, 0, ids, 0, at);
+    System.arraycopy(s.names, at + 1, names, at, n - at - 1);
+    System.arraycopy(s.ids, at + 1, ids, at, n - at - 1);
+    snapshot = new Snapshot(names, ids);
+  }
+
+  private static int indexOfId(Snapshot s, int id) {
+    for (int i = 0; i < s.ids.length; i++) {
+      if (s.ids[i] == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // First position whose (name, id) is >= the given key
+  private static int lowerBound(Snapshot s, String name, int id) {
+    int lo = 0;
+    int hi = s.names.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int cmp = s.names[mid].compareTo(name);
+      if (cmp == 0) {
+        cmp = Integer.compare(s.ids[mid], id);
+      }
+      if (cmp < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  static String normalize(String value) {
+    return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+  }
+
+  private static final class Entry implements Comparable<Entry> {
+    final String name;
+    final int id;
+
+    Entry(String name, int id) {
+      this.name = name;
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int cmp = name.compareTo(other.name);
+      return cmp != 0 ? cmp : Integer.compare(id, other.id);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import java.util.Collection;
+
+/**
+ * An in-memory index over the product catalog, kept in sync by ProductCache.
+ * Implementations must tolerate concurrent readers while an update is applied.
+ */
+public interface ProductIndex {
+  // Replace the whole index, e.g. after the catalog was (re)loaded
+  void rebuild(Collection<Product> products);
+
+  void add(Product product);
+
+  void remove(Product product);
+
+  /**
+   * Replaces the product indexed as previous with current, which has the same
+   * id. Called for every cache refresh, most of which only change stock, so
+   * implementations skip the work when the values they index are unchanged.
+   */
+  default void update(Product previous, Product current) {
+    remove(previous);
+    add(current);
+  }
+}
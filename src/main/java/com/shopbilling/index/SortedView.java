@@ -0,0 +1,157 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The catalog kept permanently sorted in one order, plus a copy grouped by
+ * category (case-insensitive) and sorted in the same order within each group.
+ *
+ * Switching the product list to this order, with or without a category
+ * filter, is a binary search and a read-only view over the cached Product
+ * instances: nothing is sorted or re-read. Product is mutable, so ProductDAO
+ * still copies each instance it hands out. Writes binary-insert into a
+ * copy-on-write snapshot, so readers never block.
+ */
+public class SortedView implements ProductIndex {
+  private static final Comparator<String> CATEGORY_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
+  private final Comparator<Product> order;
+  private final Comparator<Product> categoryOrder;
+  private volatile Snapshot snapshot = new Snapshot(new Product[0], new Product[0]);
+
+  private static final class Snapshot {
+    final Product[] sorted;
+    final Product[] byCategory;
+
+    Snapshot(Product[] sorted, Product[] byCategory) {
+      this.sorted = sorted;
+      this.byCategory = byCategory;
+    }
+  }
+
+  public SortedView(Comparator<Product> order) {
+    // Ties are broken by id so every product has exactly one position
+    this.order = order.thenComparingInt(Product::getId);
+    this.categoryOrder = Comparator.comparing(Product::getCategory, CATEGORY_ORDER).thenComparing(this.order);
+  }
+
+  /**
+   * Every product in this order, as a read-only view.
+   */
+  public List<Product> all() {
+    return Collections.unmodifiableList(Arrays.asList(snapshot.sorted));
+  }
+
+  /**
+   * Products of one category in this order, as a read-only view.
+   */
+  public List<Product> inCategory(String category) {
+    Product[] byCategory = snapshot.byCategory;
+    int from = categoryBound(byCategory, category, false);
+    int to = categoryBound(byCategory, category, true);
+    return Collections.unmodifiableList(Arrays.asList(byCategory).subList(from, to));
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Product> products) {
+    Product[] sorted = products.toArray(new Product[0]);
+    Product[] byCategory = sorted.clone();
+    Arrays.sort(sorted, order);
+    Arrays.sort(byCategory, categoryOrder);
+    snapshot = new Snapshot(sorted, byCategory);
+  }
+
+  @Override
+  public synchronized void add(Product product) {
+    Snapshot s = snapshot;
+    snapshot = new Snapshot(insert(s.sorted, product, order), insert(s.byCategory, product, categoryOrder));
+  }
+
+  /**
+   * When neither the sort key nor the category changed (e.g. a stock update),
+   * the new instance takes the old one's slots without copying the arrays.
+   */
+  @Override
+  public synchronized void update(Product previous, Product current) {
+    if (order.compare(previous, current) != 0
+        || CATEGORY_ORDER.compare(previous.getCategory(), current.getCategory()) != 0) {
+      remove(previous);
+      add(current);
+      return;
+    }
+    Snapshot s = snapshot;
+    int sortedAt = Arrays.binarySearch(s.sorted, previous, order);
+    int categoryAt = Arrays.binarySearch(s.byCategory, previous, categoryOrder);
+    if (sortedAt < 0 || categoryAt < 0 || s.sorted[sortedAt].getId() != current.getId()
+        || s.byCategory[categoryAt].getId() != current.getId()) {
+      remove(previous);
+      add(current);
+      return;
+    }
+    // A reference write is atomic, so readers see either the old or the new instance
+    s.sorted[sortedAt] = current;
+    s.byCategory[categoryAt] = current;
+  }
+
+  @Override
+  public synchronized void remove(Product product) {
+    Snapshot s = snapshot;
+    snapshot = new Snapshot(delete(s.sorted, product, order), delete(s.byCategory, product, categoryOrder));
+  }
+
+  private static Product[] insert(Product[] array, Product product, Comparator<Product> comparator) {
+    int at = Arrays.binarySearch(array, product, comparator);
+    at = at >= 0 ? at : -at - 1;
+    Product[] updated = new Product[array.length + 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    updated[at] = product;
+    System.arraycopy(array, at, updated, at + 1, array.length - at);
+    return updated;
+  }
+
+  private static Product[] delete(Product[] array, Product product, Comparator<Product> comparator) {
+    int at = Arrays.binarySearch(array, product, comparator);
+    if (at < 0 || array[at].getId() != product.getId()) {
+      // The sort key we were given may be stale (shared instance changed in place), so look up by id
+      at = indexOfId(array, product.getId());
+      if (at < 0) {
+        return array;
+      }
+    }
+    Product[] updated = new Product[array.length - 1];
+    System.arraycopy(array, 0, updated, 0, at);
+    System.arraycopy(array, at + 1, updated, at, array.length - at - 1);
+    return updated;
+  }
+
+  private static int indexOfId(Product[] array, int id) {
+    for (int i = 0; i < array.length; i++) {
+      if (array[i].getId() == id) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  // First position whose category is >= the given one, or > it when upper is set
+  private static int categoryBound(Product[] array, String category, boolean upper) {
+    int lo = 0;
+    int hi = array.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      int cmp = CATEGORY_ORDER.compare(array[mid].getCategory(), category);
+      if (cmp < 0 || (upper && cmp == 0)) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
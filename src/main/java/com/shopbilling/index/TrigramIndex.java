@@ -0,0 +1,190 @@
+package com.shopbilling.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Case-insensitive substring index over a few short text fields per record.
+ *
+ * Every three-character window of each field is packed into a long and mapped
+ * to a sorted posting list of record ids. A query of three or more characters
+ * intersects the posting lists of its own trigrams, starting with the rarest,
+ * and the surviving candidates are checked against the stored text, so results
+ * match what a '%term%' LIKE would return. Shorter queries fall back to a scan
+ * of the stored text, which is still in memory.
+ */
+public class TrigramIndex {
+  private static final int MAX_PROBED_LISTS = 3;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, Postings> postings = new HashMap<>();
+  // Normalized fields by id; ids are auto-increment keys, so a dense array beats a boxed map
+  private String[][] fields = new String[1024][];
+  private int size;
+
+  public void put(int id, String... values) {
+    String[] normalized = new String[values.length];
+    for (int i = 0; i < values.length; i++) {
+      normalized[i] = normalize(values[i]);
+    }
+
+    lock.writeLock().lock();
+    try {
+      ensureCapacity(id);
+      String[] previous = fields[id];
+      if (previous != null) {
+        unindex(id, previous);
+      } else {
+        size++;
+      }
+      fields[id] = normalized;
+      for (String value : normalized) {
+        for (int i = 0; i + 3 <= value.length(); i++) {
+          postings.computeIfAbsent(trigram(value, i), k -> new Postings()).add(id);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      String[] previous = id < fields.length ? fields[id] : null;
+      if (previous != null) {
+        unindex(id, previous);
+        fields[id] = null;
+        size--;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      postings.clear();
+      fields = new String[1024][];
+      size = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of records with a field containing the term, in ascending id order.
+   */
+  public int[] search(String term) {
+    String key = normalize(term);
+    lock.readLock().lock();
+    try {
+      if (key.length() < 3) {
+        return scan(key);
+      }
+
+      // Distinct trigrams of the term, rarest list first so the candidate set starts small
+      List<Postings> lists = new ArrayList<>();
+      for (int i = 0; i + 3 <= key.length(); i++) {
+        Postings list = postings.get(trigram(key, i));
+        if (list == null) {
+          return new int[0];
+        }
+        if (!lists.contains(list)) {
+          lists.add(list);
+        }
+      }
+      lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+      // Past the rarest few lists, probing more costs more than the final text check saves
+      int probes = Math.min(lists.size(), MAX_PROBED_LISTS);
+
+      Postings smallest = lists.get(0);
+      int[] result = new int[smallest.size()];
+      int n = 0;
+      candidates:
+      for (int i = 0; i < smallest.size(); i++) {
+        int id = smallest.get(i);
+        for (int j = 1; j < probes; j++) {
+          if (!lists.get(j).contains(id)) {
+            continue candidates;
+          }
+        }
+        // Trigrams can co-occur without forming the term, so confirm against the text
+        if (matches(fields[id], key)) {
+          result[n++] = id;
+        }
+      }
+      return Arrays.copyOf(result, n);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int[] scan(String key) {
+    int[] result = new int[size];
+    int n = 0;
+    for (int id = 0; id < fields.length; id++) {
+      if (fields[id] != null && matches(fields[id], key)) {
+        result[n++] = id;
+      }
+    }
+    return Arrays.copyOf(result, n);
+  }
+
+  private void ensureCapacity(int id) {
+    if (id >= fields.length) {
+      fields = Arrays.copyOf(fields, Math.max(fields.length * 2, id + 1));
+    }
+  }
+
+  private void unindex(int id, String[] values) {
+    for (String value : values) {
+      for (int i = 0; i + 3 <= value.length(); i++) {
+        Long gram = trigram(value, i);
+        Postings list = postings.get(gram);
+        if (list != null) {
+          list.remove(id);
+          if (list.size() == 0) {
+            postings.remove(gram);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean matches(String[] values, String key) {
+    if (values == null) {
+      return false;
+    }
+    for (String value : values) {
+      if (value.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long trigram(String value, int at) {
+    return ((long) value.charAt(at) << 32) | ((long) value.charAt(at + 1) << 16) | value.charAt(at + 2);
+  }
+
+  static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,432 @@
+package com.shopbilling.journal;
+
+import com.shopbilling.model.Bill;
+import com.shopbilling.model.BillItem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of checkouts that were acknowledged before reaching MySQL.
+ *
+ * Each record is a length prefix, a type byte with its payload, and a CRC32
+ * of the type and payload, and is forced to disk before the append returns.
+ * A BILL record holds everything needed to insert the bill; a DRAINED record
+ * says the bill with that order key is committed, under which server id.
+ * Bills captured by the offline till also carry a negative local id in both
+ * records, so the local-to-server id mapping and the lowest local id handed
+ * out survive a restart; {@link #compact} keeps those DRAINED records.
+ * Opening the journal replays it to find the bills still waiting, and cuts
+ * off a torn record at the tail left by a crash in the middle of an append.
+ *
+ * Damage anywhere else is not expected and is never silently cut off: the
+ * file is copied aside, replay resyncs on the next intact record so later
+ * checkouts are still recovered, and the journal is rewritten with the bills
+ * that could be read.
+ */
+public class BillJournal implements Closeable {
+  private static final byte BILL = 1;
+  private static final byte DRAINED = 2;
+  private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+
+  // Local id of bills that never had one (the write-behind path)
+  public static final int NO_LOCAL_ID = 0;
+
+  private final Path path;
+  private FileChannel channel;
+  private final List<Entry> recovered;
+  // Guarded by this; drained bills that had a local id, by local id
+  private final Map<Integer, Drained> drainedByLocalId;
+  private int lowestLocalId;
+
+  /**
+   * A journaled bill. The bill is decoded from the journal bytes, so it does not
+   * share state with the instance the till is still holding.
+   */
+  public static final class Entry {
+    private final String orderKey;
+    private final long acceptedAtMillis;
+    private final int localId;
+    private final Bill bill;
+
+    Entry(String orderKey, long acceptedAtMillis, int localId, Bill bill) {
+      this.orderKey = orderKey;
+      this.acceptedAtMillis = acceptedAtMillis;
+      this.localId = localId;
+      this.bill = bill;
+    }
+
+    public String getOrderKey() { return orderKey; }
+    public long getAcceptedAtMillis() { return acceptedAtMillis; }
+    public int getLocalId() { return localId; }
+    public Bill getBill() { return bill; }
+  }
+
+  private static final class Drained {
+    final String orderKey;
+    final int localId;
+    final int serverBillId;
+
+    Drained(String orderKey, int localId, int serverBillId) {
+      this.orderKey = orderKey;
+      this.localId = localId;
+      this.serverBillId = serverBillId;
+    }
+  }
+
+  private BillJournal(Path path, FileChannel channel, Replay replay) {
+    this.path = path;
+    this.channel = channel;
+    this.recovered = new ArrayList<>(replay.pending.values());
+    this.drainedByLocalId = replay.drainedByLocalId;
+    this.lowestLocalId = replay.lowestLocalId;
+  }
+
+  /**
+   * Opens (or creates) the journal and replays it.
+   */
+  public static BillJournal open(Path path) throws IOException {
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    Replay replay;
+    try {
+      replay = replay(channel);
+      if (replay.damagedBytes == 0) {
+        if (replay.validEnd < channel.size()) {
+          System.err.println("Checkout journal " + path + ": dropping torn record at offset " + replay.validEnd);
+          channel.truncate(replay.validEnd);
+          channel.force(true);
+        }
+        channel.position(replay.validEnd);
+        return new BillJournal(path, channel, replay);
+      }
+      channel.close();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+
+    Path aside = path.resolveSibling(path.getFileName() + ".corrupt-" + System.currentTimeMillis());
+    Files.copy(path, aside);
+    System.err.println("Checkout journal " + path + " is damaged at offset " + replay.firstDamageAt
+        + " (" + replay.damagedBytes + " unreadable bytes before the end); copied it to " + aside
+        + " and kept the " + replay.pending.size() + " undrained bills that could still be read."
+        + " Checkouts in the damaged part may have to be recovered from the copy by hand.");
+    rewrite(path, replay.pending.values(), replay.drainedByLocalId.values());
+    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return new BillJournal(path, channel, replay);
+  }
+
+  // Replaces the journal with just the given records, atomically. Drained records go
+  // first so a bill journaled again after it was drained stays pending.
+  private static void rewrite(Path path, Collection<Entry> entries, Collection<Drained> drained) throws IOException {
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (Drained record : drained) {
+        writeRecord(out, encodeDrained(record.orderKey, record.localId, record.serverBillId));
+      }
+      for (Entry entry : entries) {
+        writeRecord(out, encodeBill(entry.getOrderKey(), entry.getAcceptedAtMillis(), entry.getLocalId(), entry.getBill()));
+      }
+      out.force(true);
+    }
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Bills that were journaled but never marked drained, oldest first.
+   */
+  public List<Entry> getRecovered() {
+    return recovered;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * Server bill ids of drained bills that had a local id, by local id.
+   */
+  public synchronized Map<Integer, Integer> getServerIdsByLocalId() {
+    Map<Integer, Integer> serverIds = new LinkedHashMap<>();
+    for (Drained record : drainedByLocalId.values()) {
+      serverIds.put(record.localId, record.serverBillId);
+    }
+    return serverIds;
+  }
+
+  /**
+   * The lowest local id ever journaled, or NO_LOCAL_ID if there is none.
+   */
+  public synchronized int getLowestLocalId() {
+    return lowestLocalId;
+  }
+
+  /**
+   * Durably records the bill and returns the journaled copy of it.
+   */
+  public synchronized Entry appendBill(String orderKey, long acceptedAtMillis, int localId, Bill bill)
+      throws IOException {
+    byte[] body = encodeBill(orderKey, acceptedAtMillis, localId, bill);
+    writeRecord(channel, body);
+    lowestLocalId = Math.min(lowestLocalId, localId);
+    return decode(body);
+  }
+
+  private static byte[] encodeBill(String orderKey, long acceptedAtMillis, int localId, Bill bill) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(BILL);
+    out.writeUTF(orderKey);
+    out.writeLong(acceptedAtMillis);
+    out.writeInt(localId);
+    writeBill(out, bill);
+    return bytes.toByteArray();
+  }
+
+  public synchronized void appendDrained(Entry entry, int serverBillId) throws IOException {
+    writeRecord(channel, encodeDrained(entry.getOrderKey(), entry.getLocalId(), serverBillId));
+    if (entry.getLocalId() != NO_LOCAL_ID) {
+      drainedByLocalId.put(entry.getLocalId(), new Drained(entry.getOrderKey(), entry.getLocalId(), serverBillId));
+    }
+  }
+
+  private static byte[] encodeDrained(String orderKey, int localId, int serverBillId) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(DRAINED);
+    out.writeUTF(orderKey);
+    out.writeInt(localId);
+    out.writeInt(serverBillId);
+    return bytes.toByteArray();
+  }
+
+  public synchronized long size() throws IOException {
+    return channel.size();
+  }
+
+  /**
+   * Empties the journal. Only call this when every journaled bill has been drained.
+   */
+  public synchronized void truncate() throws IOException {
+    channel.truncate(0);
+    channel.position(0);
+    channel.force(true);
+  }
+
+  /**
+   * Like {@link #truncate}, but keeps the DRAINED records of bills that had a
+   * local id so their server ids and the lowest local id survive. Only call
+   * this when every journaled bill has been drained.
+   */
+  public synchronized void compact() throws IOException {
+    channel.close();
+    try {
+      rewrite(path, List.of(), drainedByLocalId.values());
+    } finally {
+      // The move is atomic, so this is either the old journal or the compacted one
+      channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      channel.position(channel.size());
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    channel.close();
+  }
+
+  private static void writeRecord(FileChannel channel, byte[] body) throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    ByteBuffer record = ByteBuffer.allocate(4 + body.length + 4);
+    record.putInt(body.length).put(body).putInt((int) crc.getValue()).flip();
+    while (record.hasRemaining()) {
+      channel.write(record);
+    }
+    channel.force(false);
+  }
+
+  private static final class Replay {
+    final Map<String, Entry> pending = new LinkedHashMap<>();
+    final Map<Integer, Drained> drainedByLocalId = new LinkedHashMap<>();
+    int lowestLocalId = NO_LOCAL_ID;
+    // Just past the last intact record
+    long validEnd;
+    // Unreadable bytes followed by an intact record, i.e. not a torn tail
+    long damagedBytes;
+    long firstDamageAt = -1;
+  }
+
+  // Reads every intact record. After a damaged one it resyncs on the next intact
+  // record; damage with no intact record after it is a torn tail and is not counted.
+  private static Replay replay(FileChannel channel) throws IOException {
+    Replay replay = new Replay();
+    long position = 0;
+    long size = channel.size();
+    while (position < size) {
+      byte[] body = readRecord(channel, position, size);
+      if (body == null) {
+        long next = position + 1;
+        while (next < size && readRecord(channel, next, size) == null) {
+          next++;
+        }
+        if (next >= size) {
+          break;
+        }
+        if (replay.firstDamageAt < 0) {
+          replay.firstDamageAt = position;
+        }
+        replay.damagedBytes += next - position;
+        position = next;
+        continue;
+      }
+
+      if (body[0] == BILL) {
+        Entry entry = decode(body);
+        replay.pending.put(entry.getOrderKey(), entry);
+        replay.lowestLocalId = Math.min(replay.lowestLocalId, entry.getLocalId());
+      } else {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        String orderKey = in.readUTF();
+        int localId = in.readInt();
+        int serverBillId = in.readInt();
+        replay.pending.remove(orderKey);
+        if (localId != NO_LOCAL_ID) {
+          replay.drainedByLocalId.put(localId, new Drained(orderKey, localId, serverBillId));
+          replay.lowestLocalId = Math.min(replay.lowestLocalId, localId);
+        }
+      }
+      position += 4 + body.length + 4;
+      replay.validEnd = position;
+    }
+    return replay;
+  }
+
+  // The body of the record starting at position, or null if no intact record starts there
+  private static byte[] readRecord(FileChannel channel, long position, long size) throws IOException {
+    if (position + 4 > size) {
+      return null;
+    }
+    ByteBuffer header = ByteBuffer.allocate(4);
+    readFully(channel, header, position);
+    int length = header.flip().getInt();
+    if (length <= 0 || length > MAX_RECORD_BYTES || position + 4 + length + 4 > size) {
+      return null;
+    }
+    ByteBuffer record = ByteBuffer.allocate(length + 4);
+    readFully(channel, record, position + 4);
+    record.flip();
+    byte[] body = new byte[length];
+    record.get(body);
+    if (body[0] != BILL && body[0] != DRAINED) {
+      return null;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(body);
+    return (int) crc.getValue() == record.getInt() ? body : null;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new IOException("Unexpected end of checkout journal");
+      }
+    }
+  }
+
+  private static void writeBill(DataOutputStream out, Bill bill) throws IOException {
+    out.writeInt(bill.getCustomerId());
+    out.writeInt(bill.getCreatedByUserId());
+    writeString(out, bill.getPaymentMethod());
+    writeString(out, bill.getStatus());
+    writeAmount(out, bill.getTotalAmount());
+    writeAmount(out, bill.getDiscountAmount());
+    writeAmount(out, bill.getTaxAmount());
+    writeAmount(out, bill.getFinalAmount());
+    out.writeInt(bill.getBillItems().size());
+    for (BillItem item : bill.getBillItems()) {
+      out.writeInt(item.getProductId());
+      out.writeInt(item.getQuantity());
+      writeAmount(out, item.getUnitPrice());
+      writeAmount(out, item.getTotalPrice());
+    }
+  }
+
+  private static Entry decode(byte[] body) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+    String orderKey = in.readUTF();
+    long acceptedAtMillis = in.readLong();
+    int localId = in.readInt();
+
+    // No pricer: the amounts were final when the customer checked out
+    Bill bill = Bill.stored();
+    bill.setId(localId);
+    bill.setOrderKey(orderKey);
+    bill.setBillDate(LocalDateTime.ofInstant(Instant.ofEpochMilli(acceptedAtMillis), ZoneId.systemDefault()));
+    bill.setCustomerId(in.readInt());
+    bill.setCreatedByUserId(in.readInt());
+    bill.setPaymentMethod(readString(in));
+    bill.setStatus(readString(in));
+    bill.setTotalAmount(readAmount(in));
+    bill.setDiscountAmount(readAmount(in));
+    bill.setTaxAmount(readAmount(in));
+    bill.setFinalAmount(readAmount(in));
+    int itemCount = in.readInt();
+    for (int i = 0; i < itemCount; i++) {
+      BillItem item = new BillItem();
+      item.setProductId(in.readInt());
+      item.setQuantity(in.readInt());
+      item.setUnitPrice(readAmount(in));
+      item.setTotalPrice(readAmount(in));
+      // Add directly so the journaled totals are kept as-is
+      bill.getBillItems().add(item);
+    }
+    return new Entry(orderKey, acceptedAtMillis, localId, bill);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private static void writeAmount(DataOutputStream out, BigDecimal amount) throws IOException {
+    writeString(out, amount != null ? amount.toPlainString() : null);
+  }
+
+  private static BigDecimal readAmount(DataInputStream in) throws IOException {
+    String value = readString(in);
+    return value != null ? new BigDecimal(value) : null;
+  }
+}
@@ -0,0 +1,309 @@
+package com.shopbilling.journal;
+
+import com.shopbilling.dao.BillDAO;
+import com.shopbilling.dao.SqlErrors;
+import com.shopbilling.model.Bill;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind path for customer checkouts.
+ *
+ * submit() appends the bill to the local {@link BillJournal} and returns a
+ * provisional order reference as soon as the record is on disk; a background
+ * thread then drains journaled bills to MySQL in order. Every bill carries
+ * its order key into the bills table and saveBill is keyed by it, so a drain
+ * that is retried, or replayed after a crash between the MySQL commit and the
+ * DRAINED record, gets the existing bill back instead of inserting it again.
+ *
+ * Transient failures (lost connection, pool timeout, deadlock) are retried
+ * with exponential backoff for as long as it takes. A bill MySQL rejects
+ * outright, e.g. for a foreign key or constraint violation, is retried a few
+ * times and then parked as a dead letter so the bills behind it keep
+ * draining. Dead letters stay in the journal, undrained, until someone
+ * fixes the cause and calls {@link #requeueDeadLetters}; they are also
+ * retried on the next start.
+ */
+public class CheckoutWriteBehind {
+  private static CheckoutWriteBehind instance;
+
+  public static final Path DEFAULT_JOURNAL_PATH =
+      Paths.get(System.getProperty("user.home"), ".shopbilling", "checkout-journal.log");
+
+  private static final long RETRY_BASE_MS = 250;
+  private static final long RETRY_MAX_MS = 30_000;
+  // Attempts before a bill failing with a permanent error is parked
+  private static final int MAX_PERMANENT_FAILURES = 3;
+  // Once everything is drained, a journal bigger than this is emptied
+  private static final long COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+
+  private final BlockingDeque<BillJournal.Entry> queue = new LinkedBlockingDeque<>();
+  private final BillDAO billDAO = new BillDAO();
+  private BillJournal journal;
+  private Thread drainer;
+  private volatile boolean running;
+  // Taken off the queue and being saved right now
+  private volatile BillJournal.Entry inFlight;
+  private final List<DeadLetter> deadLetters = new CopyOnWriteArrayList<>();
+
+  private final AtomicLong submitted = new AtomicLong();
+  private final AtomicLong drained = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong replayed = new AtomicLong();
+  private volatile long lastDrainLatencyMillis;
+
+  /**
+   * A journaled bill MySQL keeps rejecting, with the last error.
+   */
+  public static final class DeadLetter {
+    private final BillJournal.Entry entry;
+    private final String reason;
+    private final int attempts;
+
+    DeadLetter(BillJournal.Entry entry, String reason, int attempts) {
+      this.entry = entry;
+      this.reason = reason;
+      this.attempts = attempts;
+    }
+
+    public String getOrderKey() { return entry.getOrderKey(); }
+    public long getAcceptedAtMillis() { return entry.getAcceptedAtMillis(); }
+    public Bill getBill() { return entry.getBill(); }
+    public String getReason() { return reason; }
+    public int getAttempts() { return attempts; }
+
+    @Override
+    public String toString() {
+      return provisionalReference(getOrderKey()) + " after " + attempts + " attempts: " + reason;
+    }
+  }
+
+  private CheckoutWriteBehind() {}
+
+  public static synchronized CheckoutWriteBehind getInstance() {
+    if (instance == null) {
+      instance = new CheckoutWriteBehind();
+    }
+    return instance;
+  }
+
+  public void start() throws IOException {
+    start(DEFAULT_JOURNAL_PATH);
+  }
+
+  /**
+   * Opens the journal, queues any bills left over from the last run and starts draining.
+   */
+  public synchronized void start(Path journalPath) throws IOException {
+    if (running) {
+      return;
+    }
+    journal = BillJournal.open(journalPath);
+    queue.addAll(journal.getRecovered());
+    replayed.addAndGet(queue.size());
+    if (!queue.isEmpty()) {
+      System.out.println("Checkout journal: " + queue.size() + " bills waiting to be saved from the last run");
+    }
+    running = true;
+    drainer = new Thread(this::drain, "checkout-write-behind");
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /**
+   * Stops draining. Bills not yet saved stay in the journal for the next start.
+   */
+  public void stop() {
+    Thread stopping;
+    BillJournal closing;
+    synchronized (this) {
+      if (!running) {
+        return;
+      }
+      running = false;
+      stopping = drainer;
+      closing = journal;
+      drainer = null;
+    }
+    stopping.interrupt();
+    try {
+      stopping.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (this) {
+      queue.clear();
+      // Still undrained in the journal, so they come back on the next start
+      deadLetters.clear();
+      try {
+        closing.close();
+      } catch (IOException e) {
+        System.err.println("Error closing checkout journal: " + e.getMessage());
+      }
+      journal = null;
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Journals the bill and returns its provisional order reference. The bill is
+   * given an order key if it has none. Throws if the write-behind path is not
+   * running or the journal can't be written, in which case nothing was accepted.
+   */
+  public synchronized String submit(Bill bill) throws IOException {
+    if (!running) {
+      throw new IOException("Checkout write-behind is not running");
+    }
+    queue.addLast(journal.appendBill(bill.assignOrderKey(), System.currentTimeMillis(), BillJournal.NO_LOCAL_ID, bill));
+    submitted.incrementAndGet();
+    return provisionalReference(bill.getOrderKey());
+  }
+
+  /**
+   * Short, human-readable reference for a journaled order, e.g. for the receipt.
+   */
+  public static String provisionalReference(String orderKey) {
+    return "P-" + orderKey.replace("-", "").substring(0, 10).toUpperCase(Locale.ROOT);
+  }
+
+  private void drain() {
+    long backoff = RETRY_BASE_MS;
+    // Permanent failures of the bill at the head of the queue so far
+    int permanentFailures = 0;
+    while (running) {
+      BillJournal.Entry entry;
+      try {
+        entry = queue.takeFirst();
+      } catch (InterruptedException e) {
+        continue;
+      }
+
+      inFlight = entry;
+      Bill bill = entry.getBill();
+      try {
+        // saveBill is keyed by the order key, so a retried or replayed bill gets its existing id back
+        billDAO.saveBillOrThrow(bill);
+      } catch (SQLException e) {
+        boolean transientError = SqlErrors.isTransient(e);
+        if (!transientError && ++permanentFailures >= MAX_PERMANENT_FAILURES) {
+          System.err.println("Giving up on checkout " + provisionalReference(entry.getOrderKey())
+              + " for now: " + e.getMessage());
+          deadLetters.add(new DeadLetter(entry, e.getMessage(), permanentFailures));
+          permanentFailures = 0;
+          inFlight = null;
+          continue;
+        }
+        // Put it back at the head so bills still reach MySQL in checkout order
+        queue.addFirst(entry);
+        inFlight = null;
+        retries.incrementAndGet();
+        try {
+          Thread.sleep(backoff);
+        } catch (InterruptedException ie) {
+          // stop() wakes us up; the loop condition decides
+        }
+        backoff = Math.min(backoff * 2, RETRY_MAX_MS);
+        continue;
+      }
+      backoff = RETRY_BASE_MS;
+      permanentFailures = 0;
+
+      try {
+        markDrained(entry, bill.getId());
+      } catch (IOException e) {
+        // The bill is in MySQL; a replay will find it by its order key
+        System.err.println("Error recording drained checkout: " + e.getMessage());
+      }
+      inFlight = null;
+    }
+  }
+
+  private synchronized void markDrained(BillJournal.Entry entry, int billId) throws IOException {
+    journal.appendDrained(entry, billId);
+    drained.incrementAndGet();
+    lastDrainLatencyMillis = System.currentTimeMillis() - entry.getAcceptedAtMillis();
+    // submit holds the same lock, so nothing can be journaled between the check and the truncate;
+    // dead letters are only in the journal, so it is kept while there are any
+    if (queue.isEmpty() && deadLetters.isEmpty() && journal.size() > COMPACT_THRESHOLD_BYTES) {
+      journal.truncate();
+    }
+  }
+
+  /**
+   * Bills parked after MySQL kept rejecting them, oldest first.
+   */
+  public List<DeadLetter> getDeadLetters() {
+    return new ArrayList<>(deadLetters);
+  }
+
+  public int getDeadLetterCount() {
+    return deadLetters.size();
+  }
+
+  /**
+   * Puts every dead letter back in the queue, e.g. after the missing product
+   * or customer has been restored. Returns how many were requeued.
+   */
+  public synchronized int requeueDeadLetters() {
+    if (!running) {
+      return 0;
+    }
+    List<DeadLetter> parked = new ArrayList<>(deadLetters);
+    deadLetters.removeAll(parked);
+    for (DeadLetter deadLetter : parked) {
+      queue.addLast(deadLetter.entry);
+    }
+    return parked.size();
+  }
+
+  public int getQueueDepth() {
+    return queue.size() + (inFlight != null ? 1 : 0);
+  }
+
+  /**
+   * How long the oldest bill still waiting has been waiting, in milliseconds; 0 when drained.
+   */
+  public long getDrainLagMillis() {
+    BillJournal.Entry oldest = inFlight;
+    if (oldest == null) {
+      oldest = queue.peekFirst();
+    }
+    return oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.getAcceptedAtMillis()) : 0;
+  }
+
+  public long getLastDrainLatencyMillis() {
+    return lastDrainLatencyMillis;
+  }
+
+  public long getSubmittedCount() {
+    return submitted.get();
+  }
+
+  public long getDrainedCount() {
+    return drained.get();
+  }
+
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /**
+   * Bills found undrained in the journal at start, i.e. replayed from an earlier run.
+   */
+  public long getReplayedCount() {
+    return replayed.get();
+  }
+}
@@ -2,32 +2,64 @@ package com.shopbilling.model;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.UUID;
 
 public class Bill {
   private int id;
   private int customerId;
   private int createdByUserId;
   private Customer customer;
-  private BigDecimal totalAmount;
-  private BigDecimal discountAmount;
-  private BigDecimal taxAmount;
-  private BigDecimal finalAmount;
+  // Amounts in minor units (see Money); BillItem.UNSET stands for null
+  private long totalAmount;
+  private long discountAmount;
+  private long taxAmount;
+  private long finalAmount;
   private String paymentMethod;
   private LocalDateTime billDate;
-  private List<BillItem> billItems;
+  private ItemList billItems;
   private String status; // PENDING or COMPLETED
+  // Client-generated key that makes saving the same checkout twice a no-op;
+  // assigned when the bill is first submitted, dropped only by newSale()
+  private String orderKey;
+  
+  // Sums of the line totals, taxes and promotion discounts, kept up to date as lines are added, removed or changed
+  private long itemsSubtotal;
+  private long itemsTax;
+  private long itemsDiscount;
+  // Rule versions the line figures were last computed with; -1 forces a full pass
+  private long taxTableVersion = -1;
+  private long promotionTableVersion = -1;
+  
+  // Discount typed in by the cashier, on top of any promotions
+  private long manualDiscount;
+  private long promotionDiscount;
+  // Prices lines being rung up; null keeps the tax and discount as set, e.g. as stored
+  private BillPricer pricer;
   
   // Constructors
+  
+  /**
+   * A new bill, priced with the current tax rules and promotions as lines are added.
+   */
   public Bill() {
-    this.billItems = new ArrayList<>();
-    this.totalAmount = BigDecimal.ZERO;
-    this.discountAmount = BigDecimal.ZERO;
-    this.taxAmount = BigDecimal.ZERO;
-    this.finalAmount = BigDecimal.ZERO;
+    this.billItems = new ItemList();
     this.paymentMethod = "CASH";
     this.status = "PENDING";
+    this.pricer = RulePricer.getInstance();
+  }
+  
+  /**
+   * A bill read back from the database or the checkout journal. It has no
+   * pricer, so the tax and discount it was sold with are kept as set.
+   */
+  public static Bill stored() {
+    Bill bill = new Bill();
+    bill.pricer = null;
+    return bill;
   }
   
   // Getters and Setters
@@ -43,17 +75,46 @@ public class Bill {
   public Customer getCustomer() { return customer; }
   public void setCustomer(Customer customer) { this.customer = customer; }
   
-  public BigDecimal getTotalAmount() { return totalAmount; }
-  public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+  public BigDecimal getTotalAmount() { return toDecimal(totalAmount); }
+  public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = toMinor(totalAmount); }
+  
+  // Total discount: the manual discount plus promotions, as of the last calculateTotals
+  public BigDecimal getDiscountAmount() { return toDecimal(discountAmount); }
   
-  public BigDecimal getDiscountAmount() { return discountAmount; }
-  public void setDiscountAmount(BigDecimal discountAmount) { this.discountAmount = discountAmount; }
+  /**
+   * Sets the discount. For a bill being built this is the cashier's manual
+   * discount; calculateTotals adds promotion discounts on top of it.
+   */
+  public void setDiscountAmount(BigDecimal discountAmount) {
+    this.discountAmount = toMinor(discountAmount);
+    this.manualDiscount = discountAmount == null ? 0 : this.discountAmount;
+  }
+  
+  public BigDecimal getManualDiscount() { return Money.toBigDecimal(manualDiscount); }
+  public BigDecimal getPromotionDiscount() { return Money.toBigDecimal(promotionDiscount); }
+  
+  public BillPricer getPricer() { return pricer; }
+  
+  /**
+   * Sets how lines are taxed and discounted. Lines already on the bill are
+   * re-priced on the next calculateTotals.
+   */
+  public void setPricer(BillPricer pricer) {
+    this.pricer = pricer;
+    taxTableVersion = -1;
+    promotionTableVersion = -1;
+  }
   
-  public BigDecimal getTaxAmount() { return taxAmount; }
-  public void setTaxAmount(BigDecimal taxAmount) { this.taxAmount = taxAmount; }
+  public BigDecimal getTaxAmount() { return toDecimal(taxAmount); }
+  public void setTaxAmount(BigDecimal taxAmount) { this.taxAmount = toMinor(taxAmount); }
   
-  public BigDecimal getFinalAmount() { return finalAmount; }
-  public void setFinalAmount(BigDecimal finalAmount) { this.finalAmount = finalAmount; }
+  public BigDecimal getFinalAmount() { return toDecimal(finalAmount); }
+  public void setFinalAmount(BigDecimal finalAmount) { this.finalAmount = toMinor(finalAmount); }
+  
+  public Money getTotalAmountMoney() { return toMoney(totalAmount); }
+  public Money getDiscountAmountMoney() { return toMoney(discountAmount); }
+  public Money getTaxAmountMoney() { return toMoney(taxAmount); }
+  public Money getFinalAmountMoney() { return toMoney(finalAmount); }
   
   public String getPaymentMethod() { return paymentMethod; }
   public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
@@ -61,12 +122,60 @@ public class Bill {
   public LocalDateTime getBillDate() { return billDate; }
   public void setBillDate(LocalDateTime billDate) { this.billDate = billDate; }
   
+  /**
+   * The bill's lines. Changes made through this list, or to the lines in it,
+   * keep the running subtotal current; call calculateTotals to update the
+   * tax and final amounts.
+   */
   public List<BillItem> getBillItems() { return billItems; }
-  public void setBillItems(List<BillItem> billItems) { this.billItems = billItems; }
+  
+  /**
+   * Replaces the bill's lines with the given ones. The list is copied, not
+   * kept: later changes to it do not reach the bill, so edit the lines through
+   * getBillItems. Passing getBillItems() itself is safe.
+   */
+  public void setBillItems(List<BillItem> billItems) {
+    List<BillItem> snapshot = new ArrayList<>(billItems);
+    this.billItems.clear();
+    this.billItems.addAll(snapshot);
+  }
   
   public String getStatus() { return status; }
   public void setStatus(String status) { this.status = status; }
   
+  /**
+   * Null until the bill is first submitted. Submitting the same Bill again
+   * (e.g. a checkout retried after a timeout) keeps the key, so the retry
+   * returns the bill saved the first time, even if the lines were rebuilt in
+   * between. Only {@link #newSale()} drops it.
+   */
+  public String getOrderKey() { return orderKey; }
+  public void setOrderKey(String orderKey) { this.orderKey = orderKey; }
+  
+  /**
+   * Gives the bill a fresh order key unless it already has one; call when the checkout is submitted.
+   */
+  public String assignOrderKey() {
+    if (orderKey == null) {
+      orderKey = newOrderKey();
+    }
+    return orderKey;
+  }
+  
+  public static String newOrderKey() {
+    return UUID.randomUUID().toString();
+  }
+  
+  /**
+   * Readies this instance for the next customer: removes all lines and drops
+   * the order key, so the next submit is saved as a new bill.
+   */
+  public void newSale() {
+    billItems.clear();
+    orderKey = null;
+    calculateTotals();
+  }
+  
   public void addBillItem(BillItem item) {
     this.billItems.add(item);
     calculateTotals();
@@ -77,15 +186,124 @@ public class Bill {
     calculateTotals();
   }
   
+  /**
+   * Sets total and final amounts from the running sums, and with a pricer also
+   * the tax and discount. Constant time, except after the tax rules or
+   * promotions changed, when every line is re-priced once. Without a pricer
+   * the tax and discount stay as set, so a bill read back from the database
+   * keeps the amounts it was sold with.
+   */
   public void calculateTotals() {
-    totalAmount = billItems.stream()
-        .map(BillItem::getTotalPrice)
-        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    totalAmount = itemsSubtotal;
     
-    // Calculate tax (12% GST)
-    taxAmount = totalAmount.multiply(new BigDecimal("0.12"));
+    if (pricer != null) {
+      // Read the versions first: a rule change during the pass just forces another one
+      long taxVersion = pricer.getTaxVersion();
+      if (taxVersion != taxTableVersion) {
+        long tax = 0;
+        for (BillItem item : billItems) {
+          tax = Math.addExact(tax, item.computeTax(pricer));
+        }
+        itemsTax = tax;
+        taxTableVersion = taxVersion;
+      }
+      long promotionVersion = pricer.getPromotionVersion();
+      if (promotionVersion != promotionTableVersion) {
+        long discount = 0;
+        for (BillItem item : billItems) {
+          discount = Math.addExact(discount, item.computeDiscount(pricer));
+        }
+        itemsDiscount = discount;
+        promotionTableVersion = promotionVersion;
+      }
+      
+      // Tax is computed per line at each product's rate, rounded to the paisa
+      taxAmount = itemsTax;
+      
+      // Best line promotions, then the best threshold on what remains
+      promotionDiscount = Math.addExact(itemsDiscount, pricer.cartDiscount(itemsSubtotal - itemsDiscount));
+      discountAmount = Math.addExact(manualDiscount, promotionDiscount);
+    }
     
     // Calculate final amount
-    finalAmount = totalAmount.add(taxAmount).subtract(discountAmount);
+    finalAmount = Math.subtractExact(Math.addExact(totalAmount, orZero(taxAmount)), orZero(discountAmount));
+  }
+  
+  private static long orZero(long minorUnits) {
+    return minorUnits == BillItem.UNSET ? 0 : minorUnits;
+  }
+  
+  void lineChanged(long totalDelta, long taxDelta, long discountDelta) {
+    itemsSubtotal = Math.addExact(itemsSubtotal, totalDelta);
+    itemsTax = Math.addExact(itemsTax, taxDelta);
+    itemsDiscount = Math.addExact(itemsDiscount, discountDelta);
+  }
+  
+  private static long toMinor(BigDecimal amount) {
+    return amount == null ? BillItem.UNSET : Money.toMinor(amount);
+  }
+  
+  private static BigDecimal toDecimal(long minorUnits) {
+    return minorUnits == BillItem.UNSET ? null : Money.toBigDecimal(minorUnits);
+  }
+  
+  private static Money toMoney(long minorUnits) {
+    return minorUnits == BillItem.UNSET ? null : Money.ofMinor(minorUnits);
+  }
+  
+  // Every mutation of an AbstractList goes through add(int, E), set and remove(int),
+  // so hooking those three keeps the subtotal right for addAll, removeIf, iterators etc.
+  private final class ItemList extends AbstractList<BillItem> implements RandomAccess {
+    private final ArrayList<BillItem> items = new ArrayList<>();
+    
+    @Override
+    public BillItem get(int index) {
+      return items.get(index);
+    }
+    
+    @Override
+    public int size() {
+      return items.size();
+    }
+    
+    @Override
+    public void add(int index, BillItem item) {
+      items.add(index, item);
+      attach(item);
+      modCount++;
+    }
+    
+    @Override
+    public BillItem set(int index, BillItem item) {
+      BillItem previous = items.set(index, item);
+      detach(previous);
+      attach(item);
+      return previous;
+    }
+    
+    @Override
+    public BillItem remove(int index) {
+      BillItem removed = items.remove(index);
+      detach(removed);
+      modCount++;
+      return removed;
+    }
+    
+    private void attach(BillItem item) {
+      item.owner = Bill.this;
+      if (pricer == null) {
+        item.clearPricing();
+        lineChanged(item.lineTotal(), 0, 0);
+      } else {
+        lineChanged(item.lineTotal(), item.computeTax(pricer), item.computeDiscount(pricer));
+      }
+    }
+    
+    private void detach(BillItem item) {
+      if (item.owner == Bill.this) {
+        item.owner = null;
+      }
+      lineChanged(-item.lineTotal(), -item.lineTax(), -item.lineDiscount());
+    }
   }
 }
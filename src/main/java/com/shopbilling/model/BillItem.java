@@ -3,13 +3,22 @@ package com.shopbilling.model;
 import java.math.BigDecimal;
 
 public class BillItem {
+  // Marks an amount that was never set (the BigDecimal getters return null)
+  static final long UNSET = Long.MIN_VALUE;
+
   private int id;
   private int billId;
   private int productId;
   private Product product;
   private int quantity;
-  private BigDecimal unitPrice;
-  private BigDecimal totalPrice;
+  // Amounts in minor units (see Money), so changing a line doesn't allocate
+  private long unitPrice = UNSET;
+  private long totalPrice = UNSET;
+  // Tax and promotion discount on this line as last computed, kept while the line belongs to a bill
+  private long lineTax;
+  private long lineDiscount;
+  // The bill whose running totals include this line, if any
+  Bill owner;
   
   // Constructors
   public BillItem() {}
@@ -18,8 +27,8 @@ public class BillItem {
     this.product = product;
     this.productId = product.getId();
     this.quantity = quantity;
-    this.unitPrice = product.getPrice();
-    this.totalPrice = unitPrice.multiply(new BigDecimal(quantity));
+    this.unitPrice = Money.toMinor(product.getPrice());
+    this.totalPrice = Math.multiplyExact(unitPrice, quantity);
   }
   
   // Getters and Setters
@@ -30,27 +39,93 @@ public class BillItem {
   public void setBillId(int billId) { this.billId = billId; }
   
   public int getProductId() { return productId; }
-  public void setProductId(int productId) { this.productId = productId; }
+  public void setProductId(int productId) {
+    this.productId = productId;
+    reprice(lineTotal());
+  }
   
   public Product getProduct() { return product; }
-  public void setProduct(Product product) { this.product = product; }
+  public void setProduct(Product product) {
+    this.product = product;
+    reprice(lineTotal());
+  }
   
   public int getQuantity() { return quantity; }
   public void setQuantity(int quantity) { 
     this.quantity = quantity;
-    if (unitPrice != null) {
-      this.totalPrice = unitPrice.multiply(new BigDecimal(quantity));
+    if (unitPrice != UNSET) {
+      updateTotal(Math.multiplyExact(unitPrice, quantity));
     }
   }
   
-  public BigDecimal getUnitPrice() { return unitPrice; }
+  public BigDecimal getUnitPrice() { return unitPrice == UNSET ? null : Money.toBigDecimal(unitPrice); }
   public void setUnitPrice(BigDecimal unitPrice) { 
-    this.unitPrice = unitPrice;
-    if (quantity > 0) {
-      this.totalPrice = unitPrice.multiply(new BigDecimal(quantity));
+    this.unitPrice = unitPrice == null ? UNSET : Money.toMinor(unitPrice);
+    if (quantity > 0 && this.unitPrice != UNSET) {
+      updateTotal(Math.multiplyExact(this.unitPrice, quantity));
     }
   }
   
-  public BigDecimal getTotalPrice() { return totalPrice; }
-  public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+  public BigDecimal getTotalPrice() { return totalPrice == UNSET ? null : Money.toBigDecimal(totalPrice); }
+  public void setTotalPrice(BigDecimal totalPrice) { updateTotal(totalPrice == null ? UNSET : Money.toMinor(totalPrice)); }
+  
+  public Money getUnitPriceMoney() { return unitPrice == UNSET ? null : Money.ofMinor(unitPrice); }
+  public Money getTotalPriceMoney() { return totalPrice == UNSET ? null : Money.ofMinor(totalPrice); }
+  
+  // Line total in minor units, counting an unset total as zero
+  long lineTotal() {
+    return totalPrice == UNSET ? 0 : totalPrice;
+  }
+  
+  long lineTax() {
+    return lineTax;
+  }
+  
+  /**
+   * Recomputes this line's tax with the given pricer and returns it.
+   */
+  long computeTax(BillPricer pricer) {
+    lineTax = pricer.lineTax(productId, product != null ? product.getCategory() : null, lineTotal());
+    return lineTax;
+  }
+  
+  long lineDiscount() {
+    return lineDiscount;
+  }
+  
+  /**
+   * Recomputes this line's promotion discount with the given pricer and returns it.
+   */
+  long computeDiscount(BillPricer pricer) {
+    long unit = unitPrice == UNSET ? 0 : unitPrice;
+    lineDiscount = pricer.lineDiscount(productId, product != null ? product.getCategory() : null, quantity, unit, lineTotal());
+    return lineDiscount;
+  }
+  
+  // For a bill without a pricer, whose lines carry no tax or discount of their own
+  void clearPricing() {
+    lineTax = 0;
+    lineDiscount = 0;
+  }
+  
+  private void updateTotal(long newTotal) {
+    long totalBefore = lineTotal();
+    this.totalPrice = newTotal;
+    reprice(totalBefore);
+  }
+  
+  // Re-derives tax and discount after the total, quantity or product changed
+  private void reprice(long totalBefore) {
+    if (owner != null) {
+      long taxBefore = lineTax;
+      long discountBefore = lineDiscount;
+      BillPricer pricer = owner.getPricer();
+      if (pricer != null) {
+        computeTax(pricer);
+        computeDiscount(pricer);
+      }
+      owner.lineChanged(lineTotal() - totalBefore, lineTax - taxBefore, lineDiscount - discountBefore);
+    }
+  }
+
 }
@@ -0,0 +1,45 @@
+package com.shopbilling.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of bills ordered by (bill_date, id) descending, plus the cursor to
+ * pass back in to fetch the following page.
+ */
+public class BillPage {
+  private final List<Bill> bills;
+  private final Cursor nextCursor;
+
+  public BillPage(List<Bill> bills, Cursor nextCursor) {
+    this.bills = bills;
+    this.nextCursor = nextCursor;
+  }
+
+  public List<Bill> getBills() { return bills; }
+
+  // Null when this is the last page
+  public Cursor getNextCursor() { return nextCursor; }
+
+  public boolean hasMore() { return nextCursor != null; }
+
+  /**
+   * Seek position: the (bill_date, id) of the last bill on the previous page.
+   */
+  public static class Cursor {
+    private final LocalDateTime billDate;
+    private final int billId;
+
+    public Cursor(LocalDateTime billDate, int billId) {
+      this.billDate = billDate;
+      this.billId = billId;
+    }
+
+    public static Cursor after(Bill bill) {
+      return new Cursor(bill.getBillDate(), bill.getId());
+    }
+
+    public LocalDateTime getBillDate() { return billDate; }
+    public int getBillId() { return billId; }
+  }
+}
@@ -0,0 +1,22 @@
+package com.shopbilling.model;
+
+/**
+ * Prices the lines of a bill being rung up: tax and promotion discount per
+ * line, plus cart-level promotions. Amounts are in minor units (see Money).
+ *
+ * Bills without a pricer, such as bills read back from the database or the
+ * checkout journal, keep the tax and discount they were stored with.
+ */
+public interface BillPricer {
+  // Change whenever the tax rules or promotions do, so cached line figures get recomputed
+  long getTaxVersion();
+
+  long getPromotionVersion();
+
+  long lineTax(int productId, String category, long lineTotal);
+
+  long lineDiscount(int productId, String category, int quantity, long unitPrice, long lineTotal);
+
+  // Threshold promotions on what is left after the line discounts
+  long cartDiscount(long amount);
+}
@@ -0,0 +1,27 @@
+package com.shopbilling.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of confirming several pending bills at once.
+ */
+public class BulkConfirmResult {
+  private final List<Integer> confirmedBillIds = new ArrayList<>();
+  private final Map<Integer, List<StockShortfall>> shortfallsByBillId = new LinkedHashMap<>();
+  private final List<Integer> skippedBillIds = new ArrayList<>();
+
+  public List<Integer> getConfirmedBillIds() { return confirmedBillIds; }
+
+  // Bills that could not be fulfilled from the remaining stock, with what was missing
+  public Map<Integer, List<StockShortfall>> getShortfallsByBillId() { return shortfallsByBillId; }
+
+  // Bills that were not found, were no longer PENDING, or could not be processed
+  public List<Integer> getSkippedBillIds() { return skippedBillIds; }
+
+  public boolean isFullySuccessful() {
+    return shortfallsByBillId.isEmpty() && skippedBillIds.isEmpty();
+  }
+}
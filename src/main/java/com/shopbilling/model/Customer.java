@@ -24,6 +24,18 @@ public class Customer {
     this.address = address;
   }
   
+  public Customer(Customer other) {
+    this.id = other.id;
+    this.name = other.name;
+    this.username = other.username;
+    this.email = other.email;
+    this.phone = other.phone;
+    this.address = other.address;
+    this.password = other.password;
+    this.createdAt = other.createdAt;
+    this.updatedAt = other.updatedAt;
+  }
+  
   // Getters and Setters
   public int getId() { return id; }
   public void setId(int id) { this.id = id; }
@@ -0,0 +1,119 @@
+package com.shopbilling.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money as a whole number of minor units (paise), matching the
+ * DECIMAL(10,2) columns it is stored in.
+ *
+ * Rounding rules: amounts coming in as BigDecimal are rounded to two places
+ * HALF_UP (as MySQL does when storing into DECIMAL(10,2)); rates are applied
+ * to the exact product and rounded once, HALF_UP, away from zero. Sums,
+ * differences and quantity multiples are exact and fail on overflow.
+ *
+ * The static long helpers let hot paths (bill lines and running totals) do
+ * the same arithmetic on primitive fields without allocating.
+ */
+public final class Money implements Comparable<Money> {
+  public static final int SCALE = 2;
+  public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+  public static final Money ZERO = new Money(0);
+
+  // Rates are given in basis points: 1200 = 12%
+  public static final long BASIS_POINTS = 10_000;
+
+  private final long minorUnits;
+
+  private Money(long minorUnits) {
+    this.minorUnits = minorUnits;
+  }
+
+  public static Money ofMinor(long minorUnits) {
+    return minorUnits == 0 ? ZERO : new Money(minorUnits);
+  }
+
+  /**
+   * Converts a decimal amount, rounding to two places; null stays null.
+   */
+  public static Money of(BigDecimal amount) {
+    return amount == null ? null : ofMinor(toMinor(amount));
+  }
+
+  public static Money parse(String amount) {
+    return of(new BigDecimal(amount.trim()));
+  }
+
+  public long getMinorUnits() { return minorUnits; }
+
+  public Money plus(Money other) {
+    return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+  }
+
+  public Money minus(Money other) {
+    return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+  }
+
+  public Money times(int quantity) {
+    return ofMinor(Math.multiplyExact(minorUnits, quantity));
+  }
+
+  /**
+   * This amount multiplied by a rate in basis points, rounded to the paisa.
+   */
+  public Money applyRate(long basisPoints) {
+    return ofMinor(applyRate(minorUnits, basisPoints));
+  }
+
+  public boolean isZero() { return minorUnits == 0; }
+  public boolean isNegative() { return minorUnits < 0; }
+
+  public BigDecimal toBigDecimal() {
+    return toBigDecimal(minorUnits);
+  }
+
+  public static long toMinor(BigDecimal amount) {
+    return amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+  }
+
+  public static BigDecimal toBigDecimal(long minorUnits) {
+    return BigDecimal.valueOf(minorUnits, SCALE);
+  }
+
+  /**
+   * minorUnits * numerator / denominator, rounded HALF_UP away from zero.
+   */
+  public static long scale(long minorUnits, long numerator, long denominator) {
+    long product = Math.multiplyExact(minorUnits, numerator);
+    long quotient = product / denominator;
+    long remainder = product % denominator;
+    if (Math.abs(remainder) * 2 >= Math.abs(denominator)) {
+      quotient += (product < 0) == (denominator < 0) ? 1 : -1;
+    }
+    return quotient;
+  }
+
+  public static long applyRate(long minorUnits, long basisPoints) {
+    return scale(minorUnits, basisPoints, BASIS_POINTS);
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    return Long.compare(minorUnits, other.minorUnits);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Money && ((Money) o).minorUnits == minorUnits;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(minorUnits);
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString();
+  }
+}
@@ -27,6 +27,19 @@ public class Product {
     this.barcode = barcode;
   }
   
+  public Product(Product other) {
+    this.id = other.id;
+    this.name = other.name;
+    this.description = other.description;
+    this.price = other.price;
+    this.stockQuantity = other.stockQuantity;
+    this.category = other.category;
+    this.barcode = other.barcode;
+    this.imagePath = other.imagePath;
+    this.createdAt = other.createdAt;
+    this.updatedAt = other.updatedAt;
+  }
+  
   // Getters and Setters
   public int getId() { return id; }
   public void setId(int id) { this.id = id; }
@@ -0,0 +1,102 @@
+package com.shopbilling.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A promotion applied automatically to carts:
+ * BUY_X_GET_Y on one product (buy buyQuantity, get freeQuantity free),
+ * PERCENT_OFF on one product or one category, or THRESHOLD on the whole
+ * cart once it reaches minAmount (percentBasisPoints off, or amountOff).
+ */
+public class Promotion {
+  public static final String BUY_X_GET_Y = "BUY_X_GET_Y";
+  public static final String PERCENT_OFF = "PERCENT_OFF";
+  public static final String THRESHOLD = "THRESHOLD";
+  
+  private int id;
+  private String name;
+  private String type;
+  private Integer productId;
+  private String category;
+  private int buyQuantity;
+  private int freeQuantity;
+  private int percentBasisPoints; // 1000 = 10%
+  private BigDecimal minAmount;
+  private BigDecimal amountOff;
+  private LocalDateTime startsAt; // null = already started
+  private LocalDateTime endsAt; // null = no end
+  private boolean active = true;
+  
+  // Constructors
+  public Promotion() {}
+  
+  public static Promotion buyXGetY(String name, int productId, int buyQuantity, int freeQuantity) {
+    Promotion promotion = new Promotion();
+    promotion.name = name;
+    promotion.type = BUY_X_GET_Y;
+    promotion.productId = productId;
+    promotion.buyQuantity = buyQuantity;
+    promotion.freeQuantity = freeQuantity;
+    return promotion;
+  }
+  
+  public static Promotion categoryPercentOff(String name, String category, int percentBasisPoints) {
+    Promotion promotion = new Promotion();
+    promotion.name = name;
+    promotion.type = PERCENT_OFF;
+    promotion.category = category;
+    promotion.percentBasisPoints = percentBasisPoints;
+    return promotion;
+  }
+  
+  public static Promotion threshold(String name, BigDecimal minAmount, int percentBasisPoints, BigDecimal amountOff) {
+    Promotion promotion = new Promotion();
+    promotion.name = name;
+    promotion.type = THRESHOLD;
+    promotion.minAmount = minAmount;
+    promotion.percentBasisPoints = percentBasisPoints;
+    promotion.amountOff = amountOff;
+    return promotion;
+  }
+  
+  // Getters and Setters
+  public int getId() { return id; }
+  public void setId(int id) { this.id = id; }
+  
+  public String getName() { return name; }
+  public void setName(String name) { this.name = name; }
+  
+  public String getType() { return type; }
+  public void setType(String type) { this.type = type; }
+  
+  public Integer getProductId() { return productId; }
+  public void setProductId(Integer productId) { this.productId = productId; }
+  
+  public String getCategory() { return category; }
+  public void setCategory(String category) { this.category = category; }
+  
+  public int getBuyQuantity() { return buyQuantity; }
+  public void setBuyQuantity(int buyQuantity) { this.buyQuantity = buyQuantity; }
+  
+  public int getFreeQuantity() { return freeQuantity; }
+  public void setFreeQuantity(int freeQuantity) { this.freeQuantity = freeQuantity; }
+  
+  public int getPercentBasisPoints() { return percentBasisPoints; }
+  public void setPercentBasisPoints(int percentBasisPoints) { this.percentBasisPoints = percentBasisPoints; }
+  
+  public BigDecimal getMinAmount() { return minAmount; }
+  public void setMinAmount(BigDecimal minAmount) { this.minAmount = minAmount; }
+  
+  public BigDecimal getAmountOff() { return amountOff; }
+  public void setAmountOff(BigDecimal amountOff) { this.amountOff = amountOff; }
+  
+  public LocalDateTime getStartsAt() { return startsAt; }
+  public void setStartsAt(LocalDateTime startsAt) { this.startsAt = startsAt; }
+  
+  public LocalDateTime getEndsAt() { return endsAt; }
+  public void setEndsAt(LocalDateTime endsAt) { this.endsAt = endsAt; }
+  
+  public boolean isActive() { return active; }
+  public void setActive(boolean active) { this.active = active; }
+}
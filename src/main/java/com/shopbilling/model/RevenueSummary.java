@@ -0,0 +1,35 @@
+package com.shopbilling.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate figures over all COMPLETED bills, as shown on the admin dashboard.
+ */
+public class RevenueSummary {
+  public static final RevenueSummary EMPTY = new RevenueSummary(0, BigDecimal.ZERO, null, null);
+
+  private final long completedBills;
+  private final BigDecimal totalRevenue;
+  private final BigDecimal highestBillAmount;
+  private final BigDecimal lowestBillAmount;
+
+  public RevenueSummary(long completedBills, BigDecimal totalRevenue, BigDecimal highestBillAmount, BigDecimal lowestBillAmount) {
+    this.completedBills = completedBills;
+    this.totalRevenue = totalRevenue != null ? totalRevenue : BigDecimal.ZERO;
+    this.highestBillAmount = highestBillAmount;
+    this.lowestBillAmount = lowestBillAmount;
+  }
+
+  public long getCompletedBills() { return completedBills; }
+  public BigDecimal getTotalRevenue() { return totalRevenue; }
+
+  // Null when there are no completed bills
+  public BigDecimal getHighestBillAmount() { return highestBillAmount; }
+  public BigDecimal getLowestBillAmount() { return lowestBillAmount; }
+
+  @Override
+  public String toString() {
+    return "RevenueSummary{completedBills=" + completedBills + ", totalRevenue=" + totalRevenue
+        + ", highest=" + highestBillAmount + ", lowest=" + lowestBillAmount + "}";
+  }
+}
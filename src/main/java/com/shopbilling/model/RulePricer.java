@@ -0,0 +1,44 @@
+package com.shopbilling.model;
+
+import com.shopbilling.promo.PromotionEngine;
+import com.shopbilling.tax.TaxEngine;
+
+/**
+ * Prices bills with the current tax rules and promotions from TaxEngine and
+ * PromotionEngine. Every new Bill starts with it; bills read back through
+ * {@link Bill#stored()} have none.
+ */
+public final class RulePricer implements BillPricer {
+  private static final RulePricer INSTANCE = new RulePricer();
+
+  private RulePricer() {}
+
+  public static RulePricer getInstance() {
+    return INSTANCE;
+  }
+
+  @Override
+  public long getTaxVersion() {
+    return TaxEngine.getInstance().current().getVersion();
+  }
+
+  @Override
+  public long getPromotionVersion() {
+    return PromotionEngine.getInstance().current().getVersion();
+  }
+
+  @Override
+  public long lineTax(int productId, String category, long lineTotal) {
+    return Money.applyRate(lineTotal, TaxEngine.getInstance().rateFor(productId, category));
+  }
+
+  @Override
+  public long lineDiscount(int productId, String category, int quantity, long unitPrice, long lineTotal) {
+    return PromotionEngine.getInstance().current().lineDiscount(productId, category, quantity, unitPrice, lineTotal);
+  }
+
+  @Override
+  public long cartDiscount(long amount) {
+    return PromotionEngine.getInstance().current().cartDiscount(amount);
+  }
+}
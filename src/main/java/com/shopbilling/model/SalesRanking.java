@@ -0,0 +1,31 @@
+package com.shopbilling.model;
+
+import java.util.Map;
+
+/**
+ * Precomputed product orderings by sales, as used by the "Popularity" and
+ * "Trending" product sorts. Products that have never sold are not listed.
+ */
+public class SalesRanking {
+  public static final SalesRanking EMPTY = new SalesRanking(new int[0], new int[0], Map.of());
+
+  private final int[] byUnitsSold;
+  private final int[] byTrending;
+  private final Map<Integer, Long> unitsSold;
+
+  public SalesRanking(int[] byUnitsSold, int[] byTrending, Map<Integer, Long> unitsSold) {
+    this.byUnitsSold = byUnitsSold;
+    this.byTrending = byTrending;
+    this.unitsSold = unitsSold;
+  }
+
+  // Product ids, best selling first; callers must not modify the arrays
+  public int[] getProductIdsByUnitsSold() { return byUnitsSold; }
+  public int[] getProductIdsByTrending() { return byTrending; }
+
+  public long getUnitsSold(int productId) {
+    return unitsSold.getOrDefault(productId, 0L);
+  }
+
+  public int size() { return byUnitsSold.length; }
+}
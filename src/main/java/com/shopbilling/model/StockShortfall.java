@@ -0,0 +1,29 @@
+package com.shopbilling.model;
+
+/**
+ * A product that did not have enough stock to fulfil a requested quantity.
+ */
+public class StockShortfall {
+  private final int productId;
+  private final String productName;
+  private final int requestedQuantity;
+  private final int availableQuantity;
+
+  public StockShortfall(int productId, String productName, int requestedQuantity, int availableQuantity) {
+    this.productId = productId;
+    this.productName = productName;
+    this.requestedQuantity = requestedQuantity;
+    this.availableQuantity = availableQuantity;
+  }
+
+  public int getProductId() { return productId; }
+  public String getProductName() { return productName; }
+  public int getRequestedQuantity() { return requestedQuantity; }
+  public int getAvailableQuantity() { return availableQuantity; }
+
+  @Override
+  public String toString() {
+    return (productName != null ? productName : "Product #" + productId)
+        + ": requested " + requestedQuantity + ", available " + availableQuantity;
+  }
+}
@@ -0,0 +1,53 @@
+package com.shopbilling.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * A tax rate for one product, one category, or (with neither set) everything else.
+ * A product rule wins over its category's rule, which wins over the default.
+ */
+public class TaxRule {
+  private int id;
+  private Integer productId;
+  private String category;
+  private int rateBasisPoints; // 1200 = 12%
+  private String description;
+  private LocalDateTime createdAt;
+  private LocalDateTime updatedAt;
+  
+  // Constructors
+  public TaxRule() {}
+  
+  public TaxRule(Integer productId, String category, int rateBasisPoints, String description) {
+    this.productId = productId;
+    this.category = category;
+    this.rateBasisPoints = rateBasisPoints;
+    this.description = description;
+  }
+  
+  // Getters and Setters
+  public int getId() { return id; }
+  public void setId(int id) { this.id = id; }
+  
+  public Integer getProductId() { return productId; }
+  public void setProductId(Integer productId) { this.productId = productId; }
+  
+  public String getCategory() { return category; }
+  public void setCategory(String category) { this.category = category; }
+  
+  public int getRateBasisPoints() { return rateBasisPoints; }
+  public void setRateBasisPoints(int rateBasisPoints) { this.rateBasisPoints = rateBasisPoints; }
+  
+  public String getDescription() { return description; }
+  public void setDescription(String description) { this.description = description; }
+  
+  public LocalDateTime getCreatedAt() { return createdAt; }
+  public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+  
+  public LocalDateTime getUpdatedAt() { return updatedAt; }
+  public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+  
+  public boolean isDefaultRule() {
+    return productId == null && (category == null || category.isBlank());
+  }
+}
@@ -0,0 +1,175 @@
+package com.shopbilling.offline;
+
+import com.shopbilling.model.Product;
+import com.shopbilling.model.TaxRule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Local copy of the product catalog and tax rules, so the till can keep
+ * pricing carts while MySQL is unreachable.
+ *
+ * The file is a magic number, a format version, the payload and a CRC32 of
+ * the payload. It is written to a temporary file and moved into place, so a
+ * crash mid-write leaves the previous snapshot intact.
+ */
+public final class CatalogSnapshot {
+  private static final int MAGIC = 0x53424353; // "SBCS"
+  private static final int FORMAT_VERSION = 1;
+
+  private final long takenAtMillis;
+  private final List<Product> products;
+  private final List<TaxRule> taxRules;
+
+  private CatalogSnapshot(long takenAtMillis, List<Product> products, List<TaxRule> taxRules) {
+    this.takenAtMillis = takenAtMillis;
+    this.products = products;
+    this.taxRules = taxRules;
+  }
+
+  public long getTakenAtMillis() { return takenAtMillis; }
+  public List<Product> getProducts() { return products; }
+  public List<TaxRule> getTaxRules() { return taxRules; }
+
+  public static void save(Path path, Collection<Product> products, Collection<TaxRule> taxRules) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeLong(System.currentTimeMillis());
+    out.writeInt(products.size());
+    for (Product product : products) {
+      out.writeInt(product.getId());
+      writeString(out, product.getName());
+      writeString(out, product.getDescription());
+      writeString(out, product.getPrice() != null ? product.getPrice().toPlainString() : null);
+      out.writeInt(product.getStockQuantity());
+      writeString(out, product.getCategory());
+      writeString(out, product.getBarcode());
+      writeString(out, product.getImagePath());
+      writeString(out, product.getCreatedAt() != null ? product.getCreatedAt().toString() : null);
+      writeString(out, product.getUpdatedAt() != null ? product.getUpdatedAt().toString() : null);
+    }
+    out.writeInt(taxRules.size());
+    for (TaxRule rule : taxRules) {
+      out.writeInt(rule.getId());
+      out.writeInt(rule.getProductId() != null ? rule.getProductId() : -1);
+      writeString(out, rule.getCategory());
+      out.writeInt(rule.getRateBasisPoints());
+      writeString(out, rule.getDescription());
+    }
+    byte[] payload = bytes.toByteArray();
+    CRC32 crc = new CRC32();
+    crc.update(payload);
+
+    ByteArrayOutputStream file = new ByteArrayOutputStream(payload.length + 16);
+    DataOutputStream header = new DataOutputStream(file);
+    header.writeInt(MAGIC);
+    header.writeInt(FORMAT_VERSION);
+    header.write(payload);
+    header.writeInt((int) crc.getValue());
+
+    if (path.getParent() != null) {
+      Files.createDirectories(path.getParent());
+    }
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    Files.write(temp, file.toByteArray());
+    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Reads the snapshot, or returns null if there is none or it is unreadable.
+   */
+  public static CatalogSnapshot load(Path path) {
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      byte[] file = Files.readAllBytes(path);
+      if (file.length < 12) {
+        throw new IOException("file too short");
+      }
+      DataInputStream header = new DataInputStream(new ByteArrayInputStream(file));
+      if (header.readInt() != MAGIC || header.readInt() != FORMAT_VERSION) {
+        throw new IOException("unknown format");
+      }
+      CRC32 crc = new CRC32();
+      crc.update(file, 8, file.length - 12);
+      DataInputStream trailer = new DataInputStream(new ByteArrayInputStream(file, file.length - 4, 4));
+      if ((int) crc.getValue() != trailer.readInt()) {
+        throw new IOException("checksum mismatch");
+      }
+
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(file, 8, file.length - 12));
+      long takenAt = in.readLong();
+      int productCount = in.readInt();
+      List<Product> products = new ArrayList<>(productCount);
+      for (int i = 0; i < productCount; i++) {
+        Product product = new Product();
+        product.setId(in.readInt());
+        product.setName(readString(in));
+        product.setDescription(readString(in));
+        String price = readString(in);
+        product.setPrice(price != null ? new BigDecimal(price) : null);
+        product.setStockQuantity(in.readInt());
+        product.setCategory(readString(in));
+        product.setBarcode(readString(in));
+        product.setImagePath(readString(in));
+        String createdAt = readString(in);
+        product.setCreatedAt(createdAt != null ? LocalDateTime.parse(createdAt) : null);
+        String updatedAt = readString(in);
+        product.setUpdatedAt(updatedAt != null ? LocalDateTime.parse(updatedAt) : null);
+        products.add(product);
+      }
+      int ruleCount = in.readInt();
+      List<TaxRule> rules = new ArrayList<>(ruleCount);
+      for (int i = 0; i < ruleCount; i++) {
+        TaxRule rule = new TaxRule();
+        rule.setId(in.readInt());
+        int productId = in.readInt();
+        rule.setProductId(productId >= 0 ? productId : null);
+        rule.setCategory(readString(in));
+        rule.setRateBasisPoints(in.readInt());
+        rule.setDescription(readString(in));
+        rules.add(rule);
+      }
+      return new CatalogSnapshot(takenAt, products, rules);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Error reading catalog snapshot " + path + ": " + e.getMessage());
+      return null;
+    }
+  }
+
+  // Length-prefixed UTF-8, -1 for null (descriptions can exceed writeUTF's 64 KB limit)
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,274 @@
+package com.shopbilling.offline;
+
+import com.shopbilling.dao.BillDAO;
+import com.shopbilling.dao.ProductCache;
+import com.shopbilling.dao.PromotionDAO;
+import com.shopbilling.dao.TaxRuleDAO;
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.journal.BillJournal;
+import com.shopbilling.model.Bill;
+import com.shopbilling.model.TaxRule;
+import com.shopbilling.tax.TaxEngine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the till selling while MySQL is slow or down.
+ *
+ * Whenever the catalog is loaded from MySQL a local {@link CatalogSnapshot}
+ * is written; if MySQL can't be reached at startup the product cache and tax
+ * engine are filled from it instead. Bills saved through {@link #saveBill}
+ * while offline are appended to a local {@link BillJournal} and get a
+ * negative local id, stored with the bill and never handed out twice, even
+ * across restarts. A background probe notices when MySQL is back, reloads
+ * the catalog and runs the {@link SyncEngine}, which saves the captured bills,
+ * applies their stock and journals which server id each local id became, so
+ * {@link #getServerBillId} still answers after a restart.
+ * Promotions are not part of the snapshot, so offline bills are priced
+ * without them.
+ */
+public class OfflineTill {
+  private static OfflineTill instance;
+
+  private static final Path DIRECTORY = Paths.get(System.getProperty("user.home"), ".shopbilling");
+  public static final Path SNAPSHOT_PATH = DIRECTORY.resolve("catalog-snapshot.bin");
+  public static final Path JOURNAL_PATH = DIRECTORY.resolve("offline-bills.log");
+
+  private static final long PROBE_INTERVAL_MS = 10_000;
+  private static final long SNAPSHOT_INTERVAL_MS = 15 * 60_000;
+  private static final long COMPACT_THRESHOLD_BYTES = 1024 * 1024;
+
+  private final BillDAO billDAO = new BillDAO();
+  private final SyncEngine syncEngine = new SyncEngine();
+  private BillJournal journal;
+  private ScheduledExecutorService prober;
+  private volatile boolean offline;
+  private volatile long lastSnapshotAt;
+
+  // Captured bills not yet in MySQL, in sale order
+  private final Map<String, BillJournal.Entry> pendingEntries = new LinkedHashMap<>();
+  private int nextLocalId = -1;
+
+  private final Map<Integer, Integer> serverIdsByLocalId = new ConcurrentHashMap<>();
+  private final List<SyncConflict> conflicts = new ArrayList<>();
+
+  private OfflineTill() {}
+
+  public static synchronized OfflineTill getInstance() {
+    if (instance == null) {
+      instance = new OfflineTill();
+    }
+    return instance;
+  }
+
+  /**
+   * Opens the local store, falls back to the catalog snapshot if MySQL is
+   * unreachable, and starts probing for MySQL. Call after the product cache
+   * has been warmed (or has failed to warm).
+   */
+  public synchronized void start() throws IOException {
+    if (journal != null) {
+      return;
+    }
+    journal = BillJournal.open(JOURNAL_PATH);
+    for (BillJournal.Entry entry : journal.getRecovered()) {
+      pendingEntries.put(entry.getOrderKey(), entry);
+    }
+    serverIdsByLocalId.putAll(journal.getServerIdsByLocalId());
+    nextLocalId = Math.min(-1, journal.getLowestLocalId() - 1);
+
+    if (ProductCache.getInstance().isLoaded()) {
+      saveSnapshot();
+    } else {
+      goOffline();
+    }
+
+    prober = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "offline-till-probe");
+      t.setDaemon(true);
+      return t;
+    });
+    prober.scheduleWithFixedDelay(this::probe, PROBE_INTERVAL_MS, PROBE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stop() {
+    if (prober != null) {
+      prober.shutdownNow();
+      prober = null;
+    }
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        System.err.println("Error closing offline bill store: " + e.getMessage());
+      }
+      journal = null;
+    }
+  }
+
+  public synchronized boolean isRunning() {
+    return journal != null;
+  }
+
+  public boolean isOffline() {
+    return offline;
+  }
+
+  /**
+   * Saves the bill to MySQL, or captures it locally if MySQL can't be reached.
+   * Returns false only if the bill could be saved nowhere. A captured bill
+   * gets a negative local id; see {@link #getServerBillId}. BillService.saveBill
+   * comes here while the till is running.
+   */
+  public boolean saveBill(Bill bill) {
+    bill.assignOrderKey();
+    if (!offline) {
+      if (billDAO.saveBill(bill)) {
+        return true;
+      }
+      if (DatabaseManager.getInstance().isAvailable()) {
+        // MySQL is up and refused the bill; capturing it would only defer the error
+        return false;
+      }
+      goOffline();
+    }
+    return capture(bill);
+  }
+
+  private synchronized boolean capture(Bill bill) {
+    if (journal == null) {
+      return false;
+    }
+    try {
+      int localId = nextLocalId--;
+      BillJournal.Entry entry = journal.appendBill(bill.getOrderKey(), System.currentTimeMillis(), localId, bill);
+      pendingEntries.put(entry.getOrderKey(), entry);
+      bill.setId(localId);
+      return true;
+    } catch (IOException e) {
+      System.err.println("Error capturing bill offline: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private void goOffline() {
+    if (!offline) {
+      System.err.println("MySQL unreachable, switching the till to offline mode");
+    }
+    offline = true;
+    if (ProductCache.getInstance().isLoaded()) {
+      return;
+    }
+    CatalogSnapshot snapshot = CatalogSnapshot.load(SNAPSHOT_PATH);
+    if (snapshot == null) {
+      System.err.println("No catalog snapshot available; offline sales need the catalog to be loaded once");
+      return;
+    }
+    ProductCache.getInstance().loadSnapshot(snapshot.getProducts());
+    TaxEngine.getInstance().installRules(snapshot.getTaxRules());
+    System.out.println("Loaded " + snapshot.getProducts().size() + " products from the catalog snapshot");
+  }
+
+  void probe() {
+    try {
+      boolean available = DatabaseManager.getInstance().isAvailable();
+      if (!available) {
+        if (!offline) {
+          goOffline();
+        }
+        return;
+      }
+      if (offline) {
+        // Replace snapshot data with the live catalog before pricing anything against it
+        ProductCache.getInstance().reload();
+        new TaxRuleDAO().reloadTaxEngine();
+        new PromotionDAO().reloadPromotionEngine();
+        offline = false;
+        System.out.println("MySQL reachable again, syncing offline bills");
+      }
+      sync();
+      if (System.currentTimeMillis() - lastSnapshotAt >= SNAPSHOT_INTERVAL_MS) {
+        saveSnapshot();
+      }
+    } catch (RuntimeException e) {
+      // Keep the probe scheduled whatever happens
+      System.err.println("Error in offline till probe: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Pushes captured bills to MySQL in sale order. Stops at the first bill
+   * MySQL fails to take; bills blocked by a conflict are skipped and retried
+   * on the next run.
+   */
+  public synchronized void sync() {
+    if (journal == null || pendingEntries.isEmpty()) {
+      return;
+    }
+    for (BillJournal.Entry entry : new ArrayList<>(pendingEntries.values())) {
+      SyncEngine.Result result;
+      try {
+        result = syncEngine.sync(journal, entry);
+      } catch (IOException e) {
+        // The bill is in MySQL; replaying it later returns the same bill by its order key
+        System.err.println("Error recording synced offline bill: " + e.getMessage());
+        return;
+      }
+      conflicts.removeIf(c -> c.getOrderKey().equals(entry.getOrderKey()));
+      conflicts.addAll(result.conflicts);
+      result.conflicts.forEach(c -> System.err.println("Offline sync conflict: " + c));
+      if (result.synced) {
+        pendingEntries.remove(entry.getOrderKey());
+        serverIdsByLocalId.put(entry.getLocalId(), result.serverBillId);
+      } else if (result.conflicts.isEmpty()) {
+        return;
+      }
+    }
+
+    try {
+      if (pendingEntries.isEmpty() && journal.size() > COMPACT_THRESHOLD_BYTES) {
+        journal.compact();
+      }
+    } catch (IOException e) {
+      System.err.println("Error compacting offline bill store: " + e.getMessage());
+    }
+  }
+
+  private void saveSnapshot() {
+    List<TaxRule> rules = new TaxRuleDAO().getAllRules();
+    if (rules == null) {
+      return;
+    }
+    try {
+      CatalogSnapshot.save(SNAPSHOT_PATH, ProductCache.getInstance().getAll(), rules);
+      lastSnapshotAt = System.currentTimeMillis();
+    } catch (IOException e) {
+      System.err.println("Error writing catalog snapshot: " + e.getMessage());
+    }
+  }
+
+  /**
+   * The MySQL id an offline bill was given when it synced, or 0 if it hasn't yet.
+   */
+  public int getServerBillId(int localBillId) {
+    return serverIdsByLocalId.getOrDefault(localBillId, 0);
+  }
+
+  public synchronized int getPendingCount() {
+    return pendingEntries.size();
+  }
+
+  public synchronized List<SyncConflict> getConflicts() {
+    return new ArrayList<>(conflicts);
+  }
+}
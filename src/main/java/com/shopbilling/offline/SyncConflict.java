@@ -0,0 +1,44 @@
+package com.shopbilling.offline;
+
+/**
+ * Something about an offline bill that needs a person to look at it after sync.
+ */
+public class SyncConflict {
+  public enum Type {
+    // A product on the bill no longer exists; the bill stays queued locally
+    MISSING_PRODUCT,
+    // Not enough stock to complete the bill; it was saved as PENDING instead
+    STOCK_SHORTFALL,
+    // The bill was saved but could not be marked COMPLETED (deleted, or rejected by MySQL)
+    CONFIRM_FAILED,
+    // The product's price changed since the snapshot the bill was priced from; informational
+    PRICE_CHANGED
+  }
+
+  private final Type type;
+  private final String orderKey;
+  private final int localBillId;
+  private final int serverBillId;
+  private final String message;
+
+  public SyncConflict(Type type, String orderKey, int localBillId, int serverBillId, String message) {
+    this.type = type;
+    this.orderKey = orderKey;
+    this.localBillId = localBillId;
+    this.serverBillId = serverBillId;
+    this.message = message;
+  }
+
+  public Type getType() { return type; }
+  public String getOrderKey() { return orderKey; }
+  public int getLocalBillId() { return localBillId; }
+  // 0 if the bill has not reached MySQL
+  public int getServerBillId() { return serverBillId; }
+  public String getMessage() { return message; }
+
+  @Override
+  public String toString() {
+    return type + " for offline bill " + localBillId
+        + (serverBillId > 0 ? " (now bill " + serverBillId + ")" : "") + ": " + message;
+  }
+}
@@ -0,0 +1,122 @@
+package com.shopbilling.offline;
+
+import com.shopbilling.dao.BillDAO;
+import com.shopbilling.dao.ProductDAO;
+import com.shopbilling.dao.SqlErrors;
+import com.shopbilling.journal.BillJournal;
+import com.shopbilling.model.Bill;
+import com.shopbilling.model.BillItem;
+import com.shopbilling.model.Product;
+import com.shopbilling.model.StockShortfall;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replays bills captured offline into MySQL.
+ *
+ * Each bill is saved under its order key, so a sync interrupted half way and
+ * run again never duplicates a bill. Bills sold as COMPLETED are saved as
+ * PENDING and then confirmed through BillDAO, which applies their stock as
+ * guarded relative decrements in one transaction; if the stock has run out
+ * in the meantime the bill is left PENDING for the admin and reported.
+ *
+ * A bill is only marked drained once its outcome is settled: confirmed,
+ * short on stock, or no longer PENDING. If the confirm fails for a transient
+ * reason (lost connection, pool timeout) the bill stays in the journal and
+ * the next sync finds the saved bill by its order key and confirms it again.
+ */
+class SyncEngine {
+  private final BillDAO billDAO = new BillDAO();
+  private final ProductDAO productDAO = new ProductDAO();
+
+  /**
+   * Outcome of syncing one bill.
+   */
+  static final class Result {
+    final boolean synced;
+    final int serverBillId;
+    final List<SyncConflict> conflicts;
+
+    Result(boolean synced, int serverBillId, List<SyncConflict> conflicts) {
+      this.synced = synced;
+      this.serverBillId = serverBillId;
+      this.conflicts = conflicts;
+    }
+  }
+
+  /**
+   * Saves one journaled bill and marks it drained. A result that is not synced
+   * with no conflicts means MySQL failed and the sync should stop for now.
+   */
+  Result sync(BillJournal journal, BillJournal.Entry entry) throws IOException {
+    int localBillId = entry.getLocalId();
+    Bill bill = entry.getBill();
+    List<SyncConflict> conflicts = new ArrayList<>();
+
+    Set<Integer> missing = new LinkedHashSet<>();
+    for (BillItem item : bill.getBillItems()) {
+      Product product = productDAO.getProductById(item.getProductId());
+      if (product == null) {
+        missing.add(item.getProductId());
+      } else if (product.getPrice() != null && item.getUnitPrice() != null
+          && product.getPrice().compareTo(item.getUnitPrice()) != 0) {
+        conflicts.add(new SyncConflict(SyncConflict.Type.PRICE_CHANGED, entry.getOrderKey(), localBillId, 0,
+            product.getName() + " sold at " + item.getUnitPrice() + ", now priced " + product.getPrice()));
+      }
+    }
+    if (!missing.isEmpty()) {
+      List<SyncConflict> blocked = List.of(new SyncConflict(SyncConflict.Type.MISSING_PRODUCT, entry.getOrderKey(),
+          localBillId, 0, "products no longer exist: " + missing));
+      return new Result(false, 0, blocked);
+    }
+
+    // Stock is applied by confirmBill below, not at insert time
+    String soldStatus = bill.getStatus();
+    boolean completed = "COMPLETED".equals(soldStatus);
+    bill.setStatus("PENDING");
+    boolean saved = billDAO.saveBill(bill);
+    // The journaled bill is synced again if this run doesn't settle it
+    bill.setStatus(soldStatus);
+    if (!saved) {
+      return new Result(false, 0, List.of());
+    }
+    int serverBillId = bill.getId();
+
+    if (completed) {
+      List<StockShortfall> shortfalls = new ArrayList<>();
+      BillDAO.ConfirmOutcome outcome;
+      try {
+        outcome = billDAO.confirmBillOrThrow(bill, shortfalls);
+      } catch (SQLException e) {
+        if (SqlErrors.isTransient(e)) {
+          System.err.println("Error confirming synced offline bill " + serverBillId + ", will retry: " + e.getMessage());
+          return new Result(false, 0, List.of());
+        }
+        outcome = null;
+        conflicts.add(new SyncConflict(SyncConflict.Type.CONFIRM_FAILED, entry.getOrderKey(), localBillId,
+            serverBillId, "saved, but could not be marked COMPLETED: " + e.getMessage()));
+      }
+      if (outcome == BillDAO.ConfirmOutcome.SHORTFALL) {
+        conflicts.add(new SyncConflict(SyncConflict.Type.STOCK_SHORTFALL, entry.getOrderKey(), localBillId,
+            serverBillId, "left PENDING, short on " + shortfalls));
+      } else if (outcome == BillDAO.ConfirmOutcome.NOT_FOUND) {
+        conflicts.add(new SyncConflict(SyncConflict.Type.CONFIRM_FAILED, entry.getOrderKey(), localBillId,
+            serverBillId, "saved, but deleted before it could be marked COMPLETED"));
+      }
+      // NOT_PENDING: an earlier, interrupted sync already confirmed it
+    }
+
+    journal.appendDrained(entry, serverBillId);
+    List<SyncConflict> reported = new ArrayList<>();
+    for (SyncConflict conflict : conflicts) {
+      reported.add(conflict.getServerBillId() > 0 ? conflict
+          : new SyncConflict(conflict.getType(), conflict.getOrderKey(), localBillId, serverBillId, conflict.getMessage()));
+    }
+    return new Result(true, serverBillId, reported);
+  }
+}
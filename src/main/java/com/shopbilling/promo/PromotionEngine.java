@@ -0,0 +1,79 @@
+package com.shopbilling.promo;
+
+import com.shopbilling.model.Promotion;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the {@link PromotionTable} that carts are priced with.
+ *
+ * Installing promotions compiles the ones in effect now and swaps the table
+ * in with a single volatile write; readers never block. The table also knows
+ * when the next promotion starts or ends, and is recompiled on first use
+ * after that moment, so scheduled promotions switch on and off by themselves.
+ */
+public final class PromotionEngine {
+  private static final PromotionEngine INSTANCE = new PromotionEngine();
+
+  private volatile PromotionTable table = PromotionTable.empty(0);
+  private volatile long validUntilMillis = Long.MAX_VALUE;
+
+  // Compile input, only touched under the lock
+  private List<Promotion> promotions = List.of();
+  private long nextVersion = 1;
+
+  private PromotionEngine() {}
+
+  public static PromotionEngine getInstance() {
+    return INSTANCE;
+  }
+
+  public PromotionTable current() {
+    if (System.currentTimeMillis() >= validUntilMillis) {
+      recompile();
+    }
+    return table;
+  }
+
+  /**
+   * Replaces the promotions and atomically installs the recompiled table.
+   */
+  public synchronized void installPromotions(List<Promotion> promotions) {
+    this.promotions = List.copyOf(promotions);
+    compile(System.currentTimeMillis());
+  }
+
+  private synchronized void recompile() {
+    long now = System.currentTimeMillis();
+    if (now >= validUntilMillis) {
+      compile(now);
+    }
+  }
+
+  private void compile(long now) {
+    List<Promotion> inEffect = new ArrayList<>();
+    long nextChange = Long.MAX_VALUE;
+    for (Promotion promotion : promotions) {
+      if (!promotion.isActive()) {
+        continue;
+      }
+      long startsAt = toMillis(promotion.getStartsAt(), Long.MIN_VALUE);
+      long endsAt = toMillis(promotion.getEndsAt(), Long.MAX_VALUE);
+      if (startsAt > now) {
+        nextChange = Math.min(nextChange, startsAt);
+      } else if (endsAt > now) {
+        inEffect.add(promotion);
+        nextChange = Math.min(nextChange, endsAt);
+      }
+    }
+    table = PromotionTable.compile(nextVersion++, inEffect);
+    validUntilMillis = nextChange;
+  }
+
+  private static long toMillis(LocalDateTime time, long ifNull) {
+    return time == null ? ifNull : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+}
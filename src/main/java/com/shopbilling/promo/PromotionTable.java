@@ -0,0 +1,189 @@
+package com.shopbilling.promo;
+
+import com.shopbilling.model.Money;
+import com.shopbilling.model.Promotion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of the promotions in effect at one moment.
+ *
+ * Line promotions are indexed by product id and by category, so pricing a
+ * line only looks at the few promotions that can apply to it. Thresholds
+ * are sorted by minimum amount with running best-offer maxima, so the cart
+ * discount is one binary search.
+ *
+ * Stacking rules: each line gets the single best line promotion that applies
+ * to it; then the single best threshold the cart reaches applies to what is
+ * left of the subtotal.
+ */
+public final class PromotionTable {
+  private static final LinePromotion[] NONE = new LinePromotion[0];
+
+  private final long version;
+  private final Map<Integer, LinePromotion[]> byProduct;
+  private final Map<String, LinePromotion[]> byCategory;
+  private final long[] thresholdMins;
+  private final long[] bestAmountOff;
+  private final long[] bestPercent;
+  private final int size;
+
+  private static final class LinePromotion {
+    final int buyQuantity;
+    final int freeQuantity;
+    final long percentBasisPoints;
+
+    LinePromotion(int buyQuantity, int freeQuantity, long percentBasisPoints) {
+      this.buyQuantity = buyQuantity;
+      this.freeQuantity = freeQuantity;
+      this.percentBasisPoints = percentBasisPoints;
+    }
+
+    long discount(int quantity, long unitPrice, long lineTotal) {
+      if (freeQuantity > 0) {
+        long groups = quantity / (buyQuantity + freeQuantity);
+        return Math.multiplyExact(Math.multiplyExact(groups, freeQuantity), unitPrice);
+      }
+      return Money.applyRate(lineTotal, percentBasisPoints);
+    }
+  }
+
+  private PromotionTable(long version, Map<Integer, LinePromotion[]> byProduct, Map<String, LinePromotion[]> byCategory,
+                         long[] thresholdMins, long[] bestAmountOff, long[] bestPercent, int size) {
+    this.version = version;
+    this.byProduct = byProduct;
+    this.byCategory = byCategory;
+    this.thresholdMins = thresholdMins;
+    this.bestAmountOff = bestAmountOff;
+    this.bestPercent = bestPercent;
+    this.size = size;
+  }
+
+  static PromotionTable empty(long version) {
+    return new PromotionTable(version, Map.of(), Map.of(), new long[0], new long[0], new long[0], 0);
+  }
+
+  /**
+   * Compiles the given promotions, all of which are taken to be in effect.
+   */
+  static PromotionTable compile(long version, Collection<Promotion> promotions) {
+    Map<Integer, List<LinePromotion>> byProduct = new HashMap<>();
+    Map<String, List<LinePromotion>> byCategory = new HashMap<>();
+    List<Promotion> thresholds = new ArrayList<>();
+    int size = 0;
+
+    for (Promotion promotion : promotions) {
+      if (Promotion.THRESHOLD.equals(promotion.getType())) {
+        if (promotion.getMinAmount() != null) {
+          thresholds.add(promotion);
+          size++;
+        }
+        continue;
+      }
+
+      LinePromotion line;
+      if (Promotion.BUY_X_GET_Y.equals(promotion.getType())) {
+        if (promotion.getProductId() == null || promotion.getBuyQuantity() <= 0 || promotion.getFreeQuantity() <= 0) {
+          continue;
+        }
+        line = new LinePromotion(promotion.getBuyQuantity(), promotion.getFreeQuantity(), 0);
+      } else if (Promotion.PERCENT_OFF.equals(promotion.getType())) {
+        line = new LinePromotion(0, 0, promotion.getPercentBasisPoints());
+      } else {
+        continue;
+      }
+
+      if (promotion.getProductId() != null) {
+        byProduct.computeIfAbsent(promotion.getProductId(), k -> new ArrayList<>()).add(line);
+      } else if (promotion.getCategory() != null && !promotion.getCategory().isBlank()) {
+        byCategory.computeIfAbsent(categoryKey(promotion.getCategory()), k -> new ArrayList<>()).add(line);
+      } else {
+        continue;
+      }
+      size++;
+    }
+
+    thresholds.sort((a, b) -> a.getMinAmount().compareTo(b.getMinAmount()));
+    long[] mins = new long[thresholds.size()];
+    long[] amountOff = new long[thresholds.size()];
+    long[] percent = new long[thresholds.size()];
+    for (int i = 0; i < mins.length; i++) {
+      Promotion threshold = thresholds.get(i);
+      mins[i] = Money.toMinor(threshold.getMinAmount());
+      long off = threshold.getAmountOff() != null ? Money.toMinor(threshold.getAmountOff()) : 0;
+      // Every threshold at or below index i is reached whenever threshold i is
+      amountOff[i] = Math.max(off, i > 0 ? amountOff[i - 1] : 0);
+      percent[i] = Math.max(threshold.getPercentBasisPoints(), i > 0 ? percent[i - 1] : 0);
+    }
+
+    return new PromotionTable(version, toArrays(byProduct), toArrays(byCategory), mins, amountOff, percent, size);
+  }
+
+  public long getVersion() { return version; }
+
+  // Number of promotions compiled into the table
+  public int size() { return size; }
+
+  /**
+   * Discount in minor units for one line: the best product or category promotion, capped at the line total.
+   */
+  public long lineDiscount(int productId, String category, int quantity, long unitPrice, long lineTotal) {
+    if (lineTotal <= 0) {
+      return 0;
+    }
+    long best = 0;
+    for (LinePromotion promotion : byProduct.getOrDefault(productId, NONE)) {
+      best = Math.max(best, promotion.discount(quantity, unitPrice, lineTotal));
+    }
+    if (category != null && !byCategory.isEmpty()) {
+      for (LinePromotion promotion : byCategory.getOrDefault(categoryKey(category), NONE)) {
+        best = Math.max(best, promotion.discount(quantity, unitPrice, lineTotal));
+      }
+    }
+    return Math.min(best, lineTotal);
+  }
+
+  /**
+   * Discount in minor units from the best threshold the amount reaches, capped at the amount.
+   */
+  public long cartDiscount(long amount) {
+    int reached = upperBound(thresholdMins, amount) - 1;
+    if (reached < 0 || amount <= 0) {
+      return 0;
+    }
+    long discount = Math.max(bestAmountOff[reached], Money.applyRate(amount, bestPercent[reached]));
+    return Math.min(discount, amount);
+  }
+
+  // First index whose value is > key
+  private static int upperBound(long[] values, long key) {
+    int lo = 0;
+    int hi = values.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (values[mid] <= key) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  private static <K> Map<K, LinePromotion[]> toArrays(Map<K, List<LinePromotion>> lists) {
+    Map<K, LinePromotion[]> arrays = new HashMap<>();
+    for (Map.Entry<K, List<LinePromotion>> entry : lists.entrySet()) {
+      arrays.put(entry.getKey(), entry.getValue().toArray(NONE));
+    }
+    return arrays;
+  }
+
+  static String categoryKey(String category) {
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
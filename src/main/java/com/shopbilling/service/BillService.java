@@ -0,0 +1,106 @@
+package com.shopbilling.service;
+
+import com.shopbilling.dao.BillDAO;
+import com.shopbilling.model.Bill;
+import com.shopbilling.model.BillPage;
+import com.shopbilling.model.BulkConfirmResult;
+import com.shopbilling.model.StockShortfall;
+import com.shopbilling.offline.OfflineTill;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link BillDAO}; see {@link DataAccessService}.
+ */
+public class BillService {
+  private final BillDAO billDAO = new BillDAO();
+  private final DataAccessService service = DataAccessService.getInstance();
+
+  public CompletableFuture<BigDecimal> getTotalRevenue() {
+    return service.submit("BillDAO.getTotalRevenue", billDAO::getTotalRevenue);
+  }
+
+  public CompletableFuture<BigDecimal> getHighestBillAmount() {
+    return service.submit("BillDAO.getHighestBillAmount", billDAO::getHighestBillAmount);
+  }
+
+  public CompletableFuture<BigDecimal> getLowestBillAmount() {
+    return service.submit("BillDAO.getLowestBillAmount", billDAO::getLowestBillAmount);
+  }
+
+  /**
+   * Saves the bill, through the offline till when it is running so a sale
+   * made while MySQL is down is captured locally instead of failing.
+   */
+  public CompletableFuture<Boolean> saveBill(Bill bill) {
+    OfflineTill till = OfflineTill.getInstance();
+    if (till.isRunning()) {
+      return service.submit("OfflineTill.saveBill", () -> till.saveBill(bill));
+    }
+    return service.submit("BillDAO.saveBill", () -> billDAO.saveBill(bill));
+  }
+
+  public CompletableFuture<Integer> findBillIdByOrderKey(String orderKey) {
+    return service.submit("BillDAO.findBillIdByOrderKey", () -> billDAO.findBillIdByOrderKey(orderKey));
+  }
+
+  public CompletableFuture<Boolean> confirmBill(Bill bill) {
+    return service.submit("BillDAO.confirmBill", () -> billDAO.confirmBill(bill));
+  }
+
+  /**
+   * Shortfalls are added to the list on the worker thread; read it once the future completes.
+   */
+  public CompletableFuture<Boolean> confirmBill(Bill bill, List<StockShortfall> shortfalls) {
+    return service.submit("BillDAO.confirmBill", () -> billDAO.confirmBill(bill, shortfalls));
+  }
+
+  public CompletableFuture<BulkConfirmResult> confirmBills(Collection<Integer> billIds) {
+    List<Integer> ids = new ArrayList<>(billIds);
+    return service.submit("BillDAO.confirmBills", () -> billDAO.confirmBills(ids));
+  }
+
+  public CompletableFuture<Boolean> deleteBill(int id) {
+    return service.submit("BillDAO.deleteBill", () -> billDAO.deleteBill(id));
+  }
+
+  /**
+   * Deletes each bill in turn on one worker; completes with the ids that were deleted.
+   */
+  public CompletableFuture<List<Integer>> deleteBills(Collection<Integer> billIds) {
+    List<Integer> ids = new ArrayList<>(billIds);
+    return service.submit("BillDAO.deleteBills", () -> {
+      List<Integer> deleted = new ArrayList<>();
+      for (int id : ids) {
+        if (billDAO.deleteBill(id)) {
+          deleted.add(id);
+        }
+      }
+      return deleted;
+    });
+  }
+
+  public CompletableFuture<List<Bill>> getAllBills() {
+    return service.submit("BillDAO.getAllBills", billDAO::getAllBills);
+  }
+
+  public CompletableFuture<List<Bill>> getBillsByStatus(String status) {
+    return service.submit("BillDAO.getBillsByStatus", () -> billDAO.getBillsByStatus(status));
+  }
+
+  public CompletableFuture<BillPage> getBillsPage(BillPage.Cursor cursor, int pageSize) {
+    return service.submit("BillDAO.getBillsPage", () -> billDAO.getBillsPage(cursor, pageSize));
+  }
+
+  public CompletableFuture<BillPage> getBillsByStatusPage(String status, BillPage.Cursor cursor, int pageSize) {
+    return service.submit("BillDAO.getBillsByStatusPage", () -> billDAO.getBillsByStatusPage(status, cursor, pageSize));
+  }
+
+  public CompletableFuture<Bill> getBillById(int id) {
+    return service.submit("BillDAO.getBillById", () -> billDAO.getBillById(id));
+  }
+}
@@ -0,0 +1,48 @@
+package com.shopbilling.service;
+
+import com.shopbilling.dao.CustomerDAO;
+import com.shopbilling.model.Customer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link CustomerDAO}; see {@link DataAccessService}.
+ */
+public class CustomerService {
+  private final CustomerDAO customerDAO = new CustomerDAO();
+  private final DataAccessService service = DataAccessService.getInstance();
+
+  public CompletableFuture<Integer> getTotalCustomers() {
+    return service.submit("CustomerDAO.getTotalCustomers", customerDAO::getTotalCustomers);
+  }
+
+  public CompletableFuture<List<Customer>> getAllCustomers() {
+    return service.submit("CustomerDAO.getAllCustomers", customerDAO::getAllCustomers);
+  }
+
+  public CompletableFuture<Customer> getCustomerById(int id) {
+    return service.submit("CustomerDAO.getCustomerById", () -> customerDAO.getCustomerById(id));
+  }
+
+  public CompletableFuture<Customer> login(String username, String password) {
+    return service.submit("CustomerDAO.login", () -> customerDAO.login(username, password));
+  }
+
+  public CompletableFuture<List<Customer>> searchCustomers(String grid, String searchTerm) {
+    return service.submitLatest("customers.search:" + grid, "CustomerDAO.searchCustomers",
+        () -> customerDAO.searchCustomers(searchTerm));
+  }
+
+  public CompletableFuture<Boolean> addCustomer(Customer customer) {
+    return service.submit("CustomerDAO.addCustomer", () -> customerDAO.addCustomer(customer));
+  }
+
+  public CompletableFuture<Boolean> updateCustomer(Customer customer) {
+    return service.submit("CustomerDAO.updateCustomer", () -> customerDAO.updateCustomer(customer));
+  }
+
+  public CompletableFuture<Boolean> deleteCustomer(int id) {
+    return service.submit("CustomerDAO.deleteCustomer", () -> customerDAO.deleteCustomer(id));
+  }
+}
@@ -0,0 +1,217 @@
+package com.shopbilling.service;
+
+import com.shopbilling.database.DatabaseManager;
+import com.shopbilling.database.PoolStats;
+import javafx.application.Platform;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs DAO calls off the JavaFX application thread.
+ *
+ * On JDK 21+ every call gets its own virtual thread; on JDK 17 calls run on a
+ * bounded pool of platform threads. Either way no more calls touch the
+ * database at once than the connection pool can serve, so a burst of UI
+ * events queues here instead of timing out in the pool. On both, once
+ * MAX_QUEUED_CALLS are waiting, further calls fail with a
+ * RejectedExecutionException. Results are handed back on the FX thread with
+ * {@link #onFxThread}. Calls submitted with
+ * {@link #submitLatest} cancel the previous call on the same channel, so a
+ * superseded search never overwrites a newer one. Every call's latency, from
+ * submission to completion, is recorded per operation.
+ */
+public class DataAccessService {
+  private static DataAccessService instance;
+
+  // Used when the pool size is unknown (MySQL down at startup)
+  private static final int DEFAULT_MAX_CONCURRENT_CALLS = 10;
+  private static final int MAX_QUEUED_CALLS = 1_000;
+
+  private final ExecutorService executor;
+  private final Semaphore databaseSlots;
+  // Virtual threads only: running plus waiting calls, bounded like the platform pool's queue
+  private final Semaphore admitted;
+  private final boolean virtualThreads;
+  private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<?>> latestByChannel = new ConcurrentHashMap<>();
+
+  private DataAccessService() {
+    PoolStats pool = DatabaseManager.getInstance().getPoolStats();
+    int maxConcurrent = pool != null ? pool.getMaxConnections() : DEFAULT_MAX_CONCURRENT_CALLS;
+    ExecutorService virtual = Boolean.parseBoolean(System.getProperty("shopbilling.virtualThreads", "true"))
+        ? newVirtualThreadExecutor()
+        : null;
+    if (virtual != null) {
+      executor = virtual;
+      databaseSlots = new Semaphore(maxConcurrent);
+      admitted = new Semaphore(maxConcurrent + MAX_QUEUED_CALLS);
+      virtualThreads = true;
+    } else {
+      AtomicInteger threadNumber = new AtomicInteger();
+      ThreadPoolExecutor platformPool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(MAX_QUEUED_CALLS), r -> {
+            Thread t = new Thread(r, "data-access-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+      platformPool.allowCoreThreadTimeOut(true);
+      executor = platformPool;
+      databaseSlots = null;
+      admitted = null;
+      virtualThreads = false;
+    }
+  }
+
+  public static synchronized DataAccessService getInstance() {
+    if (instance == null) {
+      instance = new DataAccessService();
+    }
+    return instance;
+  }
+
+  // Executors.newVirtualThreadPerTaskExecutor() exists from JDK 21; looked up reflectively so this builds on 17
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  public boolean isUsingVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Runs the call on a worker thread. Cancelling the returned future before the
+   * call starts means it never runs; cancelling it later interrupts the worker
+   * and the result is discarded.
+   */
+  public <T> CompletableFuture<T> submit(String operation, Callable<T> call) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    LatencyHistogram histogram = histograms.computeIfAbsent(operation, op -> new LatencyHistogram());
+    long submittedAt = System.nanoTime();
+    if (admitted != null && !admitted.tryAcquire()) {
+      result.completeExceptionally(new RejectedExecutionException(
+          "Too many database calls waiting (limit " + MAX_QUEUED_CALLS + ")"));
+      return result;
+    }
+    // Given back when the call ends, or when it is cancelled, which may be before it ever runs
+    AtomicBoolean released = new AtomicBoolean(admitted == null);
+    Runnable release = () -> {
+      if (released.compareAndSet(false, true)) {
+        admitted.release();
+      }
+    };
+    Future<?> task;
+    try {
+      task = executor.submit(() -> {
+        try {
+          if (result.isDone()) {
+            return;
+          }
+          result.complete(callWithSlot(call));
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        } finally {
+          histogram.record(System.nanoTime() - submittedAt);
+          release.run();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      release.run();
+      result.completeExceptionally(e);
+      return result;
+    }
+    result.whenComplete((value, error) -> {
+      if (result.isCancelled()) {
+        task.cancel(true);
+        release.run();
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Like {@link #submit}, but first cancels the call last submitted on the same
+   * channel (e.g. the previous keystroke's search in one product grid).
+   */
+  public <T> CompletableFuture<T> submitLatest(String channel, String operation, Callable<T> call) {
+    CompletableFuture<T> result = submit(operation, call);
+    CompletableFuture<?> previous = latestByChannel.put(channel, result);
+    if (previous != null) {
+      previous.cancel(true);
+    }
+    result.whenComplete((value, error) -> latestByChannel.remove(channel, result));
+    return result;
+  }
+
+  private <T> T callWithSlot(Callable<T> call) throws Exception {
+    if (databaseSlots == null) {
+      return call.call();
+    }
+    databaseSlots.acquire();
+    try {
+      return call.call();
+    } finally {
+      databaseSlots.release();
+    }
+  }
+
+  /**
+   * Delivers the outcome on the JavaFX application thread. Cancelled calls are
+   * dropped silently; onError gets the underlying exception.
+   */
+  public static <T> void onFxThread(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onError) {
+    future.whenComplete((value, error) -> {
+      if (future.isCancelled()) {
+        return;
+      }
+      Platform.runLater(() -> {
+        if (future.isCancelled()) {
+          return;
+        }
+        if (error == null) {
+          onSuccess.accept(value);
+        } else if (onError != null) {
+          onError.accept(unwrap(error));
+        }
+      });
+    });
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+  }
+
+  public LatencyHistogram getHistogram(String operation) {
+    return histograms.get(operation);
+  }
+
+  /**
+   * Latency histograms for every operation seen so far, by operation name.
+   */
+  public Map<String, LatencyHistogram> getHistograms() {
+    return new TreeMap<>(histograms);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
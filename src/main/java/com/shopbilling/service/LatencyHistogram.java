@@ -0,0 +1,76 @@
+package com.shopbilling.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets
+ * (bucket i counts calls that took up to 2^i microseconds). Percentiles are
+ * reported as the upper bound of the bucket they fall in, so they are exact
+ * to within a factor of two, which is enough to spot a slow query.
+ */
+public class LatencyHistogram {
+  // 2^26 us is about 67 s; anything slower lands in the last bucket
+  private static final int BUCKETS = 27;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong totalMicros = new AtomicLong();
+  private final AtomicLong maxMicros = new AtomicLong();
+
+  public void record(long nanos) {
+    long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+    int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+    counts.incrementAndGet(bucket);
+    totalMicros.addAndGet(micros);
+    maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  public double getMeanMillis() {
+    long count = getCount();
+    return count == 0 ? 0.0 : totalMicros.get() / 1000.0 / count;
+  }
+
+  public double getMaxMillis() {
+    return maxMicros.get() / 1000.0;
+  }
+
+  /**
+   * Upper bound of the bucket holding the given percentile (0-100), in milliseconds.
+   */
+  public double getPercentileMillis(double percentile) {
+    long[] snapshot = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = counts.get(i);
+      count += snapshot[i];
+    }
+    if (count == 0) {
+      return 0.0;
+    }
+    long rank = (long) Math.ceil(percentile / 100.0 * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(1L << i, maxMicros.get()) / 1000.0;
+      }
+    }
+    return getMaxMillis();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("count=%d, mean=%.2fms, p50<=%.2fms, p95<=%.2fms, p99<=%.2fms, max=%.2fms",
+        getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95),
+        getPercentileMillis(99), getMaxMillis());
+  }
+}
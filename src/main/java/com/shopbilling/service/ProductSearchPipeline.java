@@ -0,0 +1,302 @@
+package com.shopbilling.service;
+
+import com.shopbilling.dao.ProductCache;
+import com.shopbilling.dao.ProductDAO;
+import com.shopbilling.dao.QueryCanceller;
+import com.shopbilling.model.Product;
+import javafx.application.Platform;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Search-as-you-type for one product grid (the admin grid or the customer grid).
+ *
+ * Each keystroke restarts a short debounce timer; only the term typed when it
+ * fires is searched. A search that is superseded before it finishes is
+ * cancelled, including its SQL query when the catalog is not in memory, and
+ * its results are never delivered. Identical searches (same normalized term
+ * and filters) share one query, also across grids, and recent results are
+ * kept in a small LRU for a few seconds so retyping or backspacing over a
+ * term does not query again.
+ */
+public class ProductSearchPipeline {
+  public static final String ADMIN_GRID = "admin";
+  public static final String CUSTOMER_GRID = "customer";
+
+  private static final long DEFAULT_DEBOUNCE_MS = 200;
+  private static final int MAX_CACHED_SEARCHES = 64;
+  // Short enough that stock and price edits from other terminals show up quickly
+  private static final long CACHE_TTL_MS = 5_000;
+
+  private static final ScheduledExecutorService debouncer = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "product-search-debounce");
+    t.setDaemon(true);
+    return t;
+  });
+
+  // Shared by every grid; guarded by itself
+  private static final Map<String, CachedResult> recent = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+      return size() > MAX_CACHED_SEARCHES;
+    }
+  };
+  private static final Map<String, Query> inFlight = new HashMap<>();
+  private static volatile long cacheGeneration;
+
+  static {
+    ProductCache.getInstance().addChangeListener(ProductSearchPipeline::invalidateCache);
+  }
+
+  private static final AtomicLong searches = new AtomicLong();
+  private static final AtomicLong cacheHits = new AtomicLong();
+  private static final AtomicLong coalesced = new AtomicLong();
+  private static final AtomicLong cancelled = new AtomicLong();
+
+  private final String grid;
+  private final long debounceMillis;
+  private final ProductDAO productDAO = new ProductDAO();
+
+  // Guarded by this; sequence is read without the lock to drop stale deliveries
+  private volatile long sequence;
+  private ScheduledFuture<?> pending;
+  private Query current;
+
+  private static final class CachedResult {
+    final List<Product> products;
+    final long cachedAt;
+
+    CachedResult(List<Product> products, long cachedAt) {
+      this.products = products;
+      this.cachedAt = cachedAt;
+    }
+  }
+
+  // One running search and the number of grids waiting for it
+  private static final class Query {
+    final String key;
+    final QueryCanceller canceller = new QueryCanceller();
+    CompletableFuture<List<Product>> future;
+    int subscribers = 1;
+
+    Query(String key) {
+      this.key = key;
+    }
+  }
+
+  public ProductSearchPipeline(String grid) {
+    this(grid, DEFAULT_DEBOUNCE_MS);
+  }
+
+  public ProductSearchPipeline(String grid, long debounceMillis) {
+    this.grid = grid;
+    this.debounceMillis = debounceMillis;
+  }
+
+  public String getGrid() {
+    return grid;
+  }
+
+  /**
+   * Call on every change of the search field or filters. onResults runs on the
+   * JavaFX application thread, only for the latest search, with a list the
+   * caller may modify.
+   */
+  public void search(String searchTerm, String category, boolean inStockOnly, Consumer<List<Product>> onResults) {
+    String term = normalize(searchTerm);
+    String filter = category == null || category.isBlank() ? null : category.trim();
+    String key = term + '\u0000' + (filter == null ? "" : filter.toLowerCase(Locale.ROOT)) + '\u0000' + inStockOnly;
+    synchronized (this) {
+      long seq = ++sequence;
+      if (pending != null) {
+        pending.cancel(false);
+      }
+      pending = debouncer.schedule(() -> run(seq, key, term, filter, inStockOnly, onResults),
+          debounceMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Drops the pending search and cancels the running one, e.g. when the grid is closed.
+   */
+  public synchronized void cancel() {
+    sequence++;
+    if (pending != null) {
+      pending.cancel(false);
+      pending = null;
+    }
+    release(current);
+    current = null;
+  }
+
+  // Trimmed, lower-case, single-spaced; the product search ignores case and word spacing
+  static String normalize(String searchTerm) {
+    if (searchTerm == null) {
+      return "";
+    }
+    return searchTerm.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+  }
+
+  private synchronized void run(long seq, String key, String term, String category, boolean inStockOnly,
+      Consumer<List<Product>> onResults) {
+    if (seq != sequence) {
+      return;
+    }
+    pending = null;
+    searches.incrementAndGet();
+
+    List<Product> cached = getCached(key);
+    if (cached != null) {
+      cacheHits.incrementAndGet();
+      release(current);
+      current = null;
+      deliver(seq, cached, onResults);
+      return;
+    }
+
+    if (current != null && current.key.equals(key)) {
+      // Already running for this grid; just deliver it to the newer callback
+      coalesced.incrementAndGet();
+    } else {
+      Query previous = current;
+      current = join(key, term, category, inStockOnly);
+      release(previous);
+    }
+    current.future.whenComplete((products, error) -> {
+      if (error == null) {
+        deliver(seq, copies(products), onResults);
+      } else if (current(seq) && !(error instanceof CancellationException)) {
+        System.err.println("Error searching products for the " + grid + " grid: " + error.getMessage());
+      }
+    });
+  }
+
+  private boolean current(long seq) {
+    return seq == sequence;
+  }
+
+  private void deliver(long seq, List<Product> products, Consumer<List<Product>> onResults) {
+    if (!current(seq)) {
+      return;
+    }
+    Platform.runLater(() -> {
+      if (current(seq)) {
+        onResults.accept(products);
+      }
+    });
+  }
+
+  private Query join(String key, String term, String category, boolean inStockOnly) {
+    synchronized (inFlight) {
+      Query query = inFlight.get(key);
+      if (query != null) {
+        coalesced.incrementAndGet();
+        query.subscribers++;
+        return query;
+      }
+      Query started = new Query(key);
+      long generation = cacheGeneration;
+      started.future = DataAccessService.getInstance().submit("ProductDAO.searchProducts",
+          () -> productDAO.searchProducts(term, category, inStockOnly, started.canceller));
+      inFlight.put(key, started);
+      started.future.whenComplete((products, error) -> {
+        synchronized (inFlight) {
+          inFlight.remove(key, started);
+        }
+        if (started.future.isCancelled()) {
+          started.canceller.cancel();
+        } else if (error == null && !started.canceller.isCancelled()) {
+          putCached(key, products, generation);
+        }
+      });
+      return started;
+    }
+  }
+
+  // Cancels the query once no grid is waiting for it any more
+  private static void release(Query query) {
+    if (query == null) {
+      return;
+    }
+    boolean abandoned;
+    synchronized (inFlight) {
+      abandoned = --query.subscribers == 0;
+    }
+    if (abandoned && query.future.cancel(true)) {
+      cancelled.incrementAndGet();
+    }
+  }
+
+  private static List<Product> getCached(String key) {
+    synchronized (recent) {
+      CachedResult result = recent.get(key);
+      if (result == null) {
+        return null;
+      }
+      if (System.currentTimeMillis() - result.cachedAt > CACHE_TTL_MS) {
+        recent.remove(key);
+        return null;
+      }
+      return copies(result.products);
+    }
+  }
+
+  private static void putCached(String key, List<Product> products, long generation) {
+    List<Product> snapshot = copies(products);
+    synchronized (recent) {
+      // Skip results computed before the last invalidation
+      if (generation == cacheGeneration) {
+        recent.put(key, new CachedResult(snapshot, System.currentTimeMillis()));
+      }
+    }
+  }
+
+  // Grids sharing a query or a cached result each get their own products to edit
+  private static List<Product> copies(List<Product> products) {
+    List<Product> copies = new ArrayList<>(products.size());
+    for (Product product : products) {
+      copies.add(new Product(product));
+    }
+    return copies;
+  }
+
+  /**
+   * Forgets cached results; runs whenever the product cache changes, so
+   * checkout stock deductions and direct ProductDAO writes are covered too.
+   */
+  public static void invalidateCache() {
+    synchronized (recent) {
+      cacheGeneration++;
+      recent.clear();
+    }
+  }
+
+  public static long getSearchCount() {
+    return searches.get();
+  }
+
+  public static long getCacheHitCount() {
+    return cacheHits.get();
+  }
+
+  public static long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  public static long getCancelledCount() {
+    return cancelled.get();
+  }
+}
@@ -0,0 +1,92 @@
+package com.shopbilling.service;
+
+import com.shopbilling.dao.ProductDAO;
+import com.shopbilling.model.Product;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over {@link ProductDAO}; see {@link DataAccessService}.
+ * Searches take the name of the grid they feed, and a newer search for the
+ * same grid cancels the older one. For search-as-you-type use
+ * {@link ProductSearchPipeline}, whose cached results writes here invalidate.
+ */
+public class ProductService {
+  private final ProductDAO productDAO = new ProductDAO();
+  private final DataAccessService service = DataAccessService.getInstance();
+
+  public CompletableFuture<Integer> getTotalProducts() {
+    return service.submit("ProductDAO.getTotalProducts", productDAO::getTotalProducts);
+  }
+
+  public CompletableFuture<List<Product>> getAllProducts() {
+    return service.submit("ProductDAO.getAllProducts", productDAO::getAllProducts);
+  }
+
+  public CompletableFuture<List<Product>> getAllProductsSorted(String sortOption) {
+    return service.submit("ProductDAO.getAllProductsSorted", () -> productDAO.getAllProductsSorted(sortOption));
+  }
+
+  public CompletableFuture<List<Product>> getProductsSorted(String sortOption, String category) {
+    return service.submit("ProductDAO.getProductsSorted", () -> productDAO.getProductsSorted(sortOption, category));
+  }
+
+  public CompletableFuture<List<Product>> getProductsSorted(String sortOption, String category, boolean inStockOnly) {
+    return service.submit("ProductDAO.getProductsSorted",
+        () -> productDAO.getProductsSorted(sortOption, category, inStockOnly));
+  }
+
+  public CompletableFuture<Product> getProductById(int id) {
+    return service.submit("ProductDAO.getProductById", () -> productDAO.getProductById(id));
+  }
+
+  public CompletableFuture<Product> getProductByBarcode(String barcode) {
+    return service.submit("ProductDAO.getProductByBarcode", () -> productDAO.getProductByBarcode(barcode));
+  }
+
+  public CompletableFuture<Boolean> isBarcodeExists(String barcode) {
+    return service.submit("ProductDAO.isBarcodeExists", () -> productDAO.isBarcodeExists(barcode));
+  }
+
+  public CompletableFuture<List<Product>> searchProducts(String grid, String searchTerm) {
+    return service.submitLatest("products.search:" + grid, "ProductDAO.searchProducts",
+        () -> productDAO.searchProducts(searchTerm));
+  }
+
+  public CompletableFuture<List<Product>> searchProducts(String grid, String searchTerm, String category, boolean inStockOnly) {
+    return service.submitLatest("products.search:" + grid, "ProductDAO.searchProducts",
+        () -> productDAO.searchProducts(searchTerm, category, inStockOnly));
+  }
+
+  public CompletableFuture<List<Product>> searchProductsStartsWith(String grid, String searchTerm, int limit) {
+    return service.submitLatest("products.search:" + grid, "ProductDAO.searchProductsStartsWith",
+        () -> productDAO.searchProductsStartsWith(searchTerm, limit));
+  }
+
+  public CompletableFuture<Map<String, Integer>> getCategoryCounts(boolean inStockOnly) {
+    return service.submit("ProductDAO.getCategoryCounts", () -> productDAO.getCategoryCounts(inStockOnly));
+  }
+
+  public CompletableFuture<Map<String, Integer>> getCategoryCounts(String grid, String searchTerm, boolean inStockOnly) {
+    return service.submitLatest("products.facets:" + grid, "ProductDAO.getCategoryCounts",
+        () -> productDAO.getCategoryCounts(searchTerm, inStockOnly));
+  }
+
+  public CompletableFuture<Boolean> addProduct(Product product) {
+    return service.submit("ProductDAO.addProduct", () -> productDAO.addProduct(product));
+  }
+
+  public CompletableFuture<Boolean> updateProduct(Product product) {
+    return service.submit("ProductDAO.updateProduct", () -> productDAO.updateProduct(product));
+  }
+
+  public CompletableFuture<Boolean> updateStock(int productId, int newQuantity) {
+    return service.submit("ProductDAO.updateStock", () -> productDAO.updateStock(productId, newQuantity));
+  }
+
+  public CompletableFuture<Boolean> deleteProduct(int id) {
+    return service.submit("ProductDAO.deleteProduct", () -> productDAO.deleteProduct(id));
+  }
+}
@@ -0,0 +1,135 @@
+package com.shopbilling.tax;
+
+import com.shopbilling.index.ProductIndex;
+import com.shopbilling.model.Product;
+import com.shopbilling.model.TaxRule;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves tax rates for bill lines from per-product and per-category rules.
+ *
+ * Rules and the catalog's product categories are compiled into a
+ * {@link TaxTable}, which is swapped in with a single volatile write whenever
+ * the rules are reloaded or a product changes. Billing threads only ever read
+ * the current table, so a reload never blocks them.
+ *
+ * ProductCache keeps the engine's view of product categories current, as it
+ * does for its other indexes.
+ */
+public final class TaxEngine implements ProductIndex {
+  // Used until rules are loaded, and when there is no default rule
+  public static final int DEFAULT_RATE_BASIS_POINTS = 1200;
+
+  private static final TaxEngine INSTANCE = new TaxEngine();
+
+  private volatile TaxTable table = new TaxTable(0, new int[0], Map.of(), DEFAULT_RATE_BASIS_POINTS);
+
+  // Compile inputs, only touched under the lock
+  private List<TaxRule> rules = List.of();
+  private String[] categoriesById = new String[0];
+  private long nextVersion = 1;
+
+  private TaxEngine() {}
+
+  public static TaxEngine getInstance() {
+    return INSTANCE;
+  }
+
+  public TaxTable current() {
+    return table;
+  }
+
+  public int rateFor(int productId, String category) {
+    return table.rateFor(productId, category);
+  }
+
+  /**
+   * Replaces the rules and atomically installs the recompiled table.
+   */
+  public synchronized void installRules(List<TaxRule> rules) {
+    this.rules = List.copyOf(rules);
+    compile();
+  }
+
+  @Override
+  public synchronized void rebuild(Collection<Product> products) {
+    int maxId = -1;
+    for (Product product : products) {
+      maxId = Math.max(maxId, product.getId());
+    }
+    categoriesById = new String[maxId + 1];
+    for (Product product : products) {
+      categoriesById[product.getId()] = categoryOf(product);
+    }
+    compile();
+  }
+
+  @Override
+  public synchronized void add(Product product) {
+    String category = categoryOf(product);
+    if (product.getId() < categoriesById.length && category.equals(categoriesById[product.getId()])) {
+      // Stock and price updates don't change the rate; skip the recompile
+      return;
+    }
+    if (product.getId() >= categoriesById.length) {
+      categoriesById = Arrays.copyOf(categoriesById, Math.max(categoriesById.length * 2, product.getId() + 1));
+    }
+    categoriesById[product.getId()] = category;
+    compile();
+  }
+
+  @Override
+  public synchronized void update(Product previous, Product current) {
+    // add() already skips the recompile when the category is unchanged
+    add(current);
+  }
+
+  @Override
+  public synchronized void remove(Product product) {
+    if (product.getId() < categoriesById.length) {
+      categoriesById[product.getId()] = null;
+      compile();
+    }
+  }
+
+  private void compile() {
+    int defaultRate = DEFAULT_RATE_BASIS_POINTS;
+    Map<String, Integer> byCategory = new HashMap<>();
+    Map<Integer, Integer> byProduct = new HashMap<>();
+    int maxId = categoriesById.length - 1;
+    for (TaxRule rule : rules) {
+      if (rule.getProductId() != null) {
+        byProduct.put(rule.getProductId(), rule.getRateBasisPoints());
+        maxId = Math.max(maxId, rule.getProductId());
+      } else if (rule.getCategory() != null && !rule.getCategory().isBlank()) {
+        byCategory.put(TaxTable.categoryKey(rule.getCategory()), rule.getRateBasisPoints());
+      } else {
+        defaultRate = rule.getRateBasisPoints();
+      }
+    }
+
+    int[] rates = new int[maxId + 1];
+    Arrays.fill(rates, TaxTable.UNRESOLVED);
+    for (int id = 0; id < categoriesById.length; id++) {
+      String category = categoriesById[id];
+      if (category != null) {
+        rates[id] = byCategory.getOrDefault(category, defaultRate);
+      }
+    }
+    for (Map.Entry<Integer, Integer> entry : byProduct.entrySet()) {
+      rates[entry.getKey()] = entry.getValue();
+    }
+
+    table = new TaxTable(nextVersion++, rates, Map.copyOf(byCategory), defaultRate);
+  }
+
+  // Known products get a non-null entry even without a category, so they resolve from the array
+  private static String categoryOf(Product product) {
+    return product.getCategory() == null ? "" : TaxTable.categoryKey(product.getCategory());
+  }
+}
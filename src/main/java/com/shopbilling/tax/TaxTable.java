@@ -0,0 +1,59 @@
+package com.shopbilling.tax;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of the tax rules: every known product's resolved
+ * rate in a flat array indexed by product id, so the billing path does one
+ * array read per line. Products the table was not compiled with (e.g. added
+ * since) resolve through the category map, then the default.
+ */
+public final class TaxTable {
+  static final int UNRESOLVED = -1;
+
+  private final long version;
+  private final int[] ratesByProductId;
+  private final Map<String, Integer> ratesByCategory;
+  private final int defaultRate;
+
+  TaxTable(long version, int[] ratesByProductId, Map<String, Integer> ratesByCategory, int defaultRate) {
+    this.version = version;
+    this.ratesByProductId = ratesByProductId;
+    this.ratesByCategory = ratesByCategory;
+    this.defaultRate = defaultRate;
+  }
+
+  // Changes every time a new table is installed
+  public long getVersion() { return version; }
+
+  public int getDefaultRate() { return defaultRate; }
+
+  /**
+   * Rate in basis points for a product; category is only consulted for products
+   * the table doesn't know yet.
+   */
+  public int rateFor(int productId, String category) {
+    if (productId >= 0 && productId < ratesByProductId.length) {
+      int rate = ratesByProductId[productId];
+      if (rate != UNRESOLVED) {
+        return rate;
+      }
+    }
+    return rateForCategory(category);
+  }
+
+  public int rateForCategory(String category) {
+    if (category != null) {
+      Integer rate = ratesByCategory.get(categoryKey(category));
+      if (rate != null) {
+        return rate;
+      }
+    }
+    return defaultRate;
+  }
+
+  static String categoryKey(String category) {
+    return category.trim().toLowerCase(Locale.ROOT);
+  }
+}
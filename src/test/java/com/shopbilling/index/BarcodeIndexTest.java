@@ -0,0 +1,133 @@
+package com.shopbilling.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BarcodeIndexTest {
+
+  @Test
+  void leadingZerosAreSignificant() {
+    BarcodeIndex index = new BarcodeIndex();
+    index.put("012345", 1);
+    index.put("12345", 2);
+    index.put("0012345", 3);
+
+    assertEquals(1, index.get("012345"));
+    assertEquals(2, index.get("12345"));
+    assertEquals(3, index.get("0012345"));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  void nonNumericAndLongBarcodesUseTheFallback() {
+    BarcodeIndex index = new BarcodeIndex();
+    index.put("ABC-123", 1);
+    index.put("123456789012345678", 2); // 18 digits, too long to pack
+    index.put("12345678901234567", 3); // 17 digits, packed
+
+    assertEquals(1, index.get("ABC-123"));
+    assertEquals(2, index.get("123456789012345678"));
+    assertEquals(3, index.get("12345678901234567"));
+    assertEquals(BarcodeIndex.NOT_FOUND, index.get(""));
+    assertEquals(BarcodeIndex.NOT_FOUND, index.get(null));
+  }
+
+  @Test
+  void removeOnlyDropsTheBarcodeOfTheGivenProduct() {
+    BarcodeIndex index = new BarcodeIndex();
+    index.put("4006381333931", 1);
+    index.put("SKU-1", 1);
+
+    // Reassigned to another product, so the old owner's removal is ignored
+    index.put("4006381333931", 2);
+    index.remove("4006381333931", 1);
+    index.remove("SKU-1", 2);
+    assertEquals(2, index.get("4006381333931"));
+    assertEquals(1, index.get("SKU-1"));
+
+    index.remove("4006381333931", 2);
+    index.remove("SKU-1", 1);
+    assertFalse(index.contains("4006381333931"));
+    assertFalse(index.contains("SKU-1"));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void removalsKeepProbeChainsIntact() {
+    // Enough keys to resize several times and build long probe chains
+    BarcodeIndex index = new BarcodeIndex();
+    List<String> barcodes = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      String barcode = String.format("%013d", 4006381000000L + i * 7L);
+      barcodes.add(barcode);
+      index.put(barcode, i);
+    }
+
+    Collections.shuffle(barcodes, new Random(7));
+    for (int removed = 0; removed < barcodes.size(); removed++) {
+      String barcode = barcodes.get(removed);
+      index.remove(barcode, index.get(barcode));
+      assertFalse(index.contains(barcode));
+      // Every remaining key must still be reachable after the backward shift
+      if (removed % 97 == 0) {
+        for (int i = removed + 1; i < barcodes.size(); i++) {
+          assertTrue(index.contains(barcodes.get(i)), "lost " + barcodes.get(i) + " after removing " + barcode);
+        }
+      }
+    }
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  void matchesHashMapUnderRandomOperations() {
+    Random random = new Random(42);
+    BarcodeIndex index = new BarcodeIndex();
+    Map<String, Integer> reference = new HashMap<>();
+
+    // A small key space so puts, overwrites and removes hit the same slots often
+    List<String> keySpace = new ArrayList<>();
+    for (int i = 0; i < 600; i++) {
+      keySpace.add(i % 10 == 0 ? "SKU-" + i : String.format("%0" + (8 + i % 7) + "d", i * 31L));
+    }
+
+    for (int step = 0; step < 50_000; step++) {
+      String barcode = keySpace.get(random.nextInt(keySpace.size()));
+      int productId = random.nextInt(50);
+      switch (random.nextInt(3)) {
+        case 0:
+          index.put(barcode, productId);
+          reference.put(barcode, productId);
+          break;
+        case 1:
+          index.remove(barcode, productId);
+          reference.remove(barcode, productId);
+          break;
+        default:
+          // Remove whatever the reference holds, to drain the table as often as it fills
+          Integer current = reference.remove(barcode);
+          if (current != null) {
+            index.remove(barcode, current);
+          }
+          break;
+      }
+      Integer expected = reference.get(barcode);
+      assertEquals(expected != null ? expected : BarcodeIndex.NOT_FOUND, index.get(barcode), "step " + step);
+    }
+
+    assertEquals(reference.size(), index.size());
+    for (String barcode : keySpace) {
+      Integer expected = reference.get(barcode);
+      assertEquals(expected != null ? expected : BarcodeIndex.NOT_FOUND, index.get(barcode), barcode);
+    }
+  }
+}
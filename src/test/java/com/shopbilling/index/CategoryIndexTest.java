@@ -0,0 +1,163 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CategoryIndexTest {
+
+  @Test
+  void countsCategoriesCaseInsensitively() {
+    CategoryIndex index = new CategoryIndex();
+    index.rebuild(List.of(
+        product(1, " Drinks ", 5),
+        product(2, "drinks", 0),
+        product(3, "Snacks", 2),
+        product(4, null, 3),
+        product(5, "  ", 3)));
+
+    assertEquals(Map.of("Drinks", 2, "Snacks", 1), index.getCounts(false));
+    assertEquals(List.of("Drinks", "Snacks"), List.copyOf(index.getCounts(false).keySet()));
+    assertEquals(Map.of("Drinks", 1, "Snacks", 1), index.getCounts(true));
+  }
+
+  @Test
+  void filtersKeepTheGivenOrder() {
+    CategoryIndex index = new CategoryIndex();
+    index.rebuild(List.of(
+        product(1, "Drinks", 5),
+        product(2, "Drinks", 0),
+        product(3, "Snacks", 2)));
+
+    assertArrayEquals(new int[]{3, 1, 2}, index.filter(new int[]{3, 1, 2}, null, false));
+    assertArrayEquals(new int[]{2, 1}, index.filter(new int[]{2, 3, 1}, "DRINKS", false));
+    assertArrayEquals(new int[]{1}, index.filter(new int[]{2, 3, 1}, "drinks", true));
+    assertArrayEquals(new int[0], index.filter(new int[]{1, 2, 3}, "Toys", false));
+    assertTrue(index.matches(3, " ", true));
+    assertFalse(index.matches(2, "Drinks", true));
+  }
+
+  @Test
+  void countsWithinSearchResults() {
+    CategoryIndex index = new CategoryIndex();
+    index.rebuild(List.of(
+        product(1, "Drinks", 5),
+        product(2, "Drinks", 0),
+        product(3, "Snacks", 2),
+        product(4, "Snacks", 2)));
+
+    CompactBitmap results = new CompactBitmap();
+    results.add(2);
+    results.add(3);
+    assertEquals(Map.of("Drinks", 1, "Snacks", 1), index.getCounts(results, false));
+    assertEquals(Map.of("Snacks", 1), index.getCounts(results, true));
+  }
+
+  @Test
+  void removeUsesTheCategoryIndexedEarlier() {
+    CategoryIndex index = new CategoryIndex();
+    index.add(product(1, "Drinks", 5));
+
+    // The caller's copy has moved category since; the Drinks entry must still go
+    index.remove(product(1, "Snacks", 0));
+    assertEquals(Map.of(), index.getCounts(false));
+    assertFalse(index.matches(1, null, true));
+
+    index.add(product(2, "Drinks", 1));
+    index.add(product(2, "Snacks", 1));
+    assertEquals(Map.of("Snacks", 1), index.getCounts(false));
+  }
+
+  @Test
+  void updateMovesStockAndCategory() {
+    CategoryIndex index = new CategoryIndex();
+    Product drinks = product(1, "Drinks", 5);
+    index.add(drinks);
+
+    Product soldOut = product(1, "drinks", 0);
+    index.update(drinks, soldOut);
+    assertEquals(Map.of("Drinks", 1), index.getCounts(false));
+    assertEquals(Map.of(), index.getCounts(true));
+
+    Product moved = product(1, "Snacks", 2);
+    index.update(soldOut, moved);
+    assertEquals(Map.of("Snacks", 1), index.getCounts(true));
+
+    index.update(moved, product(1, null, 2));
+    assertEquals(Map.of(), index.getCounts(false));
+    assertTrue(index.matches(1, null, true));
+  }
+
+  @Test
+  void matchesReferenceUnderRandomEdits() {
+    Random random = new Random(9);
+    String[] categories = {"drinks", "snacks", "dairy", "bakery", null};
+    CategoryIndex index = new CategoryIndex();
+    Map<Integer, Product> reference = new HashMap<>();
+
+    for (int step = 0; step < 20_000; step++) {
+      // Ids spread over several bitmap chunks
+      int id = random.nextInt(3_000) * 97;
+      if (random.nextInt(4) == 0) {
+        reference.remove(id);
+        index.remove(product(id, null, 0));
+      } else {
+        Product product = product(id, categories[random.nextInt(categories.length)], random.nextInt(3));
+        Product previous = reference.put(id, product);
+        if (previous != null && random.nextBoolean()) {
+          index.update(previous, product);
+        } else {
+          index.add(product);
+        }
+      }
+      if (step % 1_000 == 0) {
+        assertEquals(expectedCounts(reference, false), index.getCounts(false), "step " + step);
+        assertEquals(expectedCounts(reference, true), index.getCounts(true), "step " + step);
+      }
+    }
+
+    for (int id = 0; id < 3_000 * 97; id += 97) {
+      Product product = reference.get(id);
+      boolean inStock = product != null && product.getStockQuantity() > 0;
+      // No category filter accepts any id; only the stock filter consults the index
+      assertTrue(index.matches(id, null, false));
+      assertEquals(inStock, index.matches(id, null, true), "id " + id);
+      for (String category : categories) {
+        if (category == null) {
+          continue;
+        }
+        boolean inCategory = product != null && category.equals(product.getCategory());
+        assertEquals(inCategory, index.matches(id, category, false), "id " + id + " in " + category);
+        assertEquals(inCategory && inStock, index.matches(id, category, true), "id " + id + " in " + category);
+      }
+    }
+  }
+
+  private static Map<String, Integer> expectedCounts(Map<Integer, Product> products, boolean inStockOnly) {
+    Map<String, Integer> counts = new TreeMap<>();
+    for (Product product : products.values()) {
+      if (product.getCategory() != null && (!inStockOnly || product.getStockQuantity() > 0)) {
+        counts.merge(product.getCategory(), 1, Integer::sum);
+      }
+    }
+    return counts;
+  }
+
+  private static Product product(int id, String category, int stock) {
+    Product product = new Product("Product " + id, null, BigDecimal.ONE, stock, category, null);
+    product.setId(id);
+    return product;
+  }
+}
@@ -0,0 +1,145 @@
+package com.shopbilling.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactBitmapTest {
+
+  @Test
+  void emptyBitmap() {
+    CompactBitmap bitmap = new CompactBitmap();
+    assertTrue(bitmap.isEmpty());
+    assertEquals(0, bitmap.cardinality());
+    assertArrayEquals(new int[0], bitmap.toArray());
+    assertFalse(bitmap.contains(0));
+
+    bitmap.add(70_000);
+    bitmap.remove(70_000);
+    assertTrue(bitmap.isEmpty());
+  }
+
+  @Test
+  void chunkSwitchesRepresentationAroundTheThresholds() {
+    // One chunk: an array up to 4096 values, a bitset above, back to an array at 2048
+    CompactBitmap bitmap = new CompactBitmap();
+    TreeSet<Integer> reference = new TreeSet<>();
+    for (int v = 0; v < 5000; v++) {
+      add(bitmap, reference, v * 13 % 65_536);
+      if (v >= 4090 && v <= 4100) {
+        assertMatches(reference, bitmap);
+      }
+    }
+    assertMatches(reference, bitmap);
+
+    // Down past the bitset-to-array threshold, checking each step around it
+    Integer[] values = reference.toArray(new Integer[0]);
+    for (int i = 0; i < values.length - 1000; i++) {
+      remove(bitmap, reference, values[i]);
+      if (reference.size() >= 2040 && reference.size() <= 2056) {
+        assertMatches(reference, bitmap);
+      }
+    }
+    assertMatches(reference, bitmap);
+
+    // Oscillate across both thresholds; the gap between them keeps this from thrashing
+    for (int round = 0; round < 3; round++) {
+      for (int v = 0; reference.size() < 4200; v++) {
+        add(bitmap, reference, v * 7 % 65_536);
+      }
+      assertMatches(reference, bitmap);
+      while (reference.size() > 1900) {
+        remove(bitmap, reference, reference.first());
+      }
+      assertMatches(reference, bitmap);
+    }
+  }
+
+  @Test
+  void matchesTreeSetUnderRandomOperations() {
+    Random random = new Random(3);
+    CompactBitmap bitmap = new CompactBitmap();
+    TreeSet<Integer> reference = new TreeSet<>();
+
+    for (int step = 0; step < 200_000; step++) {
+      int value = randomValue(random);
+      if (random.nextInt(5) < 3) {
+        add(bitmap, reference, value);
+      } else {
+        remove(bitmap, reference, value);
+      }
+      if (step % 20_000 == 0) {
+        assertMatches(reference, bitmap);
+      }
+    }
+    assertMatches(reference, bitmap);
+  }
+
+  @Test
+  void intersectionsMatchTreeSet() {
+    Random random = new Random(5);
+    for (int trial = 0; trial < 20; trial++) {
+      CompactBitmap a = new CompactBitmap();
+      CompactBitmap b = new CompactBitmap();
+      TreeSet<Integer> refA = new TreeSet<>();
+      TreeSet<Integer> refB = new TreeSet<>();
+      // Vary the densities so dense-dense, dense-sparse and sparse-sparse chunk pairs all occur
+      int countA = random.nextInt(2) == 0 ? 500 : 12_000;
+      int countB = random.nextInt(2) == 0 ? 800 : 9_000;
+      for (int i = 0; i < countA; i++) {
+        add(a, refA, randomValue(random));
+      }
+      for (int i = 0; i < countB; i++) {
+        add(b, refB, randomValue(random));
+      }
+
+      TreeSet<Integer> expected = new TreeSet<>(refA);
+      expected.retainAll(refB);
+      assertEquals(expected.size(), a.andCardinality(b));
+      assertEquals(expected.size(), b.andCardinality(a));
+      assertMatches(expected, a.and(b));
+      assertMatches(expected, b.and(a));
+    }
+  }
+
+  // Mostly within a few chunks, one of them dense, with some scattered far values
+  private static int randomValue(Random random) {
+    switch (random.nextInt(4)) {
+      case 0:
+        return random.nextInt(6_000);
+      case 1:
+        return 65_536 + random.nextInt(65_536);
+      case 2:
+        return 3 * 65_536 + random.nextInt(300);
+      default:
+        return random.nextInt(Integer.MAX_VALUE);
+    }
+  }
+
+  private static void add(CompactBitmap bitmap, TreeSet<Integer> reference, int value) {
+    bitmap.add(value);
+    reference.add(value);
+  }
+
+  private static void remove(CompactBitmap bitmap, TreeSet<Integer> reference, int value) {
+    bitmap.remove(value);
+    reference.remove(value);
+  }
+
+  private static void assertMatches(TreeSet<Integer> expected, CompactBitmap bitmap) {
+    int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+    assertArrayEquals(values, bitmap.toArray());
+    assertEquals(values.length, bitmap.cardinality());
+    assertEquals(values.length == 0, bitmap.isEmpty());
+    for (int value : values) {
+      assertTrue(bitmap.contains(value), "missing " + value);
+      assertFalse(bitmap.contains(value + 1) && !expected.contains(value + 1), "extra " + (value + 1));
+    }
+  }
+}
@@ -0,0 +1,262 @@
+package com.shopbilling.index;
+
+import com.shopbilling.model.Product;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+  @Test
+  void tokenizesOnLettersAndDigits() {
+    assertArrayEquals(new String[]{"usb", "c", "cable", "2m"}, InvertedIndex.tokenize("USB-C Cable, 2m"));
+    assertArrayEquals(new String[0], InvertedIndex.tokenize("  -- "));
+    assertArrayEquals(new String[0], InvertedIndex.tokenize(null));
+  }
+
+  @Test
+  void tokensMatchWordPrefixesNotSubstrings() {
+    // Search used to be LIKE '%term%'; it now matches the start of words only
+    InvertedIndex index = new InvertedIndex();
+    index.rebuild(List.of(
+        product(1, "Smartphone X", "Electronics", null),
+        product(2, "Phone Case", "Accessories", null),
+        product(3, "Headphones", "Audio", null),
+        product(4, "Phones Stand", "Accessories", null)));
+
+    assertEquals(List.of(2, 4), ids(index.search("phone")));
+    assertEquals(List.of(1), ids(index.search("smart")));
+    assertEquals(List.of(3), ids(index.search("head")));
+    assertEquals(List.of(), ids(index.search("artphone")));
+  }
+
+  @Test
+  void multiWordQueriesAreAnded() {
+    InvertedIndex index = new InvertedIndex();
+    index.rebuild(List.of(
+        product(1, "Red Shirt", "Clothing", null),
+        product(2, "Blue Shirt", "Clothing", null),
+        product(3, "Red Cap", "Clothing", null)));
+
+    assertEquals(List.of(1), ids(index.search("red shirt")));
+    assertEquals(List.of(1), ids(index.search("SHIRT re")));
+    assertEquals(List.of(), ids(index.search("red shirt cotton")));
+    assertEquals(List.of(), ids(index.search("  ")));
+  }
+
+  @Test
+  void ranksByBestFieldPerToken() {
+    InvertedIndex index = new InvertedIndex();
+    index.rebuild(List.of(
+        product(1, "Charger", "Power", "For the tablet"),
+        product(2, "Stand", "Tablet", null),
+        product(3, "Tablet", "Computers", "Tablet with tablet case")));
+
+    List<InvertedIndex.ScoredMatch> matches = index.search("tablet");
+    assertEquals(List.of(3, 2, 1), ids(matches));
+    assertEquals(4, matches.get(0).getScore());
+    assertEquals(2, matches.get(1).getScore());
+    assertEquals(1, matches.get(2).getScore());
+  }
+
+  @Test
+  void prefixOverSeveralTermsMergesEachProductOnce() {
+    InvertedIndex index = new InvertedIndex();
+    index.rebuild(List.of(
+        product(1, "Apple Juice", "Drinks", "Made from apples"),
+        product(2, "Application Form", "Stationery", null),
+        product(3, "Tea", "Appetizers", "Apple flavour")));
+
+    // "app" spans apple, apples, application and appetizers in all three fields
+    List<InvertedIndex.ScoredMatch> matches = index.search("app");
+    assertEquals(List.of(1, 2, 3), ids(matches));
+    assertEquals(4, matches.get(0).getScore());
+    assertEquals(4, matches.get(1).getScore());
+    assertEquals(2, matches.get(2).getScore());
+  }
+
+  @Test
+  void removeUsesTheTermsIndexedEarlier() {
+    InvertedIndex index = new InvertedIndex();
+    Product kettle = product(1, "Electric Kettle", "Kitchen", null);
+    index.add(kettle);
+    index.add(product(2, "Kettle Descaler", "Cleaning", null));
+
+    // The caller's copy changed since it was indexed; the old terms still go
+    Product edited = product(1, "Toaster", "Kitchen", null);
+    index.remove(edited);
+    assertEquals(List.of(2), ids(index.search("kettle")));
+    assertEquals(List.of(), ids(index.search("electric")));
+
+    // Re-adding a product replaces its previous terms
+    index.add(product(2, "Descaler", "Cleaning", null));
+    assertEquals(List.of(), ids(index.search("kettle")));
+    assertEquals(List.of(2), ids(index.search("desc")));
+  }
+
+  @Test
+  void updateReplacesChangedTerms() {
+    InvertedIndex index = new InvertedIndex();
+    Product kettle = product(1, "Electric Kettle", "Kitchen", null);
+    index.add(kettle);
+
+    // A stock change leaves the terms as they were
+    Product restocked = product(1, "Electric Kettle", "Kitchen", null);
+    restocked.setStockQuantity(40);
+    index.update(kettle, restocked);
+    assertEquals(List.of(1), ids(index.search("kettle")));
+
+    index.update(restocked, product(1, "Toaster", "Kitchen", null));
+    assertEquals(List.of(), ids(index.search("kettle")));
+    assertEquals(List.of(1), ids(index.search("toast")));
+  }
+
+  @Test
+  void searchesDuringRebuildSeeACompleteIndex() throws InterruptedException {
+    List<Product> catalog = new ArrayList<>();
+    for (int id = 1; id <= 2_000; id++) {
+      catalog.add(product(id, "Item " + id, id % 2 == 0 ? "Kitchen" : "Garden", null));
+    }
+    InvertedIndex index = new InvertedIndex();
+    index.rebuild(catalog);
+
+    AtomicBoolean done = new AtomicBoolean();
+    Thread reloader = new Thread(() -> {
+      while (!done.get()) {
+        index.rebuild(catalog);
+      }
+    });
+    reloader.start();
+    try {
+      for (int i = 0; i < 500; i++) {
+        assertEquals(1_000, index.search("kitchen").size());
+      }
+    } finally {
+      done.set(true);
+      reloader.join();
+    }
+  }
+
+  @Test
+  void matchesBruteForceUnderRandomEdits() {
+    Random random = new Random(11);
+    String[] vocabulary = {"apple", "apricot", "app", "banana", "band", "bandage", "cable", "cab",
+        "car", "card", "cardigan", "red", "green", "phone", "smartphone", "pho"};
+    InvertedIndex index = new InvertedIndex();
+    Map<Integer, Product> reference = new HashMap<>();
+
+    List<Product> initial = new ArrayList<>();
+    for (int id = 1; id <= 150; id++) {
+      Product product = randomProduct(random, vocabulary, id);
+      initial.add(product);
+      reference.put(id, product);
+    }
+    index.rebuild(initial);
+
+    for (int step = 0; step < 2_000; step++) {
+      int id = 1 + random.nextInt(200);
+      if (random.nextInt(3) == 0) {
+        Product removed = reference.remove(id);
+        index.remove(removed != null ? removed : product(id, null, null, null));
+      } else {
+        Product product = randomProduct(random, vocabulary, id);
+        Product previous = reference.put(id, product);
+        if (previous != null && random.nextBoolean()) {
+          index.update(previous, product);
+        } else {
+          index.add(product);
+        }
+      }
+
+      String query = vocabulary[random.nextInt(vocabulary.length)].substring(0, 1 + random.nextInt(3));
+      if (random.nextBoolean()) {
+        query += " " + vocabulary[random.nextInt(vocabulary.length)];
+      }
+      assertEquals(bruteForce(reference, query), scores(index.search(query)), "query '" + query + "' at step " + step);
+    }
+  }
+
+  // Reference ranking: every token must prefix a word of some field, scored by its best field
+  private static List<Map.Entry<Integer, Integer>> bruteForce(Map<Integer, Product> products, String query) {
+    List<Map.Entry<Integer, Integer>> expected = new ArrayList<>();
+    for (int id = 0; id <= 200; id++) {
+      Product product = products.get(id);
+      if (product == null) {
+        continue;
+      }
+      int score = 0;
+      for (String token : InvertedIndex.tokenize(query)) {
+        int best = Math.max(weight(product.getName(), token, 4),
+            Math.max(weight(product.getCategory(), token, 2), weight(product.getDescription(), token, 1)));
+        if (best == 0) {
+          score = 0;
+          break;
+        }
+        score += best;
+      }
+      if (score > 0) {
+        expected.add(Map.entry(id, score));
+      }
+    }
+    // Stable, so ties stay in ascending id order like the index
+    expected.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+    return expected;
+  }
+
+  private static int weight(String field, String token, int weight) {
+    for (String word : InvertedIndex.tokenize(field)) {
+      if (word.startsWith(token)) {
+        return weight;
+      }
+    }
+    return 0;
+  }
+
+  private static Product randomProduct(Random random, String[] vocabulary, int id) {
+    return product(id, words(random, vocabulary, 1 + random.nextInt(3)), words(random, vocabulary, 1),
+        random.nextBoolean() ? words(random, vocabulary, random.nextInt(4)) : null);
+  }
+
+  private static String words(Random random, String[] vocabulary, int count) {
+    List<String> words = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String word = vocabulary[random.nextInt(vocabulary.length)];
+      words.add(random.nextBoolean() ? word.toUpperCase() : word);
+    }
+    return String.join(random.nextBoolean() ? " " : "-", words);
+  }
+
+  private static Product product(int id, String name, String category, String description) {
+    Product product = new Product(name, description, BigDecimal.ONE, 1, category, null);
+    product.setId(id);
+    return product;
+  }
+
+  private static List<Integer> ids(List<InvertedIndex.ScoredMatch> matches) {
+    List<Integer> ids = new ArrayList<>();
+    for (InvertedIndex.ScoredMatch match : matches) {
+      ids.add(match.getProductId());
+    }
+    assertTrue(ids.stream().distinct().count() == ids.size(), "duplicate ids in " + ids);
+    return ids;
+  }
+
+  private static List<Map.Entry<Integer, Integer>> scores(List<InvertedIndex.ScoredMatch> matches) {
+    List<Map.Entry<Integer, Integer>> scores = new ArrayList<>();
+    for (InvertedIndex.ScoredMatch match : matches) {
+      scores.add(Map.entry(match.getProductId(), match.getScore()));
+    }
+    return scores;
+  }
+}
@@ -0,0 +1,247 @@
+package com.shopbilling.journal;
+
+import com.shopbilling.model.Bill;
+import com.shopbilling.model.BillItem;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BillJournalTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void recoveredBillsMatchWhatWasJournaled() throws IOException {
+    Path path = dir.resolve("bills.log");
+    try (BillJournal journal = BillJournal.open(path)) {
+      journal.appendBill("k1", 1_000, -1, bill(3, "12.50", "CARD"));
+      journal.appendBill("k2", 2_000, BillJournal.NO_LOCAL_ID, bill(1, "0.99", null));
+    }
+
+    try (BillJournal journal = BillJournal.open(path)) {
+      List<BillJournal.Entry> recovered = journal.getRecovered();
+      assertEquals(List.of("k1", "k2"), orderKeys(recovered));
+      BillJournal.Entry first = recovered.get(0);
+      assertEquals(1_000L, first.getAcceptedAtMillis());
+      assertEquals(-1, first.getLocalId());
+      assertEquals(-1, first.getBill().getId());
+      assertEquals("k1", first.getBill().getOrderKey());
+      assertEquals("CARD", first.getBill().getPaymentMethod());
+      assertEquals(new BigDecimal("37.50"), first.getBill().getTotalAmount());
+      BillItem item = first.getBill().getBillItems().get(0);
+      assertEquals(7, item.getProductId());
+      assertEquals(3, item.getQuantity());
+      assertEquals(new BigDecimal("12.50"), item.getUnitPrice());
+      assertEquals(new BigDecimal("37.50"), item.getTotalPrice());
+      assertNull(recovered.get(1).getBill().getPaymentMethod());
+    }
+  }
+
+  @Test
+  void tornTailIsDroppedAtEveryByteOffset() throws IOException {
+    Path path = dir.resolve("bills.log");
+    long firstEnd;
+    try (BillJournal journal = BillJournal.open(path)) {
+      journal.appendBill("k1", 1_000, -1, bill(2, "4.00", "CASH"));
+      firstEnd = journal.size();
+      journal.appendBill("k2", 2_000, -2, bill(5, "1.25", "CASH"));
+    }
+    byte[] full = Files.readAllBytes(path);
+
+    // Every prefix ends in the middle of a record, as a crash during an append leaves it
+    for (int length = 0; length < full.length; length++) {
+      if (length == firstEnd) {
+        continue;
+      }
+      Path torn = dir.resolve("torn-" + length + ".log");
+      Files.write(torn, Arrays.copyOf(full, length));
+      try (BillJournal journal = BillJournal.open(torn)) {
+        List<String> expected = length > firstEnd ? List.of("k1") : List.of();
+        assertEquals(expected, orderKeys(journal.getRecovered()), "cut at " + length);
+        assertEquals(length > firstEnd ? firstEnd : 0, journal.size(), "cut at " + length);
+      }
+      assertEquals(0, corruptCopies(torn), "cut at " + length);
+    }
+  }
+
+  @Test
+  void appendsAfterATornTailSurviveReopening() throws IOException {
+    Path path = dir.resolve("bills.log");
+    try (BillJournal journal = BillJournal.open(path)) {
+      journal.appendBill("k1", 1_000, -1, bill(1, "2.00", "CASH"));
+      journal.appendBill("k2", 2_000, -2, bill(1, "3.00", "CASH"));
+    }
+    byte[] full = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(full, full.length - 3));
+
+    try (BillJournal journal = BillJournal.open(path)) {
+      journal.appendBill("k3", 3_000, -3, bill(1, "4.00", "CASH"));
+    }
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of("k1", "k3"), orderKeys(journal.getRecovered()));
+    }
+    assertEquals(0, corruptCopies(path));
+  }
+
+  @Test
+  void flippedByteMidFileIsCopiedAsideAndLaterBillsKept() throws IOException {
+    Path path = dir.resolve("bills.log");
+    long secondStart;
+    long secondEnd;
+    try (BillJournal journal = BillJournal.open(path)) {
+      journal.appendBill("k1", 1_000, -1, bill(1, "2.00", "CASH"));
+      secondStart = journal.size();
+      journal.appendBill("k2", 2_000, -2, bill(2, "3.00", "CARD"));
+      secondEnd = journal.size();
+      journal.appendBill("k3", 3_000, -3, bill(3, "4.00", "CASH"));
+    }
+    byte[] full = Files.readAllBytes(path);
+
+    // Whichever byte of the middle record is damaged, the records around it are recovered
+    for (long offset = secondStart; offset < secondEnd; offset++) {
+      Path damagedDir = Files.createDirectory(dir.resolve("flip-" + offset));
+      Path damaged = damagedDir.resolve("bills.log");
+      byte[] bytes = full.clone();
+      bytes[(int) offset] ^= 0x5A;
+      Files.write(damaged, bytes);
+
+      try (BillJournal journal = BillJournal.open(damaged)) {
+        assertEquals(List.of("k1", "k3"), orderKeys(journal.getRecovered()), "flip at " + offset);
+      }
+      assertEquals(1, corruptCopies(damaged), "flip at " + offset);
+      try (Stream<Path> files = Files.list(damagedDir)) {
+        Path copy = files.filter(p -> p.getFileName().toString().startsWith("bills.log.corrupt-")).findFirst().get();
+        assertTrue(Arrays.equals(bytes, Files.readAllBytes(copy)), "copy differs, flip at " + offset);
+      }
+    }
+  }
+
+  @Test
+  void drainedBillsAreNotRecovered() throws IOException {
+    Path path = dir.resolve("bills.log");
+    try (BillJournal journal = BillJournal.open(path)) {
+      BillJournal.Entry first = journal.appendBill("k1", 1_000, -1, bill(1, "2.00", "CASH"));
+      journal.appendBill("k2", 2_000, -2, bill(1, "3.00", "CASH"));
+      BillJournal.Entry third = journal.appendBill("k3", 3_000, BillJournal.NO_LOCAL_ID, bill(1, "4.00", "CASH"));
+      journal.appendDrained(first, 101);
+      journal.appendDrained(third, 103);
+    }
+
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of("k2"), orderKeys(journal.getRecovered()));
+      // Only bills that had a local id are mapped
+      assertEquals(Map.of(-1, 101), journal.getServerIdsByLocalId());
+      assertEquals(-2, journal.getLowestLocalId());
+
+      journal.appendDrained(journal.getRecovered().get(0), 102);
+    }
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of(), orderKeys(journal.getRecovered()));
+      assertEquals(Map.of(-1, 101, -2, 102), journal.getServerIdsByLocalId());
+    }
+  }
+
+  @Test
+  void rewrittenJournalReopensCleanly() throws IOException {
+    Path path = dir.resolve("bills.log");
+    long secondStart;
+    try (BillJournal journal = BillJournal.open(path)) {
+      BillJournal.Entry first = journal.appendBill("k1", 1_000, -1, bill(1, "2.00", "CASH"));
+      secondStart = journal.size();
+      journal.appendBill("k2", 2_000, -2, bill(1, "3.00", "CASH"));
+      journal.appendBill("k3", 3_000, -3, bill(1, "4.00", "CASH"));
+      journal.appendDrained(first, 101);
+    }
+    byte[] bytes = Files.readAllBytes(path);
+    bytes[(int) secondStart + 6] ^= 0x01;
+    Files.write(path, bytes);
+
+    // The first open rewrites the journal from what it could read
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of("k3"), orderKeys(journal.getRecovered()));
+      journal.appendBill("k4", 4_000, -4, bill(1, "5.00", "CASH"));
+    }
+    assertEquals(1, corruptCopies(path));
+
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of("k3", "k4"), orderKeys(journal.getRecovered()));
+      assertEquals(Map.of(-1, 101), journal.getServerIdsByLocalId());
+      assertEquals(new BigDecimal("5.00"), journal.getRecovered().get(1).getBill().getTotalAmount());
+    }
+    assertEquals(1, corruptCopies(path));
+  }
+
+  @Test
+  void compactKeepsLocalIdMappingsOnly() throws IOException {
+    Path path = dir.resolve("bills.log");
+    try (BillJournal journal = BillJournal.open(path)) {
+      BillJournal.Entry first = journal.appendBill("k1", 1_000, -1, bill(1, "2.00", "CASH"));
+      BillJournal.Entry second = journal.appendBill("k2", 2_000, -2, bill(1, "3.00", "CASH"));
+      BillJournal.Entry third = journal.appendBill("k3", 3_000, BillJournal.NO_LOCAL_ID, bill(1, "4.00", "CASH"));
+      journal.appendDrained(first, 101);
+      journal.appendDrained(second, 102);
+      journal.appendDrained(third, 103);
+      long before = journal.size();
+      journal.compact();
+      assertTrue(journal.size() < before, "compacted " + journal.size() + " of " + before);
+
+      // Still appendable after the file was swapped
+      journal.appendBill("k4", 4_000, -3, bill(1, "5.00", "CASH"));
+    }
+
+    try (BillJournal journal = BillJournal.open(path)) {
+      assertEquals(List.of("k4"), orderKeys(journal.getRecovered()));
+      assertEquals(Map.of(-1, 101, -2, 102), journal.getServerIdsByLocalId());
+      assertEquals(-3, journal.getLowestLocalId());
+    }
+  }
+
+  private static Bill bill(int quantity, String unitPrice, String paymentMethod) {
+    Bill bill = Bill.stored();
+    BillItem item = new BillItem();
+    item.setProductId(7);
+    item.setQuantity(quantity);
+    item.setUnitPrice(new BigDecimal(unitPrice));
+    item.setTotalPrice(new BigDecimal(unitPrice).multiply(BigDecimal.valueOf(quantity)));
+    bill.getBillItems().add(item);
+    bill.setCustomerId(4);
+    bill.setCreatedByUserId(2);
+    bill.setPaymentMethod(paymentMethod);
+    bill.setStatus("COMPLETED");
+    bill.setTotalAmount(item.getTotalPrice());
+    bill.setDiscountAmount(BigDecimal.ZERO);
+    bill.setTaxAmount(BigDecimal.ZERO);
+    bill.setFinalAmount(item.getTotalPrice());
+    return bill;
+  }
+
+  private static List<String> orderKeys(List<BillJournal.Entry> entries) {
+    List<String> keys = new ArrayList<>();
+    for (BillJournal.Entry entry : entries) {
+      keys.add(entry.getOrderKey());
+    }
+    return keys;
+  }
+
+  private static long corruptCopies(Path journal) throws IOException {
+    String prefix = journal.getFileName() + ".corrupt-";
+    try (Stream<Path> files = Files.list(journal.getParent())) {
+      return files.filter(p -> p.getFileName().toString().startsWith(prefix)).count();
+    }
+  }
+}
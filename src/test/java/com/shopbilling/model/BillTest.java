@@ -0,0 +1,181 @@
+package com.shopbilling.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BillTest {
+
+  private static final String[] CATEGORIES = {"Drinks", "Snacks", "Dairy", null};
+
+  // Tax by category, a buy-three discount per line and a threshold discount on the cart
+  private static final class TestPricer implements BillPricer {
+    long version;
+    long drinksRate = 1_200;
+
+    @Override
+    public long getTaxVersion() { return version; }
+
+    @Override
+    public long getPromotionVersion() { return version; }
+
+    @Override
+    public long lineTax(int productId, String category, long lineTotal) {
+      return Money.applyRate(lineTotal, "Drinks".equals(category) ? drinksRate : 500);
+    }
+
+    @Override
+    public long lineDiscount(int productId, String category, int quantity, long unitPrice, long lineTotal) {
+      return quantity >= 3 && productId % 2 == 0 ? unitPrice : 0;
+    }
+
+    @Override
+    public long cartDiscount(long amount) {
+      return amount >= 50_000 ? 2_500 : 0;
+    }
+  }
+
+  @Test
+  void runningSumsMatchAFullRecomputeUnderRandomEdits() {
+    Random random = new Random(16);
+    TestPricer pricer = new TestPricer();
+    Bill bill = new Bill();
+    bill.setPricer(pricer);
+
+    for (int step = 0; step < 5_000; step++) {
+      List<BillItem> items = bill.getBillItems();
+      int action = items.isEmpty() ? 0 : random.nextInt(9);
+      switch (action) {
+        case 0:
+          bill.addBillItem(item(random));
+          break;
+        case 1:
+          items.add(random.nextInt(items.size() + 1), item(random));
+          break;
+        case 2:
+          bill.removeBillItem(items.get(random.nextInt(items.size())));
+          break;
+        case 3:
+          items.set(random.nextInt(items.size()), item(random));
+          break;
+        case 4:
+          items.get(random.nextInt(items.size())).setQuantity(1 + random.nextInt(6));
+          break;
+        case 5:
+          items.get(random.nextInt(items.size())).setUnitPrice(price(random));
+          break;
+        case 6:
+          items.get(random.nextInt(items.size())).setProduct(product(random));
+          break;
+        case 7:
+          items.removeIf(item -> item.getQuantity() == 1 && random.nextInt(4) == 0);
+          break;
+        default:
+          // A rule change: the next calculateTotals re-prices every line
+          pricer.drinksRate = random.nextInt(2_000);
+          pricer.version++;
+          break;
+      }
+      bill.calculateTotals();
+      assertMatchesRecompute(bill, pricer, "step " + step);
+    }
+  }
+
+  @Test
+  void removedLinesNoLongerCount() {
+    TestPricer pricer = new TestPricer();
+    Bill bill = new Bill();
+    bill.setPricer(pricer);
+    BillItem kept = line(2, "Drinks", "2.00", 1);
+    BillItem removed = line(4, "Snacks", "3.00", 1);
+    bill.addBillItem(kept);
+    bill.addBillItem(removed);
+
+    BillItem replaced = bill.getBillItems().set(0, line(6, "Dairy", "1.00", 2));
+    bill.removeBillItem(removed);
+    replaced.setQuantity(9);
+    removed.setQuantity(9);
+    bill.calculateTotals();
+
+    assertEquals(new BigDecimal("2.00"), bill.getTotalAmount());
+    assertMatchesRecompute(bill, pricer, "after detaching");
+  }
+
+  @Test
+  void storedBillsKeepTheirTaxAndDiscount() {
+    Bill bill = Bill.stored();
+    bill.getBillItems().add(line(2, "Drinks", "2.00", 3));
+    bill.setTaxAmount(new BigDecimal("0.30"));
+    bill.setDiscountAmount(new BigDecimal("0.50"));
+    bill.getBillItems().get(0).setQuantity(4);
+    bill.calculateTotals();
+
+    assertEquals(new BigDecimal("8.00"), bill.getTotalAmount());
+    assertEquals(new BigDecimal("0.30"), bill.getTaxAmount());
+    assertEquals(new BigDecimal("7.80"), bill.getFinalAmount());
+  }
+
+  @Test
+  void overflowingLinesFailLoudly() {
+    Bill bill = Bill.stored();
+    BillItem item = line(1, null, "1.00", 1);
+    bill.getBillItems().add(item);
+    item.setUnitPrice(Money.toBigDecimal(Long.MAX_VALUE / 4));
+
+    assertThrows(ArithmeticException.class, () -> item.setQuantity(5));
+    assertThrows(ArithmeticException.class,
+        () -> bill.getBillItems().add(line(3, null, Money.toBigDecimal(Long.MAX_VALUE).toPlainString(), 1)));
+
+    // Priced, the tax on such a line overflows first
+    Bill priced = new Bill();
+    priced.setPricer(new TestPricer());
+    BillItem pricedItem = line(1, null, "1.00", 1);
+    priced.addBillItem(pricedItem);
+    assertThrows(ArithmeticException.class, () -> pricedItem.setUnitPrice(Money.toBigDecimal(Long.MAX_VALUE / 4)));
+  }
+
+  private static void assertMatchesRecompute(Bill bill, BillPricer pricer, String message) {
+    long subtotal = 0;
+    long tax = 0;
+    long discount = 0;
+    for (BillItem item : bill.getBillItems()) {
+      long total = item.getTotalPrice().movePointRight(2).longValueExact();
+      String category = item.getProduct() != null ? item.getProduct().getCategory() : null;
+      subtotal += total;
+      tax += pricer.lineTax(item.getProductId(), category, total);
+      discount += pricer.lineDiscount(item.getProductId(), category, item.getQuantity(),
+          item.getUnitPrice().movePointRight(2).longValueExact(), total);
+    }
+    discount += pricer.cartDiscount(subtotal - discount);
+
+    assertEquals(Money.toBigDecimal(subtotal), bill.getTotalAmount(), message);
+    assertEquals(Money.toBigDecimal(tax), bill.getTaxAmount(), message);
+    assertEquals(Money.toBigDecimal(discount), bill.getDiscountAmount(), message);
+    assertEquals(Money.toBigDecimal(subtotal + tax - discount), bill.getFinalAmount(), message);
+  }
+
+  private static BillItem item(Random random) {
+    return new BillItem(product(random), 1 + random.nextInt(6));
+  }
+
+  private static Product product(Random random) {
+    Product product = new Product("Product", null, price(random), 10, CATEGORIES[random.nextInt(CATEGORIES.length)], null);
+    product.setId(1 + random.nextInt(20));
+    return product;
+  }
+
+  private static BigDecimal price(Random random) {
+    return Money.toBigDecimal(1 + random.nextInt(20_000));
+  }
+
+  private static BillItem line(int productId, String category, String price, int quantity) {
+    Product product = new Product("Product " + productId, null, new BigDecimal(price), 10, category, null);
+    product.setId(productId);
+    return new BillItem(product, quantity);
+  }
+}
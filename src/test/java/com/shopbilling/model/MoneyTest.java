@@ -0,0 +1,75 @@
+package com.shopbilling.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+  @Test
+  void scaleRoundsHalfUpAwayFromZero() {
+    assertEquals(3L, Money.scale(5, 1, 2));
+    assertEquals(-3L, Money.scale(-5, 1, 2));
+    assertEquals(1L, Money.scale(1, 1, 2));
+    assertEquals(-1L, Money.scale(-1, 1, 2));
+    assertEquals(-3L, Money.scale(5, 1, -2));
+    assertEquals(3L, Money.scale(-5, 1, -2));
+    assertEquals(-1L, Money.scale(-4, 1, 3));
+    assertEquals(-2L, Money.scale(-5, 1, 3));
+    assertEquals(0L, Money.scale(-1, 1, 3));
+  }
+
+  @Test
+  void ratesRoundOnceToThePaisa() {
+    // 5% of 1.05 is 0.0525, of 1.50 is 0.075
+    assertEquals(5L, Money.applyRate(105, 500));
+    assertEquals(8L, Money.applyRate(150, 500));
+    assertEquals(-8L, Money.applyRate(-150, 500));
+    assertEquals(Money.ofMinor(-8), Money.parse("-1.50").applyRate(500));
+  }
+
+  @Test
+  void decimalsRoundHalfUpToTwoPlaces() {
+    assertEquals(1L, Money.toMinor(new BigDecimal("0.005")));
+    assertEquals(-1L, Money.toMinor(new BigDecimal("-0.005")));
+    assertEquals(0L, Money.toMinor(new BigDecimal("0.0049")));
+    assertEquals(235L, Money.toMinor(new BigDecimal("2.345")));
+    assertEquals(-235L, Money.toMinor(new BigDecimal("-2.345")));
+    assertEquals(234L, Money.toMinor(new BigDecimal("2.344")));
+    assertEquals("-2.35", Money.parse(" -2.345 ").toString());
+  }
+
+  @Test
+  void scaleMatchesBigDecimalHalfUp() {
+    Random random = new Random(16);
+    for (int i = 0; i < 100_000; i++) {
+      long minorUnits = random.nextInt(2_000_001) - 1_000_000;
+      long numerator = random.nextInt(20_001) - 10_000;
+      long denominator = random.nextBoolean() ? Money.BASIS_POINTS : random.nextInt(199) - 99;
+      if (denominator == 0) {
+        continue;
+      }
+      long expected = BigDecimal.valueOf(minorUnits * numerator)
+          .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.HALF_UP)
+          .longValueExact();
+      assertEquals(expected, Money.scale(minorUnits, numerator, denominator),
+          minorUnits + " * " + numerator + " / " + denominator);
+    }
+  }
+
+  @Test
+  void overflowFailsLoudly() {
+    Money max = Money.ofMinor(Long.MAX_VALUE);
+    assertThrows(ArithmeticException.class, () -> max.plus(Money.ofMinor(1)));
+    assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1)));
+    assertThrows(ArithmeticException.class, () -> max.times(2));
+    assertThrows(ArithmeticException.class, () -> max.applyRate(Money.BASIS_POINTS + 1));
+    assertThrows(ArithmeticException.class, () -> Money.scale(Long.MAX_VALUE / 2 + 1, 2, 1));
+    assertThrows(ArithmeticException.class, () -> Money.toMinor(new BigDecimal("1e30")));
+  }
+}